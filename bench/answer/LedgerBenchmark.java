@@ -0,0 +1,140 @@
+package answer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * Throughput of the individual ledger operations, for each of the
+ * in-memory storage engines, with and without metering.  Benchmarks which
+ * turn pages are timed per batch of days instead, each batch on a fresh
+ * ledger.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LedgerBenchmark {
+
+	@Param({"BOXED", "PRIMITIVE", "SPARSE", "PERSISTENT"})
+	public String storage;
+
+	/*
+	 * Whether to wrap the ledger in a MeteredLedger, to see what the
+	 * metrics cost
+	 */
+	@Param({"false", "true"})
+	public boolean metered;
+
+	private final WarehouseMetrics metrics = new WarehouseMetrics();
+
+	/*
+	 * Ledger parameters.  There is no delivery charge, so buying no items
+	 * costs nothing, and neither the stock level nor the cash reserve can
+	 * overflow however many purchases and sales of nothing are made in an
+	 * iteration; a busy day only gains $9, and those are counted in batches.
+	 */
+	private static final int STOCK = 1000000000; // items
+	private static final int CASH = 1000000000; // dollars
+	private static final int WHOLESALE = 5; // dollars
+	private static final int RETAIL = 8; // dollars
+	private static final int DELIVERY = 0; // dollars
+
+	/*
+	 * The number of pages turned in each timed batch, after which the
+	 * ledger is replaced, so that the boxed ledger's lists stay bounded
+	 * and page turning isn't dominated by garbage collection
+	 */
+	private static final int DAYS_PER_BATCH = 100000;
+
+	private Ledger ledger;
+
+	/*
+	 * A fresh ledger for every iteration (i.e., every batch, for the
+	 * benchmarks which turn pages), so that the history built up by
+	 * turning pages doesn't carry over from one to the next
+	 */
+	@Setup(Level.Iteration)
+	public void newLedger() throws WarehouseException {
+		ledger = LedgerStorage.valueOf(storage).newLedger(STOCK, CASH, WHOLESALE, RETAIL, DELIVERY);
+		if (metered) {
+			ledger = new MeteredLedger(ledger, metrics);
+		};
+	}
+
+	@Benchmark
+	public boolean sellItems() throws WarehouseException {
+		return ledger.sellItems(0);
+	}
+
+	@Benchmark
+	public Ledger buyItems() throws WarehouseException {
+		ledger.buyItems(0);
+		return ledger;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 20, batchSize = DAYS_PER_BATCH)
+	@Measurement(iterations = 20, batchSize = DAYS_PER_BATCH)
+	public Ledger nextDay() {
+		ledger.nextDay();
+		return ledger;
+	}
+
+	@Benchmark
+	public Integer cashAvailableToday() {
+		return ledger.cashAvailable();
+	}
+
+	/*
+	 * A typical busy day: a delivery, a sale and turning the page
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 20, batchSize = DAYS_PER_BATCH)
+	@Measurement(iterations = 20, batchSize = DAYS_PER_BATCH)
+	public Ledger tradingDay() throws WarehouseException {
+		ledger.buyItems(3);
+		ledger.sellItems(3);
+		ledger.nextDay();
+		return ledger;
+	}
+
+	/*
+	 * The same day, tried out in a transaction and then rolled back, as a
+	 * search over possible days would (so no history builds up)
+	 */
+	@Benchmark
+	public Ledger rolledBackDay() throws WarehouseException {
+		TransactionalLedger transactional = (TransactionalLedger) ledger;
+		transactional.begin();
+		ledger.buyItems(3);
+		ledger.sellItems(3);
+		ledger.nextDay();
+		transactional.rollback();
+		return ledger;
+	}
+
+}
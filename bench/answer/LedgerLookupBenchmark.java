@@ -0,0 +1,82 @@
+package answer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * Random lookups of earlier days in a long ledger history, for each of
+ * the in-memory storage engines.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class LedgerLookupBenchmark {
+
+	@Param({"BOXED", "PRIMITIVE", "SPARSE"})
+	public String storage;
+
+	@Param({"1000", "10000000"})
+	public int days;
+
+	/*
+	 * How many precomputed days to cycle through (a power of two)
+	 */
+	private static final int LOOKUPS = 1 << 16;
+
+	private Ledger ledger;
+	private Integer[] lookups = new Integer[LOOKUPS];
+	private int next = 0;
+
+	/*
+	 * Build a long history in which trading happens on roughly one day in
+	 * four, and choose the days to look up in advance
+	 */
+	@Setup
+	public void buildHistory() throws WarehouseException {
+		ledger = LedgerStorage.valueOf(storage).newLedger(1000000000, 0, 5, 8, 50);
+		Random random = new Random(302);
+		for (int day = 1; day < days; day++) {
+			if (random.nextInt(4) == 0) {
+				ledger.sellItems(random.nextInt(10));
+			};
+			ledger.nextDay();
+		};
+		for (int index = 0; index < LOOKUPS; index++) {
+			lookups[index] = 1 + random.nextInt(days);
+		};
+	}
+
+	@Benchmark
+	public Integer cashAvailable() throws WarehouseException {
+		next = (next + 1) & (LOOKUPS - 1);
+		return ledger.cashAvailable(lookups[next]);
+	}
+
+	@Benchmark
+	public Integer inStock() throws WarehouseException {
+		next = (next + 1) & (LOOKUPS - 1);
+		return ledger.inStock(lookups[next]);
+	}
+
+}
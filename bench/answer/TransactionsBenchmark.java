@@ -0,0 +1,158 @@
+package answer;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import question.WarehouseException;
+
+/**
+ * The time taken to trade a batch of days on a fresh warehouse, and to
+ * play a whole job from start to finish, and the throughput of rejecting
+ * invalid orders, for each of the in-memory storage engines.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransactionsBenchmark {
+
+	@Param({"BOXED", "PRIMITIVE", "SPARSE"})
+	public String storage;
+
+	/*
+	 * A long job, for which we can afford to restock every day
+	 */
+	private static final int CAPACITY = 300; // items
+	private static final int JOB = 365; // days
+	private static final int CASH = 1000000000; // dollars
+	private static final int WHOLESALE = 46; // dollars
+	private static final int RETAIL = 54; // dollars
+	private static final int DELIVERY = 99; // dollars
+
+	/*
+	 * The number of days traded in each timed batch, after which the
+	 * warehouse is replaced, so that its history stays bounded and its cash
+	 * can't overflow (a day restocking and selling half the warehouse gains
+	 * $1101, so a batch gains little over $110 million)
+	 */
+	private static final int DAYS_PER_BATCH = 100000;
+
+	private WarehouseTransactions transactions;
+	private int[] orders = new int[JOB];
+	private BitSet restock = new BitSet();
+
+	@Setup
+	public void chooseOrders() {
+		// Restocking every other day means no order ever goes unfulfilled,
+		// so the day-by-day and batch versions do exactly the same work
+		Random random = new Random(302);
+		for (int day = 0; day < JOB; day++) {
+			orders[day] = random.nextInt(CAPACITY / 4);
+			if (day % 2 == 0) {
+				restock.set(day);
+			};
+		};
+	}
+
+	/*
+	 * A fresh warehouse for every iteration (i.e., every batch, for the
+	 * benchmarks which turn pages), with a job that never ends
+	 */
+	@Setup(Level.Iteration)
+	public void newWarehouse() throws WarehouseException {
+		transactions = new WarehouseTransactions(CAPACITY, Integer.MAX_VALUE,
+				LedgerStorage.valueOf(storage).newLedger(CAPACITY, CASH, WHOLESALE, RETAIL, DELIVERY));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 20, batchSize = DAYS_PER_BATCH)
+	@Measurement(iterations = 20, batchSize = DAYS_PER_BATCH)
+	public WarehouseTransactions restockAndSellStock() throws WarehouseException {
+		transactions.restockAndSellStock(CAPACITY / 2);
+		return transactions;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 20, batchSize = DAYS_PER_BATCH)
+	@Measurement(iterations = 20, batchSize = DAYS_PER_BATCH)
+	public WarehouseTransactions sellStock() throws WarehouseException {
+		transactions.sellStock(0);
+		return transactions;
+	}
+
+	/*
+	 * Rejecting an invalid order, by catching the exception thrown (run
+	 * with -Dwarehouse.exceptions.stackless=true to compare preallocated
+	 * exceptions)
+	 */
+	@Benchmark
+	public WarehouseException rejectedOrderThrown() {
+		try {
+			transactions.sellStock(-1);
+			return null;
+		} catch (WarehouseException exception) {
+			return exception;
+		}
+	}
+
+	/*
+	 * Rejecting the same order, by status
+	 */
+	@Benchmark
+	public TradeStatus rejectedOrderStatus() {
+		return transactions.trySellStock(-1);
+	}
+
+	/*
+	 * A whole year's job, one day at a time
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public boolean fullJob() throws WarehouseException {
+		WarehouseTransactions job = new WarehouseTransactions(CAPACITY, JOB,
+				LedgerStorage.valueOf(storage).newLedger(CAPACITY, CASH, WHOLESALE, RETAIL, DELIVERY));
+		for (int day = 0; day < JOB; day++) {
+			if (restock.get(day)) {
+				job.restockAndSellStock(orders[day]);
+			} else {
+				job.sellStock(orders[day]);
+			};
+		};
+		return job.jobDone();
+	}
+
+	/*
+	 * The same job, as a single batch
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public int fullJobBatch() throws WarehouseException {
+		WarehouseTransactions job = new WarehouseTransactions(CAPACITY, JOB,
+				LedgerStorage.valueOf(storage).newLedger(CAPACITY, CASH, WHOLESALE, RETAIL, DELIVERY));
+		return job.processOrders(orders, restock);
+	}
+
+}
@@ -0,0 +1,278 @@
+package answer;
+
+import question.WarehouseException;
+
+/**
+ * Common behaviour shared by the alternative warehouse ledgers: parameter
+ * checking, pricing, transactions and the human-readable summary.
+ * Subclasses need only decide how each day's stock level and cash reserve
+ * are stored, using primitive <code>int</code> values throughout.
+ *
+ * A run of purchases, sales and page turns can be made all-or-nothing by
+ * calling <code>begin</code> first and <code>commit</code> or
+ * <code>rollback</code> afterwards.  Changes are made in place as usual,
+ * and all that's kept to undo them is the day and balances at the start,
+ * so rolling back takes a moment, however much was done.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public abstract class AbstractLedger implements TransactionalLedger {
+
+	protected final int wholesaleCost; // dollars
+	protected final int retailPrice; // dollars
+	protected final int deliveryCost; // dollars
+
+	// Where the open transaction began, if there is one
+	private int beganOn = 0; // day, or 0 if no transaction is open
+	private int beganWithStock; // items
+	private int beganWithCash; // dollars
+
+	/**
+	 * Check and save the pricing parameters common to all ledgers.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price
+	 */
+	protected AbstractLedger(
+			Integer initialStock,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		// Sanity checks on parameters (NB: The second and fourth checks imply
+		// that the retail price must be non-negative, so we don't need to
+		// check this explicitly)
+		if (initialStock < 0) {
+			throw new WarehouseException("Initial stock level cannot be negative");
+		};
+		if (wholesaleCostPerItem < 0) {
+			throw new WarehouseException("Wholesale cost cannot be negative");
+		};
+		if (deliveryCharge < 0) {
+			throw new WarehouseException("Delivery charge cannot be negative");
+		};
+		if (wholesaleCostPerItem > retailPricePerItem) {
+			throw new WarehouseException("Wholesale cost may not exceed retail price");
+		};
+		wholesaleCost = wholesaleCostPerItem;
+		retailPrice = retailPricePerItem;
+		deliveryCost = deliveryCharge;
+	}
+
+	/**
+	 * Copy the (already checked) pricing parameters of another ledger.
+	 *
+	 * @param pricing the ledger whose prices are to be charged
+	 */
+	protected AbstractLedger(AbstractLedger pricing) {
+		wholesaleCost = pricing.wholesaleCost;
+		retailPrice = pricing.retailPrice;
+		deliveryCost = pricing.deliveryCost;
+	}
+
+	/**
+	 * Returns the current day as a primitive value.
+	 *
+	 * @return the current day (where days are counted starting at 1)
+	 */
+	protected abstract int today();
+
+	/**
+	 * Returns the stock level at the end of the given day, which has
+	 * already been checked to lie between 1 and today inclusive.
+	 *
+	 * @param day the day of interest
+	 * @return the number of items in stock on that day
+	 */
+	protected abstract int stockOn(int day);
+
+	/**
+	 * Returns the cash reserve at the end of the given day, which has
+	 * already been checked to lie between 1 and today inclusive.
+	 *
+	 * @param day the day of interest
+	 * @return the cash reserve on that day, in dollars
+	 */
+	protected abstract int cashOn(int day);
+
+	/**
+	 * Sells up to the requested (non-negative) number of items today.
+	 *
+	 * @param requested the number of items which have been requested
+	 * @return the number of items actually sold
+	 */
+	protected abstract int sell(int requested);
+
+	/**
+	 * Buys the required (non-negative) number of items today, paying
+	 * both the wholesale cost and the delivery charge.
+	 *
+	 * @param required the number of items being purchased
+	 */
+	protected abstract void buy(int required);
+
+	/**
+	 * Puts the ledger back as it was at the given point in the given day
+	 * (which is no later than today): every later day is forgotten, and
+	 * the given day becomes today again, with the given balances.
+	 *
+	 * @param day the day to go back to
+	 * @param stock the stock level to restore, in items
+	 * @param cash the cash reserve to restore, in dollars
+	 */
+	protected abstract void restore(int day, int stock, int cash);
+
+	/**
+	 * @return true, unless a subclass says otherwise
+	 */
+	public boolean transactional() {
+		return true;
+	}
+
+	/**
+	 * Starts a transaction: everything done to the ledger from now on can
+	 * be undone with <code>rollback</code>, until <code>commit</code> is
+	 * called.  Transactions may not be nested.
+	 *
+	 * @throws IllegalStateException if a transaction is already open
+	 */
+	public void begin() {
+		if (beganOn != 0) {
+			throw new IllegalStateException("A transaction is already open");
+		};
+		int day = today();
+		beganWithStock = stockOn(day);
+		beganWithCash = cashOn(day);
+		beganOn = day;
+	}
+
+	/**
+	 * Keeps everything done since the transaction began.
+	 *
+	 * @throws IllegalStateException if no transaction is open
+	 */
+	public void commit() {
+		if (beganOn == 0) {
+			throw new IllegalStateException("No transaction is open");
+		};
+		beganOn = 0;
+	}
+
+	/**
+	 * Undoes everything done since the transaction began, turning back any
+	 * pages turned since then.
+	 *
+	 * @throws IllegalStateException if no transaction is open
+	 */
+	public void rollback() {
+		if (beganOn == 0) {
+			throw new IllegalStateException("No transaction is open");
+		};
+		restore(beganOn, beganWithStock, beganWithCash);
+		beganOn = 0;
+	}
+
+	/**
+	 * @return true if a transaction has begun, and not yet been committed
+	 * or rolled back
+	 */
+	public boolean inTransaction() {
+		return beganOn != 0;
+	}
+
+	public boolean sellItems(Integer requested) throws WarehouseException {
+		TradeStatus status = trySell(requested);
+		if (!status.ok()) {
+			throw status.exception();
+		};
+		return status == TradeStatus.FILLED;
+	}
+
+	public void buyItems(Integer required) throws WarehouseException {
+		TradeStatus status = tryBuy(required);
+		if (!status.ok()) {
+			throw status.exception();
+		};
+	}
+
+	/**
+	 * Sells the requested number of items today, or as many as we have,
+	 * just like <code>sellItems</code>, but reports a negative request by
+	 * returning <code>NEGATIVE_SALE</code> rather than throwing an exception.
+	 *
+	 * @param requested the number of items ordered
+	 * @return <code>FILLED</code>, <code>PARTLY_FILLED</code> or
+	 * <code>NEGATIVE_SALE</code>
+	 */
+	public TradeStatus trySell(int requested) {
+		// Sanity check on parameter
+		if (requested < 0) {
+			return TradeStatus.NEGATIVE_SALE;
+		};
+		// Let the caller know if the order wasn't completed fully
+		return sell(requested) == requested ? TradeStatus.FILLED : TradeStatus.PARTLY_FILLED;
+	}
+
+	/**
+	 * Buys the required number of items today, just like
+	 * <code>buyItems</code>, but reports a negative number by returning
+	 * <code>NEGATIVE_PURCHASE</code> rather than throwing an exception.
+	 *
+	 * @param required the number of items being purchased
+	 * @return <code>OK</code> or <code>NEGATIVE_PURCHASE</code>
+	 */
+	public TradeStatus tryBuy(int required) {
+		// Sanity check on parameter
+		if (required < 0) {
+			return TradeStatus.NEGATIVE_PURCHASE;
+		};
+		// We may go into debt when buying items
+		buy(required);
+		return TradeStatus.OK;
+	}
+
+	public Integer currentDay() {
+		return today();
+	}
+
+	public Integer cashAvailable() {
+		return cashOn(today());
+	}
+
+	public Integer cashAvailable(Integer day) throws WarehouseException {
+		checkDay(day);
+		return cashOn(day);
+	}
+
+	public Integer inStock() {
+		return stockOn(today());
+	}
+
+	public Integer inStock(Integer day) throws WarehouseException {
+		checkDay(day);
+		return stockOn(day);
+	}
+
+	public String toString() {
+		int day = today();
+		return "Day " + day + ": " +
+		"Cash reserve = $" + cashOn(day) + "; " +
+		"Items in stock = " + stockOn(day) + "\n";
+	}
+
+	/*
+	 * Reject lookups of days before the ledger began or after today
+	 */
+	private void checkDay(Integer day) throws WarehouseException {
+		if (day <= 0 || day > today()) {
+			throw new WarehouseException("Attempt to lookup nonexistent day in ledger");
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package answer;
+
+import java.util.Arrays;
+
+/**
+ * An append-only column of integers which can report the minimum, maximum
+ * and total of any range of entries, and find the first entry in a range
+ * below a threshold, in logarithmic time.  Counting the entries below a
+ * threshold is only as quick as the column is tidy: see countBelow.
+ *
+ * Level 0 holds the entries themselves.  Level <em>k</em> holds the
+ * minimum, maximum and total of each complete, aligned block of 2<sup>k</sup>
+ * entries, and a block is summarised only once its last entry arrives, so
+ * (like counting in binary) appending costs amortized constant time.  Any
+ * range is covered by at most two blocks per level.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+class AggregateIndex {
+
+	private static final int LEVELS = 32;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int count = 0; // entries appended so far
+	private int[] values = new int[INITIAL_CAPACITY]; // level 0
+	private int[][] mins = new int[LEVELS][]; // levels 1 and up
+	private int[][] maxs = new int[LEVELS][];
+	private long[][] sums = new long[LEVELS][];
+
+	/**
+	 * Adds a new entry to the end of the column.
+	 *
+	 * @param value the new entry
+	 */
+	void append(int value) {
+		if (count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+		};
+		values[count] = value;
+		count++;
+		// Summarise every block which this entry completes
+		for (int level = 1; level < LEVELS && (count & ((1 << level) - 1)) == 0; level++) {
+			int block = (count >> level) - 1;
+			int left = block * 2;
+			int right = left + 1;
+			if (mins[level] == null) {
+				mins[level] = new int[INITIAL_CAPACITY];
+				maxs[level] = new int[INITIAL_CAPACITY];
+				sums[level] = new long[INITIAL_CAPACITY];
+			} else if (block == mins[level].length) {
+				mins[level] = Arrays.copyOf(mins[level], block * 2);
+				maxs[level] = Arrays.copyOf(maxs[level], block * 2);
+				sums[level] = Arrays.copyOf(sums[level], block * 2);
+			};
+			mins[level][block] = Math.min(blockMin(level - 1, left), blockMin(level - 1, right));
+			maxs[level][block] = Math.max(blockMax(level - 1, left), blockMax(level - 1, right));
+			sums[level][block] = blockSum(level - 1, left) + blockSum(level - 1, right);
+		};
+	}
+
+	/**
+	 * Forgets every entry after the given number, as if they had never
+	 * been appended.  (The summaries of blocks which are no longer complete
+	 * are simply recalculated once the blocks are completed again.)
+	 *
+	 * @param size the number of entries to keep
+	 */
+	void truncate(int size) {
+		count = size;
+	}
+
+	/**
+	 * @param from the first entry of the range (zero-based)
+	 * @param to the last entry of the range (inclusive)
+	 * @return the smallest entry in the range
+	 */
+	int min(int from, int to) {
+		int result = Integer.MAX_VALUE;
+		for (int position = from; position <= to; ) {
+			int level = largestBlock(position, to);
+			result = Math.min(result, blockMin(level, position >> level));
+			position += 1 << level;
+		};
+		return result;
+	}
+
+	/**
+	 * @param from the first entry of the range (zero-based)
+	 * @param to the last entry of the range (inclusive)
+	 * @return the largest entry in the range
+	 */
+	int max(int from, int to) {
+		int result = Integer.MIN_VALUE;
+		for (int position = from; position <= to; ) {
+			int level = largestBlock(position, to);
+			result = Math.max(result, blockMax(level, position >> level));
+			position += 1 << level;
+		};
+		return result;
+	}
+
+	/**
+	 * @param from the first entry of the range (zero-based)
+	 * @param to the last entry of the range (inclusive)
+	 * @return the total of the entries in the range
+	 */
+	long sum(int from, int to) {
+		long result = 0;
+		for (int position = from; position <= to; ) {
+			int level = largestBlock(position, to);
+			result += blockSum(level, position >> level);
+			position += 1 << level;
+		};
+		return result;
+	}
+
+	/**
+	 * @param threshold the value of interest
+	 * @param from where to start looking (zero-based)
+	 * @return the position of the first entry at or after <code>from</code>
+	 * which is less than the threshold, or -1 if there is none
+	 */
+	int firstBelow(int threshold, int from) {
+		for (int position = from; position < count; ) {
+			int level = largestBlock(position, count - 1);
+			int block = position >> level;
+			if (blockMin(level, block) < threshold) {
+				// The answer is in this block, so narrow it down
+				while (level > 0) {
+					level--;
+					block = block * 2;
+					if (blockMin(level, block) >= threshold) {
+						block++;
+					};
+				};
+				return block;
+			};
+			position += 1 << level;
+		};
+		return -1;
+	}
+
+	/**
+	 * Blocks wholly above or below the threshold are counted at once, but
+	 * blocks with entries on both sides must be looked inside, so this
+	 * takes time in proportion to the number of times the entries cross
+	 * the threshold (times the logarithm of the range).  That is quick when
+	 * the threshold is crossed rarely, but when the entries oscillate
+	 * around it every block is mixed and the whole range is read, in
+	 * linear time.
+	 *
+	 * @param threshold the value of interest
+	 * @param from the first entry of the range (zero-based)
+	 * @param to the last entry of the range (inclusive)
+	 * @return how many entries in the range are less than the threshold
+	 */
+	int countBelow(int threshold, int from, int to) {
+		int result = 0;
+		for (int position = from; position <= to; ) {
+			int level = largestBlock(position, to);
+			result += blockCountBelow(threshold, level, position >> level);
+			position += 1 << level;
+		};
+		return result;
+	}
+
+	/*
+	 * Count the entries below the threshold within one block, looking inside
+	 * only those sub-blocks which contain both kinds of entry
+	 */
+	private int blockCountBelow(int threshold, int level, int block) {
+		if (blockMin(level, block) >= threshold) {
+			return 0;
+		};
+		if (blockMax(level, block) < threshold) {
+			return 1 << level;
+		};
+		return blockCountBelow(threshold, level - 1, block * 2)
+				+ blockCountBelow(threshold, level - 1, (block * 2) + 1);
+	}
+
+	/*
+	 * Find the largest aligned block starting at the given position which
+	 * fits within the range (and so must already be complete)
+	 */
+	private int largestBlock(int position, int to) {
+		int level = 0;
+		while (level + 1 < LEVELS
+				&& (position & ((1 << (level + 1)) - 1)) == 0
+				&& (long) position + (1L << (level + 1)) - 1 <= to) {
+			level++;
+		};
+		return level;
+	}
+
+	private int blockMin(int level, int block) {
+		return level == 0 ? values[block] : mins[level][block];
+	}
+
+	private int blockMax(int level, int block) {
+		return level == 0 ? values[block] : maxs[level][block];
+	}
+
+	private long blockSum(int level, int block) {
+		return level == 0 ? values[block] : sums[level][block];
+	}
+
+}
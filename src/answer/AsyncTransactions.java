@@ -0,0 +1,284 @@
+package answer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An asynchronous front end to a warehouse's transactions, so that callers
+ * (e.g., remote clients or the GUI) can submit days of trading without
+ * waiting for the ledger.  Each call queues the day's operation and
+ * immediately returns a future for its outcome.
+ *
+ * Queued operations are carried out in the order they were submitted by a
+ * single writer at a time, running on the given executor, so the underlying
+ * <code>WarehouseTransactions</code> (which must not then be used directly)
+ * never needs a lock.  Whatever has queued up while the writer was busy is
+ * carried out as one batch, and the batch's futures are only completed
+ * once it is done, so the busier the callers, the fewer hand-overs per day.
+ *
+ * NB: Invalid orders don't fail their futures; the outcome's status says
+ * what was wrong, as for <code>trySellStock</code>, etc.  Dependent actions
+ * added with the non-async methods of <code>CompletableFuture</code> run on
+ * the writer, and hold up later days, so they should be kept short.  If
+ * the executor refuses to run the writer (e.g., because it has been shut
+ * down), whatever is queued fails with the executor's exception.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class AsyncTransactions {
+
+	/** The most operations carried out before completing their futures */
+	public static final int MAX_BATCH = 256;
+
+	/**
+	 * The outcome of one day's trading, and the state of the warehouse
+	 * immediately afterwards.
+	 */
+	public static final class Outcome {
+
+		private final TradeStatus status;
+		private final int day;
+		private final boolean insolvent;
+		private final boolean orderUnfulfilled;
+		private final boolean jobDone;
+
+		private Outcome(TradeStatus status, WarehouseTransactions warehouse) {
+			this.status = status;
+			day = warehouse.ledger().currentDay();
+			insolvent = warehouse.insolvent();
+			orderUnfulfilled = warehouse.orderUnfulfilled();
+			jobDone = warehouse.jobDone();
+		}
+
+		/**
+		 * @return how the day's trading went (<code>OK</code> for a snapshot
+		 * taken without trading)
+		 */
+		public TradeStatus status() {
+			return status;
+		}
+
+		/**
+		 * @return the warehouse's current day afterwards
+		 */
+		public int day() {
+			return day;
+		}
+
+		public boolean insolvent() {
+			return insolvent;
+		}
+
+		public boolean orderUnfulfilled() {
+			return orderUnfulfilled;
+		}
+
+		public boolean jobDone() {
+			return jobDone;
+		}
+
+		public String toString() {
+			return status + " (day " + day + (insolvent ? ", insolvent" : "") +
+					(orderUnfulfilled ? ", order unfulfilled" : "") +
+					(jobDone ? ", job done" : "") + ")";
+		}
+	}
+
+	/*
+	 * The different things that can be queued
+	 */
+	private enum Kind { SELL, RESTOCK, RESTOCK_TO, SNAPSHOT }
+
+	/*
+	 * One queued operation, and the future for its outcome
+	 */
+	private static final class Operation {
+
+		final Kind kind;
+		final int stockLevel; // items, for RESTOCK_TO only
+		final int order; // items
+		final CompletableFuture<Outcome> future = new CompletableFuture<Outcome>();
+		Outcome outcome;
+		Throwable failure;
+
+		Operation(Kind kind, int stockLevel, int order) {
+			this.kind = kind;
+			this.stockLevel = stockLevel;
+			this.order = order;
+		}
+	}
+
+	private final WarehouseTransactions warehouse;
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<Operation> queue = new ConcurrentLinkedQueue<Operation>();
+	private final AtomicBoolean writing = new AtomicBoolean(false);
+	private final Operation[] batch = new Operation[MAX_BATCH]; // used by the writer only
+	private volatile long operations = 0; // updated by the writer only
+	private volatile long batches = 0; // updated by the writer only
+
+	/**
+	 * An asynchronous front end to the given transactions, whose operations
+	 * are carried out on the common fork/join pool.
+	 *
+	 * @param warehouse the transactions to carry out
+	 */
+	public AsyncTransactions(WarehouseTransactions warehouse) {
+		this(warehouse, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * An asynchronous front end to the given transactions, whose operations
+	 * are carried out using the given executor (which may have any number
+	 * of threads, as only one will be writing at a time).
+	 *
+	 * @param warehouse the transactions to carry out
+	 * @param executor what to run the writer on
+	 */
+	public AsyncTransactions(WarehouseTransactions warehouse, Executor executor) {
+		this.warehouse = warehouse;
+		this.executor = executor;
+	}
+
+	/**
+	 * Queue a day's trading as for <code>sellStock</code>.
+	 *
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return the day's outcome, once it has been traded
+	 */
+	public CompletableFuture<Outcome> sellStock(int todaysOrder) {
+		return submit(new Operation(Kind.SELL, 0, todaysOrder));
+	}
+
+	/**
+	 * Queue a day's trading as for <code>restockAndSellStock</code>.
+	 *
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return the day's outcome, once it has been traded
+	 */
+	public CompletableFuture<Outcome> restockAndSellStock(int todaysOrder) {
+		return submit(new Operation(Kind.RESTOCK, 0, todaysOrder));
+	}
+
+	/**
+	 * Queue a day's trading as for <code>restockToAndSellStock</code>.
+	 *
+	 * @param stockLevel the number of items to restock up to
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return the day's outcome, once it has been traded
+	 */
+	public CompletableFuture<Outcome> restockToAndSellStock(int stockLevel, int todaysOrder) {
+		return submit(new Operation(Kind.RESTOCK_TO, stockLevel, todaysOrder));
+	}
+
+	/**
+	 * Queue a look at the warehouse, taken after everything already queued
+	 * has been traded.
+	 *
+	 * @return the warehouse's state, with status <code>OK</code>
+	 */
+	public CompletableFuture<Outcome> snapshot() {
+		return submit(new Operation(Kind.SNAPSHOT, 0, 0));
+	}
+
+	/**
+	 * @return the number of operations carried out so far
+	 */
+	public long operations() {
+		return operations;
+	}
+
+	/**
+	 * @return the number of batches the operations were carried out in
+	 */
+	public long batches() {
+		return batches;
+	}
+
+	/*
+	 * Queue the operation, starting a writer if there isn't one already
+	 */
+	private CompletableFuture<Outcome> submit(Operation operation) {
+		queue.add(operation);
+		startWriter();
+		return operation.future;
+	}
+
+	/*
+	 * Start a writer if there's anything queued and there isn't one already,
+	 * failing everything queued if the executor won't run it (including
+	 * anything queued while giving up)
+	 */
+	private void startWriter() {
+		while (!queue.isEmpty() && writing.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::write);
+				return;
+			} catch (RuntimeException rejected) {
+				Operation operation;
+				while ((operation = queue.poll()) != null) {
+					operation.future.completeExceptionally(rejected);
+				};
+				writing.set(false);
+			}
+		};
+	}
+
+	/*
+	 * Carry out queued operations, a batch at a time, until there are none
+	 * left (including any queued while stopping)
+	 */
+	private void write() {
+		do {
+			int size = 0;
+			Operation operation;
+			while (size < MAX_BATCH && (operation = queue.poll()) != null) {
+				carryOut(operation);
+				batch[size++] = operation;
+			};
+			operations += size;
+			batches++;
+			for (int index = 0; index < size; index++) {
+				complete(batch[index]);
+				batch[index] = null;
+			};
+			writing.set(false);
+		} while (!queue.isEmpty() && writing.compareAndSet(false, true));
+	}
+
+	private void carryOut(Operation operation) {
+		try {
+			TradeStatus status;
+			switch (operation.kind) {
+			case SELL:
+				status = warehouse.trySellStock(operation.order);
+				break;
+			case RESTOCK:
+				status = warehouse.tryRestockAndSellStock(operation.order);
+				break;
+			case RESTOCK_TO:
+				status = warehouse.tryRestockToAndSellStock(operation.stockLevel, operation.order);
+				break;
+			default:
+				status = TradeStatus.OK;
+			};
+			operation.outcome = new Outcome(status, warehouse);
+		} catch (Throwable failure) {
+			// The ledger itself failed, but later days may still succeed
+			// (and the rest of the batch must be completed regardless)
+			operation.failure = failure;
+		}
+	}
+
+	private static void complete(Operation operation) {
+		if (operation.failure == null) {
+			operation.future.complete(operation.outcome);
+		} else {
+			operation.future.completeExceptionally(operation.failure);
+		};
+	}
+
+}
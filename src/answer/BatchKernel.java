@@ -0,0 +1,314 @@
+package answer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import question.WarehouseException;
+
+/**
+ * Many independent warehouses, all with the same parameters, traded a day
+ * at a time in lock step, for Monte Carlo runs too big to play one game at
+ * a time through <code>WarehouseTransactions</code>.  Each warehouse (or
+ * "lane") is just an element of a few <code>int</code> arrays, and every
+ * lane's day is worked out by the same straight-line arithmetic, with no
+ * objects, calls or boxing.
+ *
+ * Each day, every lane still trading is restocked (if asked to) exactly as
+ * by <code>restockToAndSellStock</code>, sells its order and turns the
+ * page.  A lane stops trading at the end of the first day on which it goes
+ * bankrupt, fails to fill an order or finishes the job (checked in that
+ * order, as the GUI does), after which it's left alone, so each lane ends
+ * just as the same orders would leave a <code>WarehouseTransactions</code>.
+ *
+ * Use <code>create</code> to get the fastest kernel available: if
+ * <code>answer.VectorBatchKernel</code> has been compiled (by the
+ * <code>compileVector</code> target) and the JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>, that works on many lanes
+ * at once with SIMD instructions, and otherwise this scalar kernel is used.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class BatchKernel {
+
+	/** The outcome of a lane which is still trading */
+	public static final int TRADING = -1;
+
+	/** The outcome of a lane which went bankrupt */
+	public static final int BANKRUPT = MonteCarloSimulation.BANKRUPT;
+
+	/** The outcome of a lane which failed to fill an order */
+	public static final int UNFULFILLED = MonteCarloSimulation.UNFULFILLED;
+
+	/** The outcome of a lane which finished the job */
+	public static final int COMPLETED = MonteCarloSimulation.COMPLETED;
+
+	private static final String VECTOR_KERNEL = "answer.VectorBatchKernel";
+
+	final int capacity; // items
+	final int wholesaleCost; // dollars
+	final int retailPrice; // dollars
+	final int deliveryCost; // dollars
+	final int duration; // days
+
+	// One element per lane
+	final int[] stock; // items
+	final int[] cash; // dollars
+	final int[] day; // the lane's current day
+	final int[] outcome; // TRADING, or how the lane ended
+	private int trading; // lanes
+
+	/**
+	 * A scalar kernel for the given number of warehouses, each starting on
+	 * day 1 with the given stock and cash.
+	 *
+	 * @param lanes the number of warehouses
+	 * @param capacity the maximum capacity of each warehouse, in items
+	 * @param initialStock initial stock level, in items
+	 * @param initialCash initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem how much we get from selling an item, in dollars
+	 * @param deliveryCharge extra cost associated with buying items, in dollars
+	 * @param jobDuration the duration of the job, in days
+	 * @throws WarehouseException for any parameter <code>WarehouseLedger</code>
+	 * or <code>WarehouseTransactions</code> would reject, or if the initial
+	 * stock level exceeds the capacity or the number of lanes is negative
+	 */
+	public BatchKernel(
+			int lanes,
+			int capacity,
+			int initialStock,
+			int initialCash,
+			int wholesaleCostPerItem,
+			int retailPricePerItem,
+			int deliveryCharge,
+			int jobDuration)
+	throws WarehouseException {
+		// Sanity checks on parameters (as for the ledger and transactions)
+		if (lanes < 0) {
+			throw new WarehouseException("Number of warehouses may not be negative");
+		};
+		if (capacity < 0) {
+			throw new WarehouseException("Warehouse capacity may not be negative");
+		};
+		if (jobDuration <= 0) {
+			throw new WarehouseException("Job duration must be positive");
+		};
+		if (initialStock < 0) {
+			throw new WarehouseException("Initial stock level cannot be negative");
+		};
+		if (initialStock > capacity) {
+			throw new WarehouseException("Initial stock level may not exceed capacity");
+		};
+		if (wholesaleCostPerItem < 0) {
+			throw new WarehouseException("Wholesale cost cannot be negative");
+		};
+		if (deliveryCharge < 0) {
+			throw new WarehouseException("Delivery charge cannot be negative");
+		};
+		if (wholesaleCostPerItem > retailPricePerItem) {
+			throw new WarehouseException("Wholesale cost may not exceed retail price");
+		};
+		this.capacity = capacity;
+		wholesaleCost = wholesaleCostPerItem;
+		retailPrice = retailPricePerItem;
+		deliveryCost = deliveryCharge;
+		duration = jobDuration;
+		stock = new int[lanes];
+		cash = new int[lanes];
+		day = new int[lanes];
+		outcome = new int[lanes];
+		Arrays.fill(stock, initialStock);
+		Arrays.fill(cash, initialCash);
+		Arrays.fill(day, 1);
+		Arrays.fill(outcome, TRADING);
+		trading = lanes;
+	}
+
+	/**
+	 * The fastest kernel available for the given parameters (see above),
+	 * which behaves exactly like the scalar one.
+	 *
+	 * @param lanes the number of warehouses
+	 * @param capacity the maximum capacity of each warehouse, in items
+	 * @param initialStock initial stock level, in items
+	 * @param initialCash initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem how much we get from selling an item, in dollars
+	 * @param deliveryCharge extra cost associated with buying items, in dollars
+	 * @param jobDuration the duration of the job, in days
+	 * @return the kernel
+	 * @throws WarehouseException as for the constructor
+	 */
+	public static BatchKernel create(
+			int lanes,
+			int capacity,
+			int initialStock,
+			int initialCash,
+			int wholesaleCostPerItem,
+			int retailPricePerItem,
+			int deliveryCharge,
+			int jobDuration)
+	throws WarehouseException {
+		try {
+			return (BatchKernel) Class.forName(VECTOR_KERNEL)
+				.getConstructor(int.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class)
+				.newInstance(lanes, capacity, initialStock, initialCash,
+						wholesaleCostPerItem, retailPricePerItem, deliveryCharge, jobDuration);
+		} catch (InvocationTargetException exception) {
+			if (exception.getCause() instanceof WarehouseException) {
+				throw (WarehouseException) exception.getCause();
+			};
+			// Otherwise the vector kernel couldn't start, so do without it
+		} catch (ReflectiveOperationException | LinkageError exception) {
+			// Not compiled, or the vector module wasn't added
+		}
+		return new BatchKernel(lanes, capacity, initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge, jobDuration);
+	}
+
+	/**
+	 * Trade one day in every lane still trading.
+	 *
+	 * @param orders the number of items ordered in each lane today
+	 * @param restockLevels the stock level each lane restocks up to before
+	 * selling, or <code>RestockPolicy.NO_RESTOCK</code>
+	 * @return the number of lanes still trading
+	 * @throws WarehouseException if an order is negative, or a restock level
+	 * is greater than the capacity or less than <code>NO_RESTOCK</code>,
+	 * in which case no lane has traded
+	 */
+	public int trade(int[] orders, int[] restockLevels) throws WarehouseException {
+		// Sanity checks on parameters
+		if (orders.length < lanes() || restockLevels.length < lanes()) {
+			throw new IllegalArgumentException("An order and restock level are needed for every lane");
+		};
+		for (int lane = 0; lane < lanes(); lane++) {
+			if (orders[lane] < 0) {
+				throw TradeStatus.NEGATIVE_ORDER.exception();
+			};
+			if (restockLevels[lane] < RestockPolicy.NO_RESTOCK || restockLevels[lane] > capacity) {
+				throw TradeStatus.BAD_RESTOCK_LEVEL.exception();
+			};
+		};
+		trading = advance(orders, restockLevels);
+		return trading;
+	}
+
+	/**
+	 * Ask the given policy what each lane still trading should restock to
+	 * this morning (lanes no longer trading are left alone).
+	 *
+	 * @param policy the restocking policy for all lanes
+	 * @param restockLevels where to put each lane's decision
+	 */
+	public void decide(RestockPolicy policy, int[] restockLevels) {
+		for (int lane = 0; lane < lanes(); lane++) {
+			if (outcome[lane] == TRADING) {
+				restockLevels[lane] = policy.restockLevel(day[lane], stock[lane], cash[lane]);
+			};
+		};
+	}
+
+	/**
+	 * Trades one (already checked) day in every lane still trading; this
+	 * is what a faster kernel replaces.
+	 *
+	 * @param orders the number of items ordered in each lane today
+	 * @param restockLevels the stock level each lane restocks up to, or
+	 * <code>NO_RESTOCK</code>
+	 * @return the number of lanes still trading
+	 */
+	protected int advance(int[] orders, int[] restockLevels) {
+		return advance(0, orders, restockLevels);
+	}
+
+	/*
+	 * Trade a day in each lane from the given one onwards, one at a time,
+	 * returning the number still trading among them
+	 */
+	final int advance(int from, int[] orders, int[] restockLevels) {
+		int stillTrading = 0;
+		for (int lane = from; lane < lanes(); lane++) {
+			if (outcome[lane] != TRADING) {
+				continue;
+			};
+			int items = stock[lane];
+			int dollars = cash[lane];
+			if (restockLevels[lane] != RestockPolicy.NO_RESTOCK) {
+				// The delivery is paid for even if there's nothing to buy
+				int required = Math.max(restockLevels[lane] - items, 0);
+				items += required;
+				dollars -= (required * wholesaleCost) + deliveryCost;
+			};
+			int sold = Math.min(orders[lane], items);
+			items -= sold;
+			dollars += sold * retailPrice;
+			stock[lane] = items;
+			cash[lane] = dollars;
+			day[lane]++;
+			if (dollars < 0) {
+				outcome[lane] = BANKRUPT;
+			} else if (sold < orders[lane]) {
+				outcome[lane] = UNFULFILLED;
+			} else if (day[lane] > duration) {
+				outcome[lane] = COMPLETED;
+			} else {
+				stillTrading++;
+			};
+		};
+		return stillTrading;
+	}
+
+	/**
+	 * @return the number of warehouses
+	 */
+	public int lanes() {
+		return stock.length;
+	}
+
+	/**
+	 * @return the number of lanes still trading
+	 */
+	public int trading() {
+		return trading;
+	}
+
+	/**
+	 * @param lane the warehouse of interest
+	 * @return its current stock level, in items
+	 */
+	public int stock(int lane) {
+		return stock[lane];
+	}
+
+	/**
+	 * @param lane the warehouse of interest
+	 * @return its current cash reserve, in dollars
+	 */
+	public int cash(int lane) {
+		return cash[lane];
+	}
+
+	/**
+	 * @param lane the warehouse of interest
+	 * @return its current day (one after the last day it traded)
+	 */
+	public int day(int lane) {
+		return day[lane];
+	}
+
+	/**
+	 * @param lane the warehouse of interest
+	 * @return <code>TRADING</code>, <code>BANKRUPT</code>,
+	 * <code>UNFULFILLED</code> or <code>COMPLETED</code>
+	 */
+	public int outcome(int lane) {
+		return outcome[lane];
+	}
+
+	public String toString() {
+		return getClass().getSimpleName() + ": " + trading + " of " + lanes() + " warehouses trading";
+	}
+
+}
@@ -0,0 +1,211 @@
+package answer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which many threads may buy and sell through at once,
+ * without any locks.  Each day's stock level and cash reserve are packed
+ * into a single 64-bit word, so a purchase or sale updates both with one
+ * compare-and-set and can never lose another thread's update or sell
+ * stock that another thread has already sold.
+ *
+ * Turning the page first "seals" today's word (using its otherwise
+ * unused top bit), after which any purchase or sale still in flight fails
+ * its compare-and-set and is retried on the new day.  Every transaction
+ * therefore lands wholly on one day or the next, and the sealed word is
+ * that day's final record.  Threads only ever wait for each other while a
+ * page is being turned, which takes a handful of instructions.
+ *
+ * The stock level must stay within the range of a non-negative
+ * <code>int</code>, as it does for the other ledgers.
+ *
+ * Unlike the other ledgers, this one is not <code>transactional</code>:
+ * rolling back one thread's transaction would also undo every other
+ * thread's purchases and sales made meanwhile.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class ConcurrentLedger extends AbstractLedger {
+
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK_DAYS = 1 << CHUNK_BITS;
+	private static final long SEALED = 1L << 63;
+	private static final long CASH_BITS = 0xFFFFFFFFL;
+
+	private volatile int today = 1; // day is initially 1
+	private volatile AtomicLongArray[] chunks; // the days' words, in chunks
+
+	/**
+	 * Construct a warehouse's ledger with the supplied initial
+	 * stock level and cash reserve.  By default, the initial
+	 * day is number 1.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price (but we may trade while insolvent, so no exception
+	 * is thrown for a negative initial cash reserve!)
+	 */
+	public ConcurrentLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		AtomicLongArray[] initial = new AtomicLongArray[16];
+		initial[0] = new AtomicLongArray(CHUNK_DAYS);
+		initial[0].set(0, pack(initialStock, initialCash));
+		chunks = initial;
+	}
+
+	public void nextDay() {
+		while (true) {
+			int day = today;
+			AtomicLongArray chunk = chunks[(day - 1) >>> CHUNK_BITS];
+			int slot = (day - 1) & (CHUNK_DAYS - 1);
+			long word = chunk.get(slot);
+			if ((word & SEALED) != 0) {
+				Thread.onSpinWait(); // another thread is turning the page
+			} else if (chunk.compareAndSet(slot, word, word | SEALED)) {
+				// Today is now final, so carry its balances over to a new page
+				AtomicLongArray next = chunkFor(day + 1);
+				next.set(day & (CHUNK_DAYS - 1), word);
+				today = day + 1;
+				return;
+			};
+		}
+	}
+
+	protected int sell(int requested) {
+		while (true) {
+			int day = today;
+			AtomicLongArray chunk = chunks[(day - 1) >>> CHUNK_BITS];
+			int slot = (day - 1) & (CHUNK_DAYS - 1);
+			long word = chunk.get(slot);
+			if ((word & SEALED) != 0) {
+				Thread.onSpinWait(); // wait for the new page
+				continue;
+			};
+			// Sell however many we're asked for, or all that we have,
+			// whichever is smaller
+			int stock = stock(word);
+			int sold = Math.min(requested, stock);
+			if (chunk.compareAndSet(slot, word, pack(stock - sold, cash(word) + (sold * retailPrice)))) {
+				return sold;
+			};
+		}
+	}
+
+	protected void buy(int required) {
+		while (true) {
+			int day = today;
+			AtomicLongArray chunk = chunks[(day - 1) >>> CHUNK_BITS];
+			int slot = (day - 1) & (CHUNK_DAYS - 1);
+			long word = chunk.get(slot);
+			if ((word & SEALED) != 0) {
+				Thread.onSpinWait(); // wait for the new page
+				continue;
+			};
+			long updated = pack(stock(word) + required,
+					cash(word) - (required * wholesaleCost) - deliveryCost);
+			if (chunk.compareAndSet(slot, word, updated)) {
+				return;
+			};
+		}
+	}
+
+	/**
+	 * @return false, since the ledger is shared between threads
+	 */
+	public boolean transactional() {
+		return false;
+	}
+
+	/**
+	 * Transactions aren't supported.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	public void begin() {
+		throw new UnsupportedOperationException("A ConcurrentLedger is not transactional");
+	}
+
+	protected void restore(int day, int stock, int cash) {
+		// Unreachable, as no transaction can begin
+		throw new UnsupportedOperationException("A ConcurrentLedger is not transactional");
+	}
+
+	protected int today() {
+		return today;
+	}
+
+	protected int stockOn(int day) {
+		return stock(word(day));
+	}
+
+	protected int cashOn(int day) {
+		return cash(word(day));
+	}
+
+	public String toString() {
+		// Read today's balances together, so that they are consistent
+		int day = today;
+		long word = word(day);
+		return "Day " + day + ": " +
+		"Cash reserve = $" + cash(word) + "; " +
+		"Items in stock = " + stock(word) + "\n";
+	}
+
+	/*
+	 * The word for the given day (sealed or not)
+	 */
+	private long word(int day) {
+		return chunks[(day - 1) >>> CHUNK_BITS].get((day - 1) & (CHUNK_DAYS - 1));
+	}
+
+	/*
+	 * Find the chunk holding the given day, creating it (and growing the
+	 * directory) if necessary.  Only the thread turning the page calls this,
+	 * and it publishes any changes when it updates the current day.
+	 */
+	private AtomicLongArray chunkFor(int day) {
+		int index = (day - 1) >>> CHUNK_BITS;
+		AtomicLongArray[] directory = chunks;
+		if (index == directory.length) {
+			directory = Arrays.copyOf(directory, directory.length * 2);
+		};
+		if (directory[index] == null) {
+			directory[index] = new AtomicLongArray(CHUNK_DAYS);
+			chunks = directory;
+		};
+		return directory[index];
+	}
+
+	/*
+	 * Packing and unpacking of a day's word: the top bit says whether the
+	 * day is sealed, the next 31 bits hold the stock level and the bottom
+	 * 32 bits hold the cash reserve
+	 */
+	private static long pack(int stock, int cash) {
+		return ((long) stock << 32) | (cash & CASH_BITS);
+	}
+
+	private static int stock(long word) {
+		return (int) ((word & ~SEALED) >>> 32);
+	}
+
+	private static int cash(long word) {
+		return (int) word;
+	}
+
+}
@@ -0,0 +1,25 @@
+package answer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A rule for drawing each day's sales order at random.  Distributions
+ * are consulted once per simulated day, so they draw their orders
+ * without creating any objects, and they keep no state of their own, so
+ * one distribution may be shared by any number of simulations.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public interface DemandDistribution {
+
+	/**
+	 * Draw today's order.
+	 * 
+	 * @param random the source of randomness to draw from
+	 * @param day the current day (where days are counted starting at 1)
+	 * @return the number of items ordered (never negative)
+	 */
+	public int sample(RandomGenerator random, int day);
+
+}
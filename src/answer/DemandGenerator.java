@@ -0,0 +1,113 @@
+package answer;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A reproducible stream of daily sales orders, drawn from a
+ * <code>DemandDistribution</code>.  Each generator belongs to one
+ * simulation (they are not thread-safe, so that drawing an order never
+ * waits for a lock).
+ *
+ * Generators are normally backed by a <code>SplittableRandom</code>, so
+ * that parallel simulations can each be given a stream of their own,
+ * all determined by one master seed:
+ *
+ * <pre>
+ * DemandGenerator master = new DemandGenerator(seed, new PoissonDemand(7.5));
+ * DemandGenerator forTask1 = master.split();
+ * DemandGenerator forTask2 = master.split();
+ * </pre>
+ *
+ * The <code>legacy</code> generators instead draw uniform orders from a
+ * <code>java.util.Random</code>, exactly as the GUI always has, so that a
+ * given seed still produces the same orders.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class DemandGenerator {
+
+	private final RandomGenerator random;
+	private final DemandDistribution distribution;
+	private int day = 1; // the day of the next order
+
+	/**
+	 * A generator of orders from the given distribution, backed by a
+	 * <code>SplittableRandom</code> with the given seed.
+	 *
+	 * @param seed the random number seed
+	 * @param distribution how orders are distributed
+	 */
+	public DemandGenerator(long seed, DemandDistribution distribution) {
+		this(new SplittableRandom(seed), distribution);
+	}
+
+	private DemandGenerator(RandomGenerator random, DemandDistribution distribution) {
+		this.random = random;
+		this.distribution = distribution;
+	}
+
+	/**
+	 * A generator of exactly the orders the GUI draws for the given seed,
+	 * i.e., those of <code>new Random(seed).nextInt(maxOrder)</code>.
+	 *
+	 * @param seed the random number seed
+	 * @param maxOrder one more than the largest possible order, in items
+	 * @return the generator
+	 */
+	public static DemandGenerator legacy(long seed, int maxOrder) {
+		return new DemandGenerator(new Random(seed), new UniformDemand(maxOrder));
+	}
+
+	/**
+	 * Draw the next day's order.
+	 *
+	 * @return the number of items ordered
+	 */
+	public int nextOrder() {
+		return distribution.sample(random, day++);
+	}
+
+	/**
+	 * Draw the orders for the next few days.
+	 *
+	 * @param orders where to put the orders (one per day)
+	 */
+	public void nextOrders(int[] orders) {
+		for (int index = 0; index < orders.length; index++) {
+			orders[index] = distribution.sample(random, day++);
+		};
+	}
+
+	/**
+	 * @return the day whose order will be drawn next
+	 */
+	public int day() {
+		return day;
+	}
+
+	/**
+	 * Returns a new generator of orders from the same distribution,
+	 * starting again at day 1, whose stream is independent of this one's
+	 * (and determined by this generator's seed and how many times it has
+	 * been used).  This generator's own stream moves on.
+	 *
+	 * NB: A legacy generator splits by seeding a new <code>java.util.Random</code>
+	 * from its own, which is reproducible but not guaranteed independent.
+	 *
+	 * @return the new generator
+	 */
+	public DemandGenerator split() {
+		if (random instanceof SplittableRandom) {
+			return new DemandGenerator(((SplittableRandom) random).split(), distribution);
+		};
+		return new DemandGenerator(new Random(random.nextLong()), distribution);
+	}
+
+	public String toString() {
+		return distribution + ", day " + day;
+	}
+
+}
@@ -0,0 +1,321 @@
+package answer;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which can also answer questions about whole periods
+ * of its history (the lowest cash reserve, the peak stock level, the first
+ * day we went into debt, and so on) without looking at every day in turn.
+ *
+ * Each day's closing balances are added to an index when the page is
+ * turned, at amortized constant cost, and the lowest, highest and total
+ * balances and the first day below a threshold then take logarithmic time.
+ * Counting the days below a threshold (daysStockBelow) takes time in
+ * proportion to how often the stock crosses the threshold in the period,
+ * so it is linear in the period's length at worst.  The day in progress is
+ * always taken from the ledger itself, so it may be included in a query even
+ * though it can still change.
+ * Any ledger may be indexed, whatever its storage engine, and supports
+ * transactions if the indexed ledger does.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class IndexedLedger implements TransactionalLedger {
+
+	private final Ledger theLedger;
+	private final AggregateIndex stockIndex = new AggregateIndex(); // closed days only
+	private final AggregateIndex cashIndex = new AggregateIndex();
+	private int today;
+
+	/**
+	 * Index an existing ledger, including any history it already has.
+	 * The ledger should not be changed except through this object
+	 * from now on.
+	 *
+	 * @param ledger - the ledger to index
+	 * @throws WarehouseException - if the ledger's history cannot be read
+	 */
+	public IndexedLedger(Ledger ledger) throws WarehouseException {
+		theLedger = ledger;
+		today = ledger.currentDay();
+		for (int day = 1; day < today; day++) {
+			stockIndex.append(ledger.inStock(day));
+			cashIndex.append(ledger.cashAvailable(day));
+		};
+	}
+
+	public void nextDay() {
+		// Today's closing balances are now final, so index them
+		stockIndex.append(theLedger.inStock());
+		cashIndex.append(theLedger.cashAvailable());
+		theLedger.nextDay();
+		today++;
+	}
+
+	public boolean transactional() {
+		return TransactionalLedger.supports(theLedger);
+	}
+
+	public void begin() {
+		transactions().begin();
+	}
+
+	public void commit() {
+		transactions().commit();
+	}
+
+	public void rollback() {
+		transactions().rollback();
+		// Forget the days which were closed in the transaction
+		today = theLedger.currentDay();
+		stockIndex.truncate(today - 1);
+		cashIndex.truncate(today - 1);
+	}
+
+	public boolean inTransaction() {
+		return theLedger instanceof TransactionalLedger && ((TransactionalLedger) theLedger).inTransaction();
+	}
+
+	public void buyItems(Integer required) throws WarehouseException {
+		theLedger.buyItems(required);
+	}
+
+	public boolean sellItems(Integer requested) throws WarehouseException {
+		return theLedger.sellItems(requested);
+	}
+
+	public Integer currentDay() {
+		return theLedger.currentDay();
+	}
+
+	public Integer cashAvailable() {
+		return theLedger.cashAvailable();
+	}
+
+	public Integer cashAvailable(Integer day) throws WarehouseException {
+		return theLedger.cashAvailable(day);
+	}
+
+	public Integer inStock() {
+		return theLedger.inStock();
+	}
+
+	public Integer inStock(Integer day) throws WarehouseException {
+		return theLedger.inStock(day);
+	}
+
+	public String toString() {
+		return theLedger.toString();
+	}
+
+	/**
+	 * Returns the lowest cash reserve at the end of any day in the given
+	 * period (counting today's current reserve if today is included).
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the lowest cash reserve, in dollars
+	 * @throws WarehouseException if the period does not lie between day 1
+	 * and today, or ends before it begins
+	 */
+	public int minCash(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return min(cashIndex, theLedger.cashAvailable(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the highest cash reserve at the end of any day in the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the highest cash reserve, in dollars
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public int maxCash(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return max(cashIndex, theLedger.cashAvailable(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the total of the daily cash reserves over the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the total of the cash reserves, in dollar-days
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public long totalCash(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return sum(cashIndex, theLedger.cashAvailable(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the average daily cash reserve over the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the average cash reserve, in dollars
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public double averageCash(Integer fromDay, Integer toDay) throws WarehouseException {
+		return (double) totalCash(fromDay, toDay) / (toDay - fromDay + 1);
+	}
+
+	/**
+	 * Returns the lowest stock level at the end of any day in the given
+	 * period (counting today's current stock if today is included).
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the lowest number of items in stock
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public int minStock(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return min(stockIndex, theLedger.inStock(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the highest stock level at the end of any day in the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the highest number of items in stock
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public int maxStock(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return max(stockIndex, theLedger.inStock(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the total of the daily stock levels over the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the total of the stock levels, in item-days
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public long totalStock(Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		return sum(stockIndex, theLedger.inStock(), fromDay, toDay);
+	}
+
+	/**
+	 * Returns the average daily stock level over the given period.
+	 *
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the average number of items in stock
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public double averageStock(Integer fromDay, Integer toDay) throws WarehouseException {
+		return (double) totalStock(fromDay, toDay) / (toDay - fromDay + 1);
+	}
+
+	/**
+	 * Returns the first day on which the cash reserve went negative.
+	 *
+	 * @return the first day on which we were insolvent, or 0 if we
+	 * never have been
+	 */
+	public int firstDayInDebt() {
+		return firstDayBelow(cashIndex, theLedger.cashAvailable(), 0, 1);
+	}
+
+	/**
+	 * Returns the first day, on or after the given day, on which the stock
+	 * level ended below the given threshold.
+	 *
+	 * @param threshold the stock level of interest
+	 * @param fromDay the first day to consider
+	 * @return the first such day, or 0 if there has been none
+	 * @throws WarehouseException if the given day is less than 1 or
+	 * greater than the current day
+	 */
+	public int firstDayStockBelow(Integer threshold, Integer fromDay) throws WarehouseException {
+		checkPeriod(fromDay, fromDay);
+		return firstDayBelow(stockIndex, theLedger.inStock(), threshold, fromDay);
+	}
+
+	/**
+	 * Returns the number of days in the given period on which the stock
+	 * level ended below the given threshold.  Unlike the other queries this
+	 * may take time linear in the length of the period, if the stock level
+	 * keeps crossing the threshold.
+	 *
+	 * @param threshold the stock level of interest
+	 * @param fromDay the first day of the period
+	 * @param toDay the last day of the period (inclusive)
+	 * @return the number of such days
+	 * @throws WarehouseException if the period is invalid
+	 */
+	public int daysStockBelow(Integer threshold, Integer fromDay, Integer toDay) throws WarehouseException {
+		checkPeriod(fromDay, toDay);
+		int days = 0;
+		if (fromDay < today) {
+			days += stockIndex.countBelow(threshold, fromDay - 1, Math.min(toDay, today - 1) - 1);
+		};
+		if (toDay == today && theLedger.inStock() < threshold) {
+			days++;
+		};
+		return days;
+	}
+
+	/*
+	 * Combine the indexed part of a period with today, if it's included
+	 */
+	private int min(AggregateIndex index, int todays, int fromDay, int toDay) {
+		int result = Integer.MAX_VALUE;
+		if (fromDay < today) {
+			result = index.min(fromDay - 1, Math.min(toDay, today - 1) - 1);
+		};
+		return toDay == today ? Math.min(result, todays) : result;
+	}
+
+	private int max(AggregateIndex index, int todays, int fromDay, int toDay) {
+		int result = Integer.MIN_VALUE;
+		if (fromDay < today) {
+			result = index.max(fromDay - 1, Math.min(toDay, today - 1) - 1);
+		};
+		return toDay == today ? Math.max(result, todays) : result;
+	}
+
+	private long sum(AggregateIndex index, int todays, int fromDay, int toDay) {
+		long result = 0;
+		if (fromDay < today) {
+			result = index.sum(fromDay - 1, Math.min(toDay, today - 1) - 1);
+		};
+		return toDay == today ? result + todays : result;
+	}
+
+	private int firstDayBelow(AggregateIndex index, int todays, int threshold, int fromDay) {
+		int found = index.firstBelow(threshold, fromDay - 1);
+		if (found >= 0) {
+			return found + 1;
+		};
+		return todays < threshold ? today : 0;
+	}
+
+	/*
+	 * The decorated ledger, if it can begin transactions
+	 */
+	private TransactionalLedger transactions() {
+		if (!TransactionalLedger.supports(theLedger)) {
+			throw new UnsupportedOperationException("The decorated ledger is not transactional");
+		};
+		return (TransactionalLedger) theLedger;
+	}
+
+	/*
+	 * Reject periods which don't lie within the ledger's history
+	 */
+	private void checkPeriod(Integer fromDay, Integer toDay) throws WarehouseException {
+		if (fromDay <= 0 || toDay > today || fromDay > toDay) {
+			throw new WarehouseException("Attempt to lookup nonexistent period in ledger");
+		};
+	}
+
+}
@@ -0,0 +1,422 @@
+package answer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which writes every change to an append-only journal
+ * file before reporting it done, so that the ledger can be rebuilt with
+ * <code>recover</code> if the program dies part-way through a simulation.
+ *
+ * The journal starts with a header recording the ledger's constructor
+ * parameters, followed by one compact record per change: a single byte
+ * for turning the page, or a byte plus a four-byte count for buying or
+ * selling items.  Records are gathered in a buffer and written (and forced
+ * to disk) in groups, as often as the chosen <code>Durability</code> asks.
+ * The ledger itself may use any of the available storage engines.
+ *
+ * If the ledger's storage engine supports transactions, so does the
+ * journal: a transaction is bracketed by single-byte begin and commit
+ * records, rolling back cuts it out of the journal again, and recovery
+ * leaves out any transaction which was never committed.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class JournalledLedger implements TransactionalLedger, Closeable {
+
+	/**
+	 * How often the journal is forced to disk, trading the speed of
+	 * each operation against how much can be lost in a crash.
+	 */
+	public enum Durability {
+		/** Force after every change (nothing acknowledged is ever lost) */
+		EVERY_OPERATION,
+		/** Force whenever the page is turned (at most the current day is lost) */
+		EVERY_DAY,
+		/**
+		 * Force with the first change made once the given period has
+		 * passed since the last force.  The period is only checked when a
+		 * change is made (there's no background flusher, as the ledger
+		 * isn't thread-safe), so changes made just before the ledger falls
+		 * idle stay unforced until the next change, <code>force</code> or
+		 * <code>close</code>.
+		 */
+		PERIODIC
+	};
+
+	private static final int MAGIC = 0x57484A4C; // "WHJL"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 7 * Integer.BYTES;
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	// Record types
+	private static final byte NEXT_DAY = 1;
+	private static final byte BUY = 2;
+	private static final byte SELL = 3;
+	private static final byte BEGIN = 4;
+	private static final byte COMMIT = 5;
+
+	private final Ledger theLedger;
+	private final FileChannel journal;
+	private final ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final Durability durability;
+	private final long periodNanos;
+	private long lastForced = System.nanoTime();
+	private long beganAt = -1; // where the open transaction's begin record is, or -1
+
+	/**
+	 * Construct a new journalled ledger with the supplied initial stock
+	 * level and cash reserve, starting a new journal in the given file
+	 * (and replacing anything the file contained before).
+	 *
+	 * @param file - where to keep the journal
+	 * @param storage - the storage engine for the ledger itself
+	 * @param durability - how often the journal is forced to disk
+	 * @param periodMillis - for <code>PERIODIC</code> durability, the time
+	 * after a force before changes are forced again, in milliseconds
+	 * (otherwise ignored)
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the ledger parameters are invalid (as for
+	 * <code>WarehouseLedger</code>) or the journal cannot be written
+	 */
+	public JournalledLedger(
+			Path file,
+			LedgerStorage storage,
+			Durability durability,
+			long periodMillis,
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		this(storage.newLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge),
+				open(file, true), durability, periodMillis);
+		// Record the constructor's parameters so that the ledger can be rebuilt
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(VERSION)
+			.putInt(initialStock).putInt(initialCash)
+			.putInt(wholesaleCostPerItem).putInt(retailPricePerItem).putInt(deliveryCharge)
+			.flip();
+		try {
+			while (header.hasRemaining()) {
+				journal.write(header);
+			};
+			journal.force(true);
+		} catch (IOException exception) {
+			throw new WarehouseException("Cannot write journal " + file + ": " + exception.getMessage());
+		}
+	}
+
+	/*
+	 * Journal changes to an existing ledger in an already-open file
+	 */
+	private JournalledLedger(Ledger ledger, FileChannel journal,
+			Durability durability, long periodMillis) {
+		theLedger = ledger;
+		this.journal = journal;
+		this.durability = durability;
+		periodNanos = periodMillis * 1000000L;
+	}
+
+	/**
+	 * Rebuild a ledger from the journal in the given file, by replaying
+	 * every change recorded in it, and carry on journalling to the same
+	 * file.  If the last record was only partly written when the program
+	 * died it is discarded, as is any transaction which wasn't committed.
+	 *
+	 * @param file - where the journal was kept
+	 * @param storage - the storage engine for the rebuilt ledger
+	 * @param durability - how often the journal is forced to disk from now on
+	 * @param periodMillis - for <code>PERIODIC</code> durability, the time
+	 * after a force before changes are forced again, in milliseconds
+	 * (otherwise ignored)
+	 * @return the rebuilt ledger, as it was after the last change journalled
+	 * @throws WarehouseException - if the file cannot be read or does not
+	 * contain a warehouse ledger journal
+	 */
+	public static JournalledLedger recover(
+			Path file,
+			LedgerStorage storage,
+			Durability durability,
+			long periodMillis) throws WarehouseException {
+		FileChannel journal = open(file, false);
+		try {
+			// Rebuild the ledger as it was constructed
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+			buffer.limit(0); // nothing read yet
+			if (!fill(journal, buffer, HEADER_BYTES) || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new WarehouseException("Not a warehouse ledger journal: " + file);
+			};
+			Ledger ledger = storage.newLedger(buffer.getInt(), buffer.getInt(),
+					buffer.getInt(), buffer.getInt(), buffer.getInt());
+			// Find where the records worth keeping end, then replay them
+			long position = replay(journal, null, Long.MAX_VALUE);
+			replay(journal, ledger, position);
+			// Carry on from the end of the last good record
+			journal.truncate(position);
+			journal.position(position);
+			return new JournalledLedger(ledger, journal, durability, periodMillis);
+		} catch (IOException exception) {
+			closeQuietly(journal);
+			throw new WarehouseException("Cannot read journal " + file + ": " + exception.getMessage());
+		} catch (WarehouseException exception) {
+			closeQuietly(journal);
+			throw exception;
+		}
+	}
+
+	public void nextDay() {
+		theLedger.nextDay();
+		pending.put(NEXT_DAY);
+		// Within a transaction, the day is forced when it's committed
+		written(durability == Durability.EVERY_OPERATION
+				|| (durability == Durability.EVERY_DAY && beganAt < 0));
+	}
+
+	public boolean transactional() {
+		return TransactionalLedger.supports(theLedger);
+	}
+
+	public void begin() {
+		transactions().begin();
+		beganAt = journalled() + pending.position();
+		pending.put(BEGIN);
+		written(false);
+	}
+
+	public void commit() {
+		transactions().commit();
+		beganAt = -1;
+		pending.put(COMMIT);
+		written(durability != Durability.PERIODIC);
+	}
+
+	public void rollback() {
+		transactions().rollback();
+		// Cut the transaction out of the journal, wherever it has got to
+		long written = journalled();
+		if (beganAt >= written) {
+			pending.position((int) (beganAt - written));
+		} else {
+			pending.clear();
+			try {
+				journal.truncate(beganAt);
+				journal.position(beganAt);
+				journal.force(true);
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		};
+		beganAt = -1;
+	}
+
+	public boolean inTransaction() {
+		return beganAt >= 0;
+	}
+
+	public void buyItems(Integer required) throws WarehouseException {
+		theLedger.buyItems(required);
+		pending.put(BUY).putInt(required);
+		written(durability == Durability.EVERY_OPERATION);
+	}
+
+	public boolean sellItems(Integer requested) throws WarehouseException {
+		boolean filled = theLedger.sellItems(requested);
+		pending.put(SELL).putInt(requested);
+		written(durability == Durability.EVERY_OPERATION);
+		return filled;
+	}
+
+	public Integer currentDay() {
+		return theLedger.currentDay();
+	}
+
+	public Integer cashAvailable() {
+		return theLedger.cashAvailable();
+	}
+
+	public Integer cashAvailable(Integer day) throws WarehouseException {
+		return theLedger.cashAvailable(day);
+	}
+
+	public Integer inStock() {
+		return theLedger.inStock();
+	}
+
+	public Integer inStock(Integer day) throws WarehouseException {
+		return theLedger.inStock(day);
+	}
+
+	public String toString() {
+		return theLedger.toString();
+	}
+
+	/**
+	 * Writes any changes not yet written to the journal and forces them
+	 * to disk, whatever the chosen durability.
+	 */
+	public void force() {
+		flush(true);
+	}
+
+	/**
+	 * Forces all changes to the journal and closes it.  The ledger may
+	 * not be used afterwards.
+	 *
+	 * @throws IOException if the journal cannot be closed
+	 */
+	public void close() throws IOException {
+		if (!journal.isOpen()) {
+			return; // already closed
+		};
+		force();
+		journal.close();
+	}
+
+	/*
+	 * The decorated ledger, if it can begin transactions
+	 */
+	private TransactionalLedger transactions() {
+		if (!TransactionalLedger.supports(theLedger)) {
+			throw new UnsupportedOperationException("The decorated ledger is not transactional");
+		};
+		return (TransactionalLedger) theLedger;
+	}
+
+	/*
+	 * The number of bytes written to the journal so far (not counting
+	 * those still in the buffer)
+	 */
+	private long journalled() {
+		try {
+			return journal.position();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/*
+	 * Read the records after the header, up to the given position, making
+	 * each change to the ledger (if there is one), and return where the
+	 * records worth keeping end: before any torn or garbled record at the
+	 * end of the journal, and before any transaction never committed
+	 */
+	private static long replay(FileChannel journal, Ledger ledger, long limit)
+	throws IOException, WarehouseException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		buffer.limit(0); // nothing read yet
+		journal.position(HEADER_BYTES);
+		long position = HEADER_BYTES;
+		long uncommitted = -1; // where the open transaction began, if any
+		while (position < limit && fill(journal, buffer, 1)) {
+			byte type = buffer.get(buffer.position());
+			int size = (type == BUY || type == SELL) ? 1 + Integer.BYTES : 1;
+			if (type < NEXT_DAY || type > COMMIT || !fill(journal, buffer, size)) {
+				break; // torn or garbled record at the end of the journal
+			};
+			buffer.get();
+			if (type == BEGIN) {
+				uncommitted = position;
+			} else if (type == COMMIT) {
+				uncommitted = -1;
+			} else if (ledger == null) {
+				buffer.position(buffer.position() + size - 1); // just looking
+			} else if (type == NEXT_DAY) {
+				ledger.nextDay();
+			} else if (type == BUY) {
+				ledger.buyItems(buffer.getInt());
+			} else {
+				ledger.sellItems(buffer.getInt());
+			};
+			position += size;
+		};
+		return uncommitted >= 0 ? uncommitted : position;
+	}
+
+	/*
+	 * Decide whether a newly-buffered record needs to go to disk now
+	 */
+	private void written(boolean mustForce) {
+		if (mustForce) {
+			flush(true);
+		} else if (durability == Durability.PERIODIC && System.nanoTime() - lastForced >= periodNanos) {
+			flush(true);
+		} else if (pending.remaining() < 1 + Integer.BYTES) {
+			flush(false); // buffer is full, but no need to force yet
+		};
+	}
+
+	/*
+	 * Write the buffered records to the journal, and optionally force them
+	 * to disk
+	 */
+	private void flush(boolean mustForce) {
+		try {
+			pending.flip();
+			while (pending.hasRemaining()) {
+				journal.write(pending);
+			};
+			pending.clear();
+			if (mustForce) {
+				journal.force(false);
+				lastForced = System.nanoTime();
+			};
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/*
+	 * Make sure at least the given number of bytes are available in the
+	 * buffer, reading more from the journal if necessary
+	 */
+	private static boolean fill(FileChannel journal, ByteBuffer buffer, int needed)
+	throws IOException {
+		if (buffer.remaining() >= needed) {
+			return true;
+		};
+		buffer.compact();
+		while (buffer.position() < needed && journal.read(buffer) >= 0) {
+			// keep reading until we have enough or reach the end of the file
+		};
+		buffer.flip();
+		return buffer.remaining() >= needed;
+	}
+
+	private static FileChannel open(Path file, boolean replace) throws WarehouseException {
+		try {
+			if (replace) {
+				return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+			} else {
+				return FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+			}
+		} catch (IOException exception) {
+			throw new WarehouseException("Cannot open journal " + file + ": " + exception.getMessage());
+		}
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+			// Already reporting a more useful problem
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package answer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A record of how long many operations took, from which percentiles
+ * (such as the 99th) can be read off.  Any number of threads may record
+ * at once without locking.
+ *
+ * Durations are counted in buckets whose width grows with the duration:
+ * each power of two is split into 32 equal buckets, so every percentile is
+ * reported to within about 3% while the whole histogram takes a fixed
+ * 15&nbsp;KiB, however many durations are recorded.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Counts one more operation.
+	 *
+	 * @param nanos how long the operation took, in nanoseconds
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.max(nanos, 0)));
+	}
+
+	/**
+	 * @return the number of operations recorded so far
+	 */
+	public long count() {
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			total += counts.get(bucket);
+		};
+		return total;
+	}
+
+	/**
+	 * Returns the duration within which the given fraction of all
+	 * operations completed.
+	 *
+	 * @param fraction the fraction of interest, e.g., 0.99 for the 99th percentile
+	 * @return the duration, in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long percentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+			total += snapshot[bucket];
+		};
+		long wanted = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += snapshot[bucket];
+			if (seen > 0 && seen >= wanted) {
+				return highest(bucket);
+			};
+		};
+		return 0;
+	}
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts.set(bucket, 0);
+		};
+	}
+
+	public String toString() {
+		return count() + " operations: " +
+		"p50 = " + (percentile(0.50) / 1000) + " us; " +
+		"p99 = " + (percentile(0.99) / 1000) + " us; " +
+		"p99.9 = " + (percentile(0.999) / 1000) + " us; " +
+		"max = " + (percentile(1.0) / 1000) + " us\n";
+	}
+
+	/*
+	 * Small durations get a bucket each; larger ones share a bucket with
+	 * those which have the same leading bits
+	 */
+	private static int bucket(long nanos) {
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent < SUB_BITS) {
+			return (int) nanos;
+		};
+		int shift = exponent - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/*
+	 * The longest duration counted in the given bucket
+	 */
+	private static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		};
+		int shift = (bucket >>> SUB_BITS) - 1;
+		long lowest = ((long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1)))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,502 @@
+package answer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * A ledger's history, saved in a compact binary file so that it can be
+ * kept or sent elsewhere, and read back a block of days at a time so
+ * that histories of any length can be read in constant memory.
+ *
+ * The file starts with a header holding the ledger's pricing (wholesale
+ * cost, retail price and delivery charge) and the number of days
+ * recorded.  The days follow in blocks of up to <code>BLOCK_DAYS</code>,
+ * each holding a column of stock levels followed by a column of cash
+ * reserves.  Each column records only how much each day's value differs
+ * from the day before, as a variable-length integer, so most days take a
+ * byte or two per column, and runs of days on which nothing changed are
+ * recorded as a single count.  A history takes around a twentieth of the
+ * space of the ledger's <code>toString</code> text for every day.
+ *
+ * Histories are written with a <code>LedgerArchive.Writer</code> (or
+ * <code>export</code>, for a whole ledger) and may be converted to CSV
+ * with <code>toCsv</code>.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class LedgerArchive implements Closeable {
+
+	/** The most days in one block of the file */
+	public static final int BLOCK_DAYS = 4096;
+
+	private static final int MAGIC = 0x57484C41; // "WHLA"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 5 * Integer.BYTES + Long.BYTES;
+	private static final int DAYS_OFFSET = HEADER_BYTES - Long.BYTES;
+	private static final int BUFFER_BYTES = 1 << 20;
+	// The largest a block can be: its length and day count, then five
+	// bytes (at most) per day in each column
+	private static final int MAX_BLOCK_BYTES = 2 * Integer.BYTES + 2 * 5 * BLOCK_DAYS;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+	private final byte[] bytes = buffer.array();
+	private final int wholesaleCost; // dollars
+	private final int retailPrice; // dollars
+	private final int deliveryCharge; // dollars
+	private final long days;
+
+	// The block being read, and how far through it we are
+	private final int[] blockStock = new int[BLOCK_DAYS];
+	private final int[] blockCash = new int[BLOCK_DAYS];
+	private int blockDays = 0;
+	private int blockNext = 0;
+	private int lastStock = 0; // as of the end of the previous block
+	private int lastCash = 0;
+	private long daysRead = 0;
+	private int decoded; // the variable-length integer just read
+
+	/**
+	 * Open a saved ledger history for reading from the first day.
+	 *
+	 * @param file the history file
+	 * @throws IOException if the file cannot be opened or read, or is not a
+	 * ledger history
+	 */
+	public LedgerArchive(Path file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer.limit(0); // nothing read yet
+		if (!fill(HEADER_BYTES) || buffer.getInt() != MAGIC) {
+			channel.close();
+			throw new IOException("Not a ledger history: " + file);
+		};
+		if (buffer.getInt() != VERSION) {
+			channel.close();
+			throw new IOException("Unsupported ledger history version: " + file);
+		};
+		wholesaleCost = buffer.getInt();
+		retailPrice = buffer.getInt();
+		deliveryCharge = buffer.getInt();
+		days = buffer.getLong();
+	}
+
+	/**
+	 * @return how much it cost the ledger to buy an item, in dollars
+	 */
+	public int wholesaleCost() {
+		return wholesaleCost;
+	}
+
+	/**
+	 * @return how much the ledger got from selling an item, in dollars
+	 */
+	public int retailPrice() {
+		return retailPrice;
+	}
+
+	/**
+	 * @return the extra cost the ledger paid for each delivery, in dollars
+	 */
+	public int deliveryCharge() {
+		return deliveryCharge;
+	}
+
+	/**
+	 * @return the number of days in the history
+	 */
+	public long days() {
+		return days;
+	}
+
+	/**
+	 * Reads the closing balances of as many of the next days as will fit
+	 * in the given arrays (which must be the same length).
+	 *
+	 * @param stock where to put each day's stock level, in items
+	 * @param cash where to put each day's cash reserve, in dollars
+	 * @return how many days were read, which is less than the arrays' length
+	 * only at the end of the history, or -1 if the history had already ended
+	 * @throws IOException if the file cannot be read or is damaged
+	 */
+	public int read(int[] stock, int[] cash) throws IOException {
+		if (daysRead == days && blockNext == blockDays) {
+			return -1;
+		};
+		int count = 0;
+		while (count < stock.length) {
+			if (blockNext == blockDays) {
+				if (daysRead == days) {
+					break;
+				};
+				readBlock();
+			};
+			int available = Math.min(blockDays - blockNext, stock.length - count);
+			System.arraycopy(blockStock, blockNext, stock, count, available);
+			System.arraycopy(blockCash, blockNext, cash, count, available);
+			blockNext += available;
+			count += available;
+		};
+		return count;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * Decode the next block of days
+	 */
+	private void readBlock() throws IOException {
+		if (!fill(Integer.BYTES)) {
+			throw new IOException("Ledger history ends early: " + file);
+		};
+		int length = buffer.getInt();
+		if (length <= 0 || length > MAX_BLOCK_BYTES || !fill(length)) {
+			throw new IOException("Ledger history damaged or incomplete: " + file);
+		};
+		int start = buffer.position();
+		int end = start + length;
+		// The day count
+		int position = varint(start, end, 0, 0);
+		int count = decoded;
+		if (count <= 0 || count > BLOCK_DAYS || daysRead + count > days) {
+			throw new IOException("Ledger history damaged: " + file);
+		};
+		position = decode(position, end, blockStock, count, lastStock);
+		position = decode(position, end, blockCash, count, lastCash);
+		if (position != end) {
+			throw new IOException("Ledger history damaged: " + file);
+		};
+		buffer.position(position);
+		lastStock = blockStock[count - 1];
+		lastCash = blockCash[count - 1];
+		blockDays = count;
+		blockNext = 0;
+		daysRead += count;
+	}
+
+	/*
+	 * Decode a column of the given number of days, which carries on from
+	 * the given value, and return where the column ends (which must be no
+	 * later than the end of the block)
+	 */
+	private int decode(int position, int end, int[] column, int count, int previous) throws IOException {
+		int day = 0;
+		while (day < count) {
+			if (position >= end) {
+				throw new IOException("Ledger history damaged: " + file);
+			};
+			// A zigzag-encoded difference from the day before, which usually
+			// fits in one byte
+			int zigzag = bytes[position++];
+			if (zigzag > 0) {
+				previous += (zigzag >>> 1) ^ -(zigzag & 1);
+				column[day++] = previous;
+				continue;
+			};
+			if (zigzag < 0) {
+				position = varint(position, end, zigzag & 0x7F, 7);
+				zigzag = decoded;
+				previous += (zigzag >>> 1) ^ -(zigzag & 1);
+				column[day++] = previous;
+				continue;
+			};
+			// No change, for a run of days
+			position = varint(position, end, 0, 0);
+			int run = decoded + 1;
+			if (run <= 0 || run > count - day) {
+				throw new IOException("Ledger history damaged: " + file);
+			};
+			Arrays.fill(column, day, day + run, previous);
+			day += run;
+		};
+		return position;
+	}
+
+	/*
+	 * Read the rest of an unsigned variable-length integer, whose bits below
+	 * the given shift are already known, into decoded, and return where it
+	 * ends (which must be no later than the given end, and no more than five
+	 * bytes in all)
+	 */
+	private int varint(int position, int end, int value, int shift) throws IOException {
+		for (; ; shift += 7) {
+			if (position >= end || shift > 28) {
+				throw new IOException("Ledger history damaged: " + file);
+			};
+			byte next = bytes[position++];
+			value |= (next & 0x7F) << shift;
+			if (next >= 0) {
+				decoded = value;
+				return position;
+			};
+		}
+	}
+
+	/*
+	 * Make sure at least the given number of bytes are in the buffer,
+	 * reading more of the file (and keeping what hasn't been used) if need be
+	 */
+	private boolean fill(int wanted) throws IOException {
+		if (buffer.remaining() >= wanted) {
+			return true;
+		};
+		buffer.compact();
+		while (buffer.position() < wanted && channel.read(buffer) > 0) {
+			// keep reading
+		};
+		buffer.flip();
+		return buffer.remaining() >= wanted;
+	}
+
+	/**
+	 * Writes a ledger history a day at a time, without keeping more than a
+	 * block of it in memory.  The history is only complete once the writer
+	 * is closed.
+	 */
+	public static class Writer implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+		private final byte[] bytes = out.array();
+		private final int[] blockStock = new int[BLOCK_DAYS];
+		private final int[] blockCash = new int[BLOCK_DAYS];
+		private int blockDays = 0;
+		private int lastStock = 0; // as of the end of the previous block
+		private int lastCash = 0;
+		private long days = 0;
+		private boolean closed = false;
+
+		/**
+		 * Start a new history file for a ledger with the given pricing
+		 * (replacing anything the file contained before).
+		 *
+		 * @param file where to write the history
+		 * @param wholesaleCost how much it costs to buy an item, in dollars
+		 * @param retailPrice how much we get from selling an item, in dollars
+		 * @param deliveryCharge extra cost associated with buying items, in dollars
+		 * @throws IOException if the file cannot be written
+		 */
+		public Writer(Path file, int wholesaleCost, int retailPrice, int deliveryCharge) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			out.putInt(MAGIC).putInt(VERSION)
+				.putInt(wholesaleCost).putInt(retailPrice).putInt(deliveryCharge)
+				.putLong(0); // the number of days, filled in on closing
+		}
+
+		/**
+		 * Adds the next day's closing balances to the history.
+		 *
+		 * @param stock the day's stock level, in items
+		 * @param cash the day's cash reserve, in dollars
+		 * @throws IOException if the file cannot be written
+		 */
+		public void append(int stock, int cash) throws IOException {
+			blockStock[blockDays] = stock;
+			blockCash[blockDays] = cash;
+			if (++blockDays == BLOCK_DAYS) {
+				writeBlock();
+			};
+		}
+
+		/**
+		 * @return the number of days added so far
+		 */
+		public long days() {
+			return days + blockDays;
+		}
+
+		/**
+		 * Writes out whatever is left of the history, and records how long
+		 * it is.
+		 *
+		 * @throws IOException if the file cannot be written
+		 */
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			};
+			closed = true;
+			try {
+				if (blockDays > 0) {
+					writeBlock();
+				};
+				flush();
+				out.putLong(days).flip();
+				while (out.hasRemaining()) {
+					channel.write(out, DAYS_OFFSET + out.position());
+				};
+			} finally {
+				channel.close();
+			}
+		}
+
+		/*
+		 * Encode the block of days just finished
+		 */
+		private void writeBlock() throws IOException {
+			if (out.remaining() < MAX_BLOCK_BYTES) {
+				flush();
+			};
+			int start = out.position();
+			int position = varint(start + Integer.BYTES, blockDays);
+			position = encode(position, blockStock, lastStock);
+			position = encode(position, blockCash, lastCash);
+			out.putInt(start, position - start - Integer.BYTES);
+			out.position(position);
+			lastStock = blockStock[blockDays - 1];
+			lastCash = blockCash[blockDays - 1];
+			days += blockDays;
+			blockDays = 0;
+		}
+
+		/*
+		 * Encode a column of the block, carrying on from the given value,
+		 * and return where the column ends
+		 */
+		private int encode(int position, int[] column, int previous) {
+			int day = 0;
+			while (day < blockDays) {
+				int delta = column[day] - previous;
+				if (delta != 0) {
+					position = varint(position, (delta << 1) ^ (delta >> 31));
+					previous = column[day++];
+					continue;
+				};
+				int run = 1;
+				while (day + run < blockDays && column[day + run] == previous) {
+					run++;
+				};
+				position = varint(varint(position, 0), run - 1);
+				day += run;
+			};
+			return position;
+		}
+
+		/*
+		 * Write an unsigned variable-length integer, seven bits per byte
+		 */
+		private int varint(int position, int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			};
+			bytes[position++] = (byte) value;
+			return position;
+		}
+
+		private void flush() throws IOException {
+			out.flip();
+			while (out.hasRemaining()) {
+				channel.write(out);
+			};
+			out.clear();
+		}
+
+	}
+
+	/**
+	 * Save the whole history of a ledger, from day 1 to today.
+	 *
+	 * @param ledger the ledger to save
+	 * @param wholesaleCost the ledger's wholesale cost per item, in dollars
+	 * @param retailPrice the ledger's retail price per item, in dollars
+	 * @param deliveryCharge the ledger's delivery charge, in dollars
+	 * @param file where to write the history (replacing anything there)
+	 * @return the number of days saved
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long export(Ledger ledger, int wholesaleCost, int retailPrice, int deliveryCharge, Path file)
+	throws IOException {
+		try (Writer writer = new Writer(file, wholesaleCost, retailPrice, deliveryCharge)) {
+			if (ledger instanceof AbstractLedger) {
+				// Read the columns directly, without boxing
+				AbstractLedger columns = (AbstractLedger) ledger;
+				int today = columns.today();
+				for (int day = 1; day <= today; day++) {
+					writer.append(columns.stockOn(day), columns.cashOn(day));
+				};
+			} else {
+				int today = ledger.currentDay();
+				for (int day = 1; day <= today; day++) {
+					writer.append(ledger.inStock(day), ledger.cashAvailable(day));
+				};
+			};
+			return writer.days();
+		} catch (WarehouseException exception) {
+			// Every day from 1 to today exists
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	/**
+	 * Save the whole history of one of our own ledgers, from day 1 to today.
+	 *
+	 * @param ledger the ledger to save
+	 * @param file where to write the history (replacing anything there)
+	 * @return the number of days saved
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long export(AbstractLedger ledger, Path file) throws IOException {
+		return export(ledger, ledger.wholesaleCost, ledger.retailPrice, ledger.deliveryCost, file);
+	}
+
+	/**
+	 * Convert a saved history to CSV text, with a header line and then one
+	 * line per day holding the day number, stock level and cash reserve.
+	 *
+	 * @param from the saved history
+	 * @param to where to write the CSV text (replacing anything there)
+	 * @return the number of days converted
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public static long toCsv(Path from, Path to) throws IOException {
+		int[] stock = new int[BLOCK_DAYS];
+		int[] cash = new int[BLOCK_DAYS];
+		long day = 0;
+		try (LedgerArchive archive = new LedgerArchive(from);
+				BufferedWriter csv = Files.newBufferedWriter(to, StandardCharsets.UTF_8)) {
+			csv.write("day,stock,cash\n");
+			int count;
+			while ((count = archive.read(stock, cash)) > 0) {
+				for (int index = 0; index < count; index++) {
+					csv.write(Long.toString(++day));
+					csv.write(',');
+					csv.write(Integer.toString(stock[index]));
+					csv.write(',');
+					csv.write(Integer.toString(cash[index]));
+					csv.write('\n');
+				};
+			};
+		}
+		return day;
+	}
+
+	/**
+	 * Convert a saved history (named on the command line) to CSV text.
+	 *
+	 * @param args the saved history, and the CSV file to write
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		long days = toCsv(Paths.get(args[0]), Paths.get(args[1]));
+		System.out.println("Converted " + days + " days");
+	}
+
+}
@@ -0,0 +1,86 @@
+package answer;
+
+/**
+ * Something which happened to a warehouse's ledger, as published to the
+ * subscribers of a <code>LedgerEventPublisher</code>.  Each event says what
+ * happened, on which day, to how many items, and the balances just after.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public final class LedgerEvent {
+
+	/**
+	 * The kinds of thing which can happen
+	 */
+	public enum Kind {
+
+		/** Items were bought (the number of items may be zero, as the delivery is still paid for) */
+		BOUGHT,
+
+		/** An order was filled in full */
+		SOLD,
+
+		/** An order could only be filled in part (the items are those actually sold) */
+		PARTLY_FILLED,
+
+		/** The page was turned at the end of the day (the day is the one which ended) */
+		DAY_CLOSED,
+
+		/** The day ended with a negative cash reserve */
+		INSOLVENT,
+
+		/** The last day of the job has ended */
+		JOB_DONE
+	}
+
+	private final Kind kind;
+	private final int day;
+	private final int items;
+	private final int stock;
+	private final int cash;
+
+	/**
+	 * Describe something which has just happened.
+	 *
+	 * @param kind what happened
+	 * @param day the day it happened on
+	 * @param items the number of items bought or sold, or zero
+	 * @param stock the stock level afterwards, in items
+	 * @param cash the cash reserve afterwards, in dollars
+	 */
+	public LedgerEvent(Kind kind, int day, int items, int stock, int cash) {
+		this.kind = kind;
+		this.day = day;
+		this.items = items;
+		this.stock = stock;
+		this.cash = cash;
+	}
+
+	public Kind kind() {
+		return kind;
+	}
+
+	public int day() {
+		return day;
+	}
+
+	public int items() {
+		return items;
+	}
+
+	public int stock() {
+		return stock;
+	}
+
+	public int cash() {
+		return cash;
+	}
+
+	public String toString() {
+		return "Day " + day + ": " + kind + (items == 0 ? "" : " " + items + " items") + "; " +
+				"Cash reserve = $" + cash + "; " +
+				"Items in stock = " + stock;
+	}
+
+}
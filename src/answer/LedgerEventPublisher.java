@@ -0,0 +1,144 @@
+package answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes a warehouse's <code>LedgerEvent</code>s to any number of
+ * subscribers (e.g., a GUI, metrics or persistence), following the
+ * reactive streams rules of <code>java.util.concurrent.Flow</code>: each
+ * subscriber is sent events only as fast as it requests them, from a
+ * buffer of its own of bounded size.
+ *
+ * The simulation never waits for a subscriber.  If a subscriber falls so
+ * far behind that its buffer is full, the events it can't take are
+ * dropped (for that subscriber only) and counted.  When nobody is
+ * subscribed, publishing costs a single check.
+ *
+ * Events may also be held back while a ledger transaction is open, and
+ * then sent once it commits or forgotten if it rolls back, so that
+ * subscribers never hear about changes which didn't happen.  Holding is
+ * meant for the thread doing the trading, and isn't thread-safe.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class LedgerEventPublisher implements Flow.Publisher<LedgerEvent>, AutoCloseable {
+
+	private final SubmissionPublisher<LedgerEvent> publisher;
+	private final LongAdder dropped = new LongAdder();
+	private final List<LedgerEvent> held = new ArrayList<LedgerEvent>();
+	private boolean holding = false;
+
+	/**
+	 * A publisher which delivers events on the common fork/join pool,
+	 * with the default buffer size.
+	 */
+	public LedgerEventPublisher() {
+		this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+	}
+
+	/**
+	 * A publisher which delivers events using the given executor.
+	 *
+	 * @param executor what to run the subscribers on
+	 * @param bufferSize the most events held for each subscriber (rounded
+	 * up to a power of two)
+	 */
+	public LedgerEventPublisher(Executor executor, int bufferSize) {
+		publisher = new SubmissionPublisher<LedgerEvent>(executor, bufferSize);
+	}
+
+	public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	/**
+	 * @return true if anyone is subscribed (so that there's no need to
+	 * work out an event's details otherwise)
+	 */
+	public boolean active() {
+		return publisher.hasSubscribers();
+	}
+
+	/**
+	 * Send an event to every subscriber with room for it, without waiting
+	 * (or keep it until <code>release</code>, while holding).
+	 *
+	 * @param kind what happened
+	 * @param day the day it happened on
+	 * @param items the number of items bought or sold, or zero
+	 * @param stock the stock level afterwards, in items
+	 * @param cash the cash reserve afterwards, in dollars
+	 */
+	public void publish(LedgerEvent.Kind kind, int day, int items, int stock, int cash) {
+		if (publisher.hasSubscribers()) {
+			LedgerEvent event = new LedgerEvent(kind, day, items, stock, cash);
+			if (holding) {
+				held.add(event);
+			} else {
+				offer(event);
+			};
+		};
+	}
+
+	/**
+	 * Keep events published from now on until they are released or
+	 * discarded (e.g., while a ledger transaction is open).
+	 */
+	public void hold() {
+		holding = true;
+	}
+
+	/**
+	 * Send every event held since <code>hold</code>, in order, and stop
+	 * holding.
+	 */
+	public void release() {
+		holding = false;
+		for (LedgerEvent event : held) {
+			offer(event);
+		};
+		held.clear();
+	}
+
+	/**
+	 * Forget every event held since <code>hold</code>, and stop holding.
+	 */
+	public void discard() {
+		holding = false;
+		held.clear();
+	}
+
+	/**
+	 * @return the number of events not delivered to some subscriber
+	 * because its buffer was full
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Tell each subscriber that there will be no more events, once it has
+	 * been sent those already published.
+	 */
+	public void close() {
+		publisher.close();
+	}
+
+	/*
+	 * Send the event to every subscriber with room for it, counting the rest
+	 */
+	private void offer(LedgerEvent event) {
+		publisher.offer(event, (subscriber, dropping) -> {
+			dropped.increment();
+			return false; // don't retry
+		});
+	}
+
+}
@@ -0,0 +1,145 @@
+package answer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * The ways in which a warehouse ledger can store its history.  Anything
+ * that would otherwise construct a <code>WarehouseLedger</code> directly
+ * can ask for one of these instead, so that the storage engine can be
+ * chosen without changing the simulation.
+ *
+ * The engine used by the simulator is chosen by the system property
+ * <code>warehouse.ledger</code> (e.g., <code>-Dwarehouse.ledger=primitive</code>),
+ * and defaults to the original list-based ledger.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public enum LedgerStorage {
+
+	/** The original ledger, backed by lists of boxed integers */
+	BOXED {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			return new WarehouseLedger(initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	},
+
+	/** A ledger backed by growable primitive arrays */
+	PRIMITIVE {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			return new PrimitiveLedger(initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	},
+
+	/** A ledger which only records the days on which balances change */
+	SPARSE {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			return new SparseLedger(initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	},
+
+	/** A ledger which can be forked, sharing its history with the fork */
+	PERSISTENT {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			return new PersistentLedger(initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	},
+
+	/** A lock-free ledger which many threads may buy and sell through at once */
+	CONCURRENT {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			return new ConcurrentLedger(initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	},
+
+	/**
+	 * A ledger kept in a memory-mapped file, named by the system property
+	 * <code>warehouse.ledger.file</code> (or a temporary file if none is given)
+	 */
+	MAPPED {
+		public Ledger newLedger(Integer initialStock, Integer initialCash,
+				Integer wholesaleCostPerItem, Integer retailPricePerItem,
+				Integer deliveryCharge) throws WarehouseException {
+			Path file;
+			String name = System.getProperty(FILE_PROPERTY);
+			try {
+				if (name != null) {
+					file = Paths.get(name);
+				} else {
+					file = Files.createTempFile("warehouse", ".ledger");
+					file.toFile().deleteOnExit();
+				};
+			} catch (IOException exception) {
+				throw new WarehouseException("Cannot create ledger file: " + exception.getMessage());
+			}
+			return new MappedLedger(file, initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		}
+	};
+
+	/** The system property used to choose the simulator's storage engine */
+	public static final String PROPERTY = "warehouse.ledger";
+
+	/** The system property naming the file used by the <code>MAPPED</code> engine */
+	public static final String FILE_PROPERTY = "warehouse.ledger.file";
+
+	/**
+	 * Construct a new ledger using this storage engine.  The parameters
+	 * and exceptions are exactly those of the <code>WarehouseLedger</code>
+	 * constructor.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @return a new ledger, opened at day 1
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price
+	 */
+	public abstract Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException;
+
+	/**
+	 * Returns the storage engine named by the <code>warehouse.ledger</code>
+	 * system property, or <code>BOXED</code> if the property is not set.
+	 *
+	 * @return the storage engine chosen for this run
+	 * @throws WarehouseException if the property names no known engine
+	 */
+	public static LedgerStorage selected() throws WarehouseException {
+		String name = System.getProperty(PROPERTY, BOXED.name());
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException exception) {
+			throw new WarehouseException("Unknown ledger storage '" + name + "'");
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package answer;
+
+/**
+ * Look a few days ahead and restock to capacity if the stock on hand
+ * might not cover the largest possible orders over that time, provided
+ * that doing so won't leave us insolvent by the evening.  (If we can't
+ * afford to restock we gamble on small orders instead.)
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class LookaheadPolicy implements RestockPolicy {
+
+	private final int horizon; // days
+	private final int largestOrder; // items
+	private final int capacity; // items
+	private final int wholesaleCost; // dollars
+	private final int deliveryCharge; // dollars
+
+	/**
+	 * @param horizon - how many days' worth of orders the stock should cover
+	 * @param largestOrder - the largest possible daily order, in items
+	 * @param capacity - the warehouse's capacity, in items
+	 * @param wholesaleCost - how much it costs to buy an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 */
+	public LookaheadPolicy(int horizon, int largestOrder, int capacity,
+			int wholesaleCost, int deliveryCharge) {
+		this.horizon = horizon;
+		this.largestOrder = largestOrder;
+		this.capacity = capacity;
+		this.wholesaleCost = wholesaleCost;
+		this.deliveryCharge = deliveryCharge;
+	}
+
+	public int restockLevel(int day, int inStock, int cash) {
+		if ((long) inStock >= (long) horizon * largestOrder) {
+			return NO_RESTOCK; // enough to be going on with
+		};
+		// Today's sales will bring in at least nothing, so only restock
+		// if we can pay for it from what we have now
+		long cost = ((long) (capacity - inStock) * wholesaleCost) + deliveryCharge;
+		return cash - cost >= 0 ? capacity : NO_RESTOCK;
+	}
+
+	public String toString() {
+		return "Restock to " + capacity + " when " + horizon + " days' orders might not be covered";
+	}
+
+}
@@ -0,0 +1,266 @@
+package answer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger whose history lives in a memory-mapped file rather
+ * than on the Java heap.  The file begins with a small header (holding the
+ * pricing parameters and the current day) followed by fixed-size pages,
+ * each of which holds a column of stock levels followed by a column of
+ * cash reserves for a run of consecutive days.  New pages are mapped as
+ * the ledger grows, lookups read straight out of the mapping, and a ledger
+ * can be reopened later with <code>open</code> exactly where it was left.
+ *
+ * Changes reach the file when the operating system writes the mapped pages
+ * back; call <code>force</code> (or <code>close</code>) to make sure that
+ * they have.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class MappedLedger extends AbstractLedger implements Closeable {
+
+	private static final int MAGIC = 0x57484C47; // "WHLG"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4096;
+	private static final int PAGE_BYTES = 1 << 20;
+	private static final int DAYS_PER_PAGE = PAGE_BYTES / (2 * Integer.BYTES);
+	private static final int CASH_OFFSET = PAGE_BYTES / 2; // cash column within a page
+
+	// Header field offsets
+	private static final int MAGIC_AT = 0;
+	private static final int VERSION_AT = 4;
+	private static final int WHOLESALE_AT = 8;
+	private static final int RETAIL_AT = 12;
+	private static final int DELIVERY_AT = 16;
+	private static final int TODAY_AT = 20;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer[] pages = new MappedByteBuffer[4];
+	private int mappedPages = 0;
+	private int today; // cached copy of the header field
+
+	/**
+	 * Construct a new warehouse's ledger in the given file, replacing
+	 * anything the file contained before.  By default, the initial day
+	 * is number 1.
+	 *
+	 * @param file - where to keep the ledger
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, if the wholesale cost is greater than
+	 * the retail price, or if the file cannot be mapped
+	 */
+	public MappedLedger(
+			Path file,
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		FileChannel opened = null;
+		try {
+			opened = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			header = opened.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+		} catch (IOException exception) {
+			closeQuietly(opened);
+			throw new WarehouseException("Cannot map ledger file " + file + ": " + exception.getMessage());
+		}
+		channel = opened;
+		header.putInt(MAGIC_AT, MAGIC);
+		header.putInt(VERSION_AT, VERSION);
+		header.putInt(WHOLESALE_AT, wholesaleCost);
+		header.putInt(RETAIL_AT, retailPrice);
+		header.putInt(DELIVERY_AT, deliveryCost);
+		today = 1;
+		try {
+			page(1).putInt(stockAt(1), initialStock);
+			page(1).putInt(cashAt(1), initialCash);
+		} catch (UncheckedIOException exception) {
+			closeQuietly(channel);
+			throw new WarehouseException("Cannot map ledger file " + file + ": " + exception.getCause().getMessage());
+		}
+		header.putInt(TODAY_AT, today); // written last, so the ledger is complete
+	}
+
+	/*
+	 * Wrap an existing ledger file whose header has already been read
+	 */
+	private MappedLedger(FileChannel channel, MappedByteBuffer header)
+	throws WarehouseException {
+		super(0, header.getInt(WHOLESALE_AT), header.getInt(RETAIL_AT), header.getInt(DELIVERY_AT));
+		this.channel = channel;
+		this.header = header;
+		today = header.getInt(TODAY_AT);
+	}
+
+	/**
+	 * Reopen a ledger previously created in the given file, at the day
+	 * on which it was left.
+	 *
+	 * @param file - where the ledger was kept
+	 * @return the reopened ledger
+	 * @throws WarehouseException - if the file cannot be mapped or does not
+	 * contain a warehouse ledger (including one cut short before today's page)
+	 */
+	public static MappedLedger open(Path file) throws WarehouseException {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (channel.size() < HEADER_BYTES) {
+				throw new WarehouseException("Not a warehouse ledger file: " + file);
+			};
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			if (header.getInt(MAGIC_AT) != MAGIC || header.getInt(VERSION_AT) != VERSION
+					|| header.getInt(TODAY_AT) < 1) {
+				throw new WarehouseException("Not a warehouse ledger file: " + file);
+			};
+			// Every page up to today's must be there, or mapping would quietly
+			// extend the file with an empty history
+			long pages = ((header.getInt(TODAY_AT) - 1) / DAYS_PER_PAGE) + 1;
+			if (channel.size() < HEADER_BYTES + (pages * PAGE_BYTES)) {
+				throw new WarehouseException("Warehouse ledger file is incomplete: " + file);
+			};
+			return new MappedLedger(channel, header);
+		} catch (IOException exception) {
+			closeQuietly(channel);
+			throw new WarehouseException("Cannot map ledger file " + file + ": " + exception.getMessage());
+		} catch (WarehouseException exception) {
+			closeQuietly(channel);
+			throw exception;
+		}
+	}
+
+	public void nextDay() {
+		// Transfer today's balances to next day, mapping a new page if need be
+		int stock = page(today).getInt(stockAt(today));
+		int cash = page(today).getInt(cashAt(today));
+		page(today + 1).putInt(stockAt(today + 1), stock);
+		page(today + 1).putInt(cashAt(today + 1), cash);
+		// Turn the page to the new day
+		today = today + 1;
+		header.putInt(TODAY_AT, today);
+	}
+
+	protected int sell(int requested) {
+		MappedByteBuffer page = page(today);
+		int stock = page.getInt(stockAt(today));
+		// Sell however many we're asked for, or all that we have,
+		// whichever is smaller
+		int sold = Math.min(requested, stock);
+		page.putInt(stockAt(today), stock - sold);
+		page.putInt(cashAt(today), page.getInt(cashAt(today)) + (sold * retailPrice));
+		return sold;
+	}
+
+	protected void buy(int required) {
+		MappedByteBuffer page = page(today);
+		page.putInt(stockAt(today), page.getInt(stockAt(today)) + required);
+		page.putInt(cashAt(today), page.getInt(cashAt(today)) - (required * wholesaleCost) - deliveryCost);
+	}
+
+	protected void restore(int day, int stock, int cash) {
+		page(day).putInt(stockAt(day), stock);
+		page(day).putInt(cashAt(day), cash);
+		today = day;
+		header.putInt(TODAY_AT, today);
+	}
+
+	protected int today() {
+		return today;
+	}
+
+	protected int stockOn(int day) {
+		return page(day).getInt(stockAt(day));
+	}
+
+	protected int cashOn(int day) {
+		return page(day).getInt(cashAt(day));
+	}
+
+	/**
+	 * Makes sure that everything recorded so far has been written to the
+	 * ledger file.
+	 */
+	public void force() {
+		for (int index = 0; index < mappedPages; index++) {
+			pages[index].force();
+		};
+		header.force();
+	}
+
+	/**
+	 * Writes everything recorded so far to the ledger file and closes it.
+	 * The ledger may not be used afterwards.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	/*
+	 * Find (mapping it if necessary) the page holding the given day
+	 */
+	private MappedByteBuffer page(int day) {
+		int index = (day - 1) / DAYS_PER_PAGE;
+		if (index < mappedPages) {
+			return pages[index];
+		};
+		// Map any pages not yet mapped (the file grows as we go)
+		try {
+			while (mappedPages <= index) {
+				if (mappedPages == pages.length) {
+					pages = Arrays.copyOf(pages, pages.length * 2);
+				};
+				long offset = HEADER_BYTES + ((long) mappedPages * PAGE_BYTES);
+				pages[mappedPages] = channel.map(FileChannel.MapMode.READ_WRITE, offset, PAGE_BYTES);
+				mappedPages++;
+			};
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return pages[index];
+	}
+
+	/*
+	 * Byte offsets of a day's stock and cash within its page
+	 */
+	private static int stockAt(int day) {
+		return ((day - 1) % DAYS_PER_PAGE) * Integer.BYTES;
+	}
+
+	private static int cashAt(int day) {
+		return CASH_OFFSET + (((day - 1) % DAYS_PER_PAGE) * Integer.BYTES);
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// Already reporting a more useful problem
+			}
+		};
+	}
+
+}
@@ -0,0 +1,169 @@
+package answer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import question.Ledger;
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which counts everything done to it, and times a
+ * sample of its purchases, sales and page turns, in a set of
+ * <code>WarehouseMetrics</code>.  Any ledger may be metered, whatever its
+ * storage engine, and several ledgers may share the same metrics.  It
+ * supports transactions if the metered ledger does, and closing it closes
+ * the metered ledger (if that can be closed).
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class MeteredLedger implements TransactionalLedger, Closeable {
+
+	private static final int SAMPLE_MASK = WarehouseMetrics.SAMPLE_EVERY - 1;
+
+	private final Ledger theLedger;
+	private final WarehouseMetrics metrics;
+	private int calls = 0; // for choosing which calls to time (races are harmless)
+
+	/**
+	 * Meter an existing ledger.
+	 *
+	 * @param ledger - the ledger to meter
+	 * @param metrics - where to count its operations
+	 */
+	public MeteredLedger(Ledger ledger, WarehouseMetrics metrics) {
+		theLedger = ledger;
+		this.metrics = metrics;
+	}
+
+	public void nextDay() {
+		if ((++calls & SAMPLE_MASK) == 0) {
+			long start = System.nanoTime();
+			theLedger.nextDay();
+			metrics.nextDayLatency.record(System.nanoTime() - start);
+		} else {
+			theLedger.nextDay();
+		};
+		metrics.daysAdvanced.increment();
+	}
+
+	public boolean transactional() {
+		return TransactionalLedger.supports(theLedger);
+	}
+
+	public void begin() {
+		transactions().begin();
+	}
+
+	public void commit() {
+		transactions().commit();
+	}
+
+	public void rollback() {
+		transactions().rollback();
+	}
+
+	public boolean inTransaction() {
+		return theLedger instanceof TransactionalLedger && ((TransactionalLedger) theLedger).inTransaction();
+	}
+
+	public void buyItems(Integer required) throws WarehouseException {
+		try {
+			if ((++calls & SAMPLE_MASK) == 0) {
+				long start = System.nanoTime();
+				theLedger.buyItems(required);
+				metrics.buyLatency.record(System.nanoTime() - start);
+			} else {
+				theLedger.buyItems(required);
+			};
+		} catch (WarehouseException exception) {
+			metrics.exceptions.increment();
+			throw exception;
+		}
+		metrics.buys.increment();
+		if (required > 0) {
+			metrics.restockDeliveries.increment();
+			metrics.itemsBought.add(required);
+		};
+	}
+
+	public boolean sellItems(Integer requested) throws WarehouseException {
+		int before = theLedger.inStock();
+		boolean filled;
+		try {
+			if ((++calls & SAMPLE_MASK) == 0) {
+				long start = System.nanoTime();
+				filled = theLedger.sellItems(requested);
+				metrics.sellLatency.record(System.nanoTime() - start);
+			} else {
+				filled = theLedger.sellItems(requested);
+			};
+		} catch (WarehouseException exception) {
+			metrics.exceptions.increment();
+			throw exception;
+		}
+		metrics.sells.increment();
+		metrics.itemsSold.add(filled ? requested : before);
+		if (!filled) {
+			metrics.partialFills.increment();
+		};
+		return filled;
+	}
+
+	public Integer currentDay() {
+		return theLedger.currentDay();
+	}
+
+	public Integer cashAvailable() {
+		return theLedger.cashAvailable();
+	}
+
+	public Integer cashAvailable(Integer day) throws WarehouseException {
+		try {
+			return theLedger.cashAvailable(day);
+		} catch (WarehouseException exception) {
+			metrics.exceptions.increment();
+			throw exception;
+		}
+	}
+
+	public Integer inStock() {
+		return theLedger.inStock();
+	}
+
+	public Integer inStock(Integer day) throws WarehouseException {
+		try {
+			return theLedger.inStock(day);
+		} catch (WarehouseException exception) {
+			metrics.exceptions.increment();
+			throw exception;
+		}
+	}
+
+	public String toString() {
+		return theLedger.toString();
+	}
+
+	/**
+	 * Closes the metered ledger, if it is <code>Closeable</code> (e.g., a
+	 * mapped or journalled one), so that metering never keeps files open.
+	 *
+	 * @throws IOException if the metered ledger cannot be closed
+	 */
+	public void close() throws IOException {
+		if (theLedger instanceof Closeable) {
+			((Closeable) theLedger).close();
+		};
+	}
+
+	/*
+	 * The decorated ledger, if it can begin transactions
+	 */
+	private TransactionalLedger transactions() {
+		if (!TransactionalLedger.supports(theLedger)) {
+			throw new UnsupportedOperationException("The decorated ledger is not transactional");
+		};
+		return (TransactionalLedger) theLedger;
+	}
+
+}
@@ -0,0 +1,302 @@
+package answer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import question.SimulationComponents;
+import question.WarehouseException;
+
+/**
+ * A headless version of the warehouse simulation, which plays many
+ * independent games with the same parameters as the GUI and reports how
+ * often each one ended in bankruptcy, an unfulfilled order or a job well
+ * done.  Game <em>n</em> uses random number seed <em>n</em>, exactly as if
+ * it had been entered in the GUI, so any game can be replayed by hand.
+ * Games are shared out among all available cores using fork/join.
+ *
+ * Since there is nobody to press the buttons, each morning's decision is
+ * made by a <code>RestockPolicy</code>.  Unless told otherwise, the warehouse
+ * is restocked whenever the items in stock might not cover the largest
+ * possible order.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class MonteCarloSimulation {
+
+	/*
+	 * How many games a single task plays before it stops splitting its work
+	 */
+	private static final int GAMES_PER_TASK = 256;
+
+	// Ways a game can end (checked in the same order as the GUI does)
+	static final int BANKRUPT = 0;
+	static final int UNFULFILLED = 1;
+	static final int COMPLETED = 2;
+
+	private final int capacity; // items
+	private final int initialCash; // dollars
+	private final int maxOrder; // items
+	private final int wholesaleCost; // dollars
+	private final int retailPrice; // dollars
+	private final int deliveryCharge; // dollars
+	private final int duration; // days
+
+	/**
+	 * The results of playing many games.
+	 */
+	public static class Summary {
+
+		private long games;
+		private long bankrupt;
+		private long unfulfilled;
+		private long completed;
+		private long finalCash; // total over all games, in dollars
+
+		/**
+		 * @return the number of games played
+		 */
+		public long games() {
+			return games;
+		}
+
+		/**
+		 * @return the fraction of games which ended in bankruptcy
+		 */
+		public double bankruptcy() {
+			return (double) bankrupt / games;
+		}
+
+		/**
+		 * @return the fraction of games which ended with an unfulfilled order
+		 */
+		public double unfulfilledOrder() {
+			return (double) unfulfilled / games;
+		}
+
+		/**
+		 * @return the fraction of games in which the job was completed
+		 */
+		public double jobCompletion() {
+			return (double) completed / games;
+		}
+
+		/**
+		 * @return the average cash reserve when the games ended, in dollars
+		 */
+		public double averageFinalCash() {
+			return (double) finalCash / games;
+		}
+
+		/*
+		 * Count one more game
+		 */
+		void add(int ending, int cash) {
+			games++;
+			if (ending == BANKRUPT) {
+				bankrupt++;
+			} else if (ending == UNFULFILLED) {
+				unfulfilled++;
+			} else {
+				completed++;
+			};
+			finalCash += cash;
+		}
+
+		/*
+		 * Combine the results of two sets of games
+		 */
+		Summary add(Summary other) {
+			games += other.games;
+			bankrupt += other.bankrupt;
+			unfulfilled += other.unfulfilled;
+			completed += other.completed;
+			finalCash += other.finalCash;
+			return this;
+		}
+
+		public String toString() {
+			return games + " games: " +
+			"P(bankrupt) = " + bankruptcy() + "; " +
+			"P(unfulfilled order) = " + unfulfilledOrder() + "; " +
+			"P(job done) = " + jobCompletion() + "; " +
+			"average final cash = $" + averageFinalCash() + "\n";
+		}
+	}
+
+	/**
+	 * Set up a simulation with the same parameters as the GUI.
+	 *
+	 * @param warehouseCapacity - the maximum capacity of the warehouse, in items
+	 * (the warehouse is initially fully stocked)
+	 * @param cashReserve - initial cash reserve, in dollars
+	 * @param maxDailyOrder - the largest possible daily order, in items
+	 * @param wholesaleCostPerBox - how much it costs to buy an item, in dollars
+	 * @param retailPricePerBox - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @param jobDuration - the duration of the job, in days
+	 * @throws WarehouseException if any of the parameters would be rejected
+	 * by the GUI, the ledger or the transactions
+	 */
+	public MonteCarloSimulation(
+			Integer warehouseCapacity,
+			Integer cashReserve,
+			Integer maxDailyOrder,
+			Integer wholesaleCostPerBox,
+			Integer retailPricePerBox,
+			Integer deliveryCharge,
+			Integer jobDuration)
+	throws WarehouseException {
+		// Sanity checks on the parameters, as made by the GUI
+		if (maxDailyOrder > warehouseCapacity) {
+			throw new WarehouseException("Maximum daily order may not exceed warehouse capacity");
+		};
+		if (maxDailyOrder <= 0) {
+			throw new WarehouseException("Maximum daily order must be positive");
+		};
+		// Let the ledger and transactions check the rest
+		new WarehouseTransactions(warehouseCapacity, jobDuration,
+				new PrimitiveLedger(warehouseCapacity, cashReserve,
+						wholesaleCostPerBox, retailPricePerBox, deliveryCharge));
+		capacity = warehouseCapacity;
+		initialCash = cashReserve;
+		maxOrder = maxDailyOrder;
+		wholesaleCost = wholesaleCostPerBox;
+		retailPrice = retailPricePerBox;
+		this.deliveryCharge = deliveryCharge;
+		duration = jobDuration;
+	}
+
+	/**
+	 * Play the given number of games, using consecutive random number
+	 * seeds, spread across all available cores, and restocking whenever
+	 * the largest possible order might not be covered.
+	 *
+	 * @param firstSeed the random number seed for the first game
+	 * @param games how many games to play
+	 * @return a summary of how the games ended
+	 */
+	public Summary run(long firstSeed, long games) {
+		return run(new ThresholdPolicy(maxOrder - 1, capacity), firstSeed, games);
+	}
+
+	/**
+	 * Play the given number of games, using consecutive random number
+	 * seeds, spread across all available cores, and restocking as the
+	 * given policy decides.
+	 *
+	 * @param policy how to decide whether to restock each morning
+	 * @param firstSeed the random number seed for the first game
+	 * @param games how many games to play
+	 * @return a summary of how the games ended
+	 */
+	public Summary run(RestockPolicy policy, long firstSeed, long games) {
+		return ForkJoinPool.commonPool().invoke(games(policy, firstSeed, games));
+	}
+
+	/*
+	 * A task which plays the given games when invoked, for running alongside
+	 * other tasks in the same pool
+	 */
+	ForkJoinTask<Summary> games(RestockPolicy policy, long firstSeed, long games) {
+		return new Games(policy, firstSeed, games);
+	}
+
+	/*
+	 * A share of the games, which splits itself until it is small enough
+	 * to play directly
+	 */
+	@SuppressWarnings("serial") // We don't care about binary i/o here
+	private class Games extends RecursiveTask<Summary> {
+
+		private final RestockPolicy policy;
+		private final long firstSeed;
+		private final long games;
+
+		Games(RestockPolicy policy, long firstSeed, long games) {
+			this.policy = policy;
+			this.firstSeed = firstSeed;
+			this.games = games;
+		}
+
+		protected Summary compute() {
+			if (games <= GAMES_PER_TASK) {
+				Summary summary = new Summary();
+				for (long seed = firstSeed; seed < firstSeed + games; seed++) {
+					play(policy, seed, summary);
+				};
+				return summary;
+			};
+			long half = games / 2;
+			Games second = new Games(policy, firstSeed + half, games - half);
+			second.fork();
+			Summary first = new Games(policy, firstSeed, half).compute();
+			return first.add(second.join());
+		}
+	}
+
+	/*
+	 * Play one game with the given seed and policy, adding the way it ended
+	 * to the summary
+	 */
+	void play(RestockPolicy policy, long seed, Summary summary) {
+		try {
+			PrimitiveLedger ledger = new PrimitiveLedger(capacity, initialCash,
+					wholesaleCost, retailPrice, deliveryCharge);
+			WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+			DemandGenerator order = DemandGenerator.legacy(seed, maxOrder);
+			while (true) {
+				// Decide what to do this morning, then face today's order
+				int today = ledger.today();
+				int level = policy.restockLevel(today, ledger.stockOn(today), ledger.cashOn(today));
+				if (level == RestockPolicy.NO_RESTOCK) {
+					warehouse.sellStock(order.nextOrder());
+				} else {
+					warehouse.restockToAndSellStock(level, order.nextOrder());
+				};
+				// Check for the end of the game, just as the GUI does
+				if (warehouse.insolvent()) {
+					summary.add(BANKRUPT, ledger.cashOn(ledger.today()));
+					return;
+				} else if (warehouse.orderUnfulfilled()) {
+					summary.add(UNFULFILLED, ledger.cashOn(ledger.today()));
+					return;
+				} else if (warehouse.jobDone()) {
+					summary.add(COMPLETED, ledger.cashOn(ledger.today()));
+					return;
+				};
+			}
+		} catch (WarehouseException exception) {
+			// The parameters were checked on construction, so only the policy
+			// (asking for more than the warehouse can hold) can be at fault
+			throw new IllegalArgumentException(policy + ": " + exception.getMessage(), exception);
+		}
+	}
+
+	/**
+	 * Play a million games with the GUI's default parameters (or as many
+	 * as given on the command line) and print the results.
+	 *
+	 * @param args optionally, the number of games to play
+	 * @throws WarehouseException if the default parameters are invalid
+	 */
+	public static void main(String[] args) throws WarehouseException {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 1000000L;
+		MonteCarloSimulation simulation = new MonteCarloSimulation(
+				SimulationComponents.DefaultWarehouseCapacity,
+				SimulationComponents.DefaultCashReserve,
+				SimulationComponents.DefaultMaxOrder,
+				SimulationComponents.DefaultWholesaleCostPerBox,
+				SimulationComponents.DefaultRetailPricePerBox,
+				SimulationComponents.DefaultDeliveryCharge,
+				SimulationComponents.DefaultJobDuration);
+		long start = System.nanoTime();
+		Summary summary = simulation.run(SimulationComponents.DefaultRandomSeed, games);
+		long elapsed = System.nanoTime() - start;
+		System.out.print(summary);
+		System.out.println("Played in " + (elapsed / 1000000) + " ms on " +
+				ForkJoinPool.commonPool().getParallelism() + " worker threads");
+	}
+
+}
@@ -0,0 +1,71 @@
+package answer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Orders which vary more than Poisson orders with the same average, as
+ * when customers come in bursts, following a negative binomial
+ * distribution.  The smaller the dispersion, the burstier the orders:
+ * their variance is <em>mean</em>&nbsp;+&nbsp;<em>mean</em>&sup2;/<em>dispersion</em>.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class NegativeBinomialDemand implements DemandDistribution {
+
+	private final double mean; // items
+	private final double dispersion;
+
+	/**
+	 * @param mean - the average order, in items
+	 * @param dispersion - the distribution's shape (must be positive)
+	 * @throws IllegalArgumentException if the mean is negative or the
+	 * dispersion is not positive
+	 */
+	public NegativeBinomialDemand(double mean, double dispersion) {
+		if (!(mean >= 0)) {
+			throw new IllegalArgumentException("Mean order may not be negative");
+		};
+		if (!(dispersion > 0)) {
+			throw new IllegalArgumentException("Dispersion must be positive");
+		};
+		this.mean = mean;
+		this.dispersion = dispersion;
+	}
+
+	public int sample(RandomGenerator random, int day) {
+		// A Poisson order whose mean is itself drawn from a gamma distribution
+		return PoissonDemand.sample(random, gamma(random, dispersion) * (mean / dispersion));
+	}
+
+	public String toString() {
+		return "Negative binomial orders averaging " + mean + " (dispersion " + dispersion + ")";
+	}
+
+	/*
+	 * Draw from the gamma distribution with the given shape and unit scale,
+	 * by Marsaglia and Tsang's method
+	 */
+	private static double gamma(RandomGenerator random, double shape) {
+		if (shape < 1) {
+			// Boost the shape above 1, then scale the result back down
+			return gamma(random, shape + 1) * Math.pow(random.nextDouble(), 1 / shape);
+		};
+		double d = shape - 1.0 / 3;
+		double c = 1 / Math.sqrt(9 * d);
+		while (true) {
+			double x = random.nextGaussian();
+			double v = 1 + c * x;
+			if (v <= 0) {
+				continue;
+			};
+			v = v * v * v;
+			double u = random.nextDouble();
+			if (u < 1 - 0.0331 * (x * x) * (x * x)
+					|| Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+				return d * v;
+			};
+		}
+	}
+
+}
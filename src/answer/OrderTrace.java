@@ -0,0 +1,249 @@
+package answer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import question.WarehouseException;
+
+/**
+ * A history of real daily orders, read from a file a block at a time so
+ * that traces of any size can be replayed in constant memory.  Orders are
+ * parsed straight from the file's bytes into the caller's array, without
+ * creating any objects per order.
+ *
+ * Two formats are understood:
+ * <ul>
+ * <li>Text, with one day per line, holding either the order alone or the
+ * day number, a comma and the order (any other leading fields are ignored
+ * too).  The first line may be a header, blank lines are skipped, and
+ * either kind of line ending may be used.</li>
+ * <li>Binary, starting with the magic number and version written by
+ * <code>toBinary</code>, followed by each order as a four-byte big-endian
+ * integer.  This is about three times smaller than text and much quicker
+ * to read.</li>
+ * </ul>
+ * The format is recognised automatically.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class OrderTrace implements Closeable {
+
+	private static final int MAGIC = 0x57484F54; // "WHOT"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final boolean binary;
+	private boolean finished = false;
+
+	// Where the text parser has got to, which may be part-way through a line
+	private long line = 1;
+	private long value = 0; // of the current field
+	private boolean digits = false; // seen in the current field
+	private boolean negative = false;
+	private boolean garbled = false; // the current field isn't a number
+	private boolean blank = true; // nothing but spaces on the line so far
+
+	/**
+	 * Open an order trace, in either format, for reading from the start.
+	 *
+	 * @param file the trace file
+	 * @throws IOException if the file cannot be opened or read
+	 */
+	public OrderTrace(Path file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer.limit(0); // nothing read yet
+		fill();
+		binary = buffer.remaining() >= HEADER_BYTES && buffer.getInt(0) == MAGIC;
+		if (binary) {
+			buffer.getInt();
+			if (buffer.getInt() != VERSION) {
+				channel.close();
+				throw new IOException("Unsupported order trace version: " + file);
+			};
+		};
+	}
+
+	/**
+	 * Reads as many of the next orders as will fit in the given array.
+	 *
+	 * @param orders where to put the orders, each of which is the number of
+	 * items ordered on one day (and may be negative if the trace says so)
+	 * @return how many orders were read, which is less than the array's length
+	 * (and perhaps zero) only at the end of the trace, or -1 if the trace had
+	 * already ended
+	 * @throws IOException if the file cannot be read
+	 * @throws WarehouseException if the trace is garbled, in which case the
+	 * line (for text) or the problem (for binary) is reported
+	 */
+	public int read(int[] orders) throws IOException, WarehouseException {
+		if (finished) {
+			return -1;
+		};
+		int count = binary ? readBinary(orders) : readText(orders);
+		if (count < orders.length) {
+			finished = true;
+		};
+		return count;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * Copy whole four-byte orders out of the buffer
+	 */
+	private int readBinary(int[] orders) throws IOException, WarehouseException {
+		int count = 0;
+		while (count < orders.length) {
+			if (buffer.remaining() < Integer.BYTES && !fill()) {
+				if (buffer.hasRemaining()) {
+					throw new WarehouseException("Order trace ends part-way through an order: " + file);
+				};
+				break;
+			};
+			int available = Math.min(buffer.remaining() / Integer.BYTES, orders.length - count);
+			buffer.asIntBuffer().get(orders, count, available);
+			buffer.position(buffer.position() + available * Integer.BYTES);
+			count += available;
+		};
+		return count;
+	}
+
+	/*
+	 * Parse lines of text a byte at a time, keeping the value of the
+	 * current field, which becomes the order if it is the last on its line
+	 */
+	private int readText(int[] orders) throws IOException, WarehouseException {
+		int count = 0;
+		while (count < orders.length) {
+			if (!buffer.hasRemaining() && !fill()) {
+				// A last line with no line ending still counts
+				if (endOfLine()) {
+					orders[count++] = order();
+				};
+				blank = true;
+				break;
+			};
+			byte next = buffer.get();
+			if (next == '\n') {
+				if (endOfLine()) {
+					orders[count++] = order();
+				};
+				line++;
+				newField();
+				blank = true;
+			} else if (next == '\r' || next == ' ' || next == '\t') {
+				continue;
+			} else if (next == ',') {
+				newField(); // only the last field matters
+				blank = false;
+			} else if (next >= '0' && next <= '9' && !garbled) {
+				value = (value * 10) + (next - '0');
+				digits = true;
+				blank = false;
+				garbled = value > Integer.MAX_VALUE + 1L;
+			} else if (next == '-' && !digits && !negative) {
+				negative = true;
+				blank = false;
+			} else {
+				garbled = true;
+				blank = false;
+			};
+		};
+		return count;
+	}
+
+	private void newField() {
+		value = 0;
+		digits = false;
+		negative = false;
+		garbled = false;
+	}
+
+	/*
+	 * Does the line just ended hold an order?  Only the first line may
+	 * hold anything else, since it may be a header.
+	 */
+	private boolean endOfLine() throws WarehouseException {
+		if (blank) {
+			return false;
+		};
+		if (garbled || !digits) {
+			if (line == 1) {
+				return false;
+			};
+			throw new WarehouseException("Not an order on line " + line + " of " + file);
+		};
+		return true;
+	}
+
+	private int order() throws WarehouseException {
+		long order = negative ? -value : value;
+		if (order > Integer.MAX_VALUE) {
+			throw new WarehouseException("Order too large on line " + line + " of " + file);
+		};
+		return (int) order;
+	}
+
+	/*
+	 * Read more of the file, keeping whatever hasn't been used yet
+	 */
+	private boolean fill() throws IOException {
+		buffer.compact();
+		int read = channel.read(buffer);
+		buffer.flip();
+		return read > 0;
+	}
+
+	/**
+	 * Convert an order trace (usually a text one) to the binary format.
+	 *
+	 * @param from the existing trace
+	 * @param to where to write the binary trace (replacing anything there)
+	 * @return the number of orders converted
+	 * @throws IOException if either file cannot be read or written
+	 * @throws WarehouseException if the existing trace is garbled
+	 */
+	public static long toBinary(Path from, Path to) throws IOException, WarehouseException {
+		long converted = 0;
+		int[] orders = new int[BUFFER_BYTES / Integer.BYTES];
+		ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		try (OrderTrace trace = new OrderTrace(from);
+				FileChannel channel = FileChannel.open(to, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.putInt(MAGIC).putInt(VERSION);
+			int count;
+			while ((count = trace.read(orders)) > 0) {
+				for (int order = 0; order < count; order++) {
+					if (!out.hasRemaining()) {
+						write(channel, out);
+					};
+					out.putInt(orders[order]);
+				};
+				converted += count;
+			};
+			write(channel, out);
+		}
+		return converted;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		};
+		out.clear();
+	}
+
+}
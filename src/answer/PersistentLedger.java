@@ -0,0 +1,188 @@
+package answer;
+
+import java.util.Arrays;
+
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which can be forked in constant time, so that
+ * different futures can be explored from the same starting point (e.g.,
+ * "restock today" vs "don't") without replaying the past.
+ *
+ * Past days are kept in pages of 32 days, filed in a shallow tree of
+ * 32-way nodes, and are never changed once filed.  Forks share the tree,
+ * and each has its own copy of only the most recent page, to which
+ * trading is confined.  When that page fills up it is filed by copying
+ * just the nodes on its path from the root, so a ledger's own memory is
+ * proportional to the days since it was forked, while looking up any
+ * day takes a few array lookups at most.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class PersistentLedger extends AbstractLedger {
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS; // days per page, and children per node
+	private static final int MASK = WIDTH - 1;
+
+	private int today = 1; // day is initially 1
+	private Object[] root; // of filed pages (int[]) or lower nodes (Object[])
+	private int shift; // bits of the day index resolved below the root
+	private int filed; // days in the tree, always a whole number of pages
+	private int[] page; // stock levels then cash reserves, for unfiled days
+
+	/**
+	 * Construct a warehouse's ledger with the supplied initial
+	 * stock level and cash reserve.  By default, the initial
+	 * day is number 1.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price (but we may trade while insolvent, so no exception
+	 * is thrown for a negative initial cash reserve!)
+	 */
+	public PersistentLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		root = new Object[WIDTH];
+		shift = BITS;
+		filed = 0;
+		page = new int[2 * WIDTH];
+		page[0] = initialStock;
+		page[WIDTH] = initialCash;
+	}
+
+	/*
+	 * A fork of the given ledger, sharing all of its filed pages
+	 */
+	private PersistentLedger(PersistentLedger original) {
+		super(original);
+		today = original.today;
+		root = original.root;
+		shift = original.shift;
+		filed = original.filed;
+		page = original.page.clone();
+	}
+
+	/**
+	 * Returns a new ledger with exactly the same history as this one, which
+	 * may then go its own way without affecting this ledger (or vice versa).
+	 * This takes the same small, constant time however long the history.
+	 *
+	 * @return the new ledger
+	 */
+	public PersistentLedger fork() {
+		return new PersistentLedger(this);
+	}
+
+	public void nextDay() {
+		int index = today - filed; // of tomorrow in the current page
+		if (index == WIDTH) {
+			// The page is full, so file it and start another
+			file();
+			int[] next = new int[2 * WIDTH];
+			next[0] = page[WIDTH - 1];
+			next[WIDTH] = page[2 * WIDTH - 1];
+			page = next;
+		} else {
+			// Transfer today's balances to next day
+			page[index] = page[index - 1];
+			page[WIDTH + index] = page[WIDTH + index - 1];
+		};
+		// Turn the page to the new day
+		today = today + 1;
+	}
+
+	protected int sell(int requested) {
+		// Sell however many we're asked for, or all that we have,
+		// whichever is smaller
+		int index = today - 1 - filed;
+		int sold = Math.min(requested, page[index]);
+		page[index] -= sold;
+		page[WIDTH + index] += sold * retailPrice;
+		return sold;
+	}
+
+	protected void buy(int required) {
+		int index = today - 1 - filed;
+		page[index] += required;
+		page[WIDTH + index] -= (required * wholesaleCost) + deliveryCost;
+	}
+
+	protected void restore(int day, int stock, int cash) {
+		int index = day - 1;
+		if (index < filed) {
+			// Take the day's page back out of the tree (leaving the tree,
+			// which forks may share, alone)
+			page = Arrays.copyOf(pageFor(index), 2 * WIDTH);
+			filed = index & ~MASK;
+		};
+		page[index - filed] = stock;
+		page[WIDTH + index - filed] = cash;
+		today = day;
+	}
+
+	protected int today() {
+		return today;
+	}
+
+	protected int stockOn(int day) {
+		int index = day - 1;
+		return index >= filed ? page[index - filed] : pageFor(index)[index & MASK];
+	}
+
+	protected int cashOn(int day) {
+		int index = day - 1;
+		return index >= filed ? page[WIDTH + index - filed] : pageFor(index)[WIDTH + (index & MASK)];
+	}
+
+	/*
+	 * Find the filed page holding the day with the given index
+	 */
+	private int[] pageFor(int index) {
+		Object[] node = root;
+		for (int level = shift; level > BITS; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		};
+		return (int[]) node[(index >>> BITS) & MASK];
+	}
+
+	/*
+	 * File the current (full) page in the tree, copying the nodes on its
+	 * path rather than changing any which may be shared with forks
+	 */
+	private void file() {
+		if (filed == (1L << (shift + BITS))) {
+			// The tree is full, so grow a new root above it
+			Object[] newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			root = newRoot;
+			shift += BITS;
+		};
+		root = withPage(root, shift, page);
+		filed += WIDTH;
+	}
+
+	private Object[] withPage(Object[] node, int level, int[] full) {
+		Object[] copy = (node == null) ? new Object[WIDTH] : node.clone();
+		int child = (filed >>> level) & MASK;
+		if (level == BITS) {
+			copy[child] = full;
+		} else {
+			copy[child] = withPage((Object[]) copy[child], level - BITS, full);
+		};
+		return copy;
+	}
+
+}
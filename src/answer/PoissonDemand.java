@@ -0,0 +1,106 @@
+package answer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Orders which arrive independently at a steady average rate, so that
+ * each day's order follows a Poisson distribution.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class PoissonDemand implements DemandDistribution {
+
+	/*
+	 * Below this mean, orders are counted out one at a time; above it,
+	 * they are drawn by transformed rejection, which takes about the same
+	 * time whatever the mean
+	 */
+	private static final double SMALL_MEAN = 10.0;
+
+	// log(k!) for small k
+	private static final double[] LOG_FACTORIAL = new double[16];
+	static {
+		for (int k = 1; k < LOG_FACTORIAL.length; k++) {
+			LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+		};
+	}
+
+	private final double mean; // items
+
+	/**
+	 * @param mean - the average order, in items
+	 * @throws IllegalArgumentException if the mean is negative
+	 */
+	public PoissonDemand(double mean) {
+		if (!(mean >= 0)) {
+			throw new IllegalArgumentException("Mean order may not be negative");
+		};
+		this.mean = mean;
+	}
+
+	public int sample(RandomGenerator random, int day) {
+		return sample(random, mean);
+	}
+
+	public String toString() {
+		return "Poisson orders averaging " + mean;
+	}
+
+	/**
+	 * Draw from the Poisson distribution with the given mean.
+	 * 
+	 * @param random the source of randomness to draw from
+	 * @param mean the distribution's mean (not negative)
+	 * @return the number drawn
+	 */
+	static int sample(RandomGenerator random, double mean) {
+		if (mean < SMALL_MEAN) {
+			// Knuth's method: count uniform variates until their product
+			// falls below exp(-mean)
+			double limit = Math.exp(-mean);
+			double product = random.nextDouble();
+			int count = 0;
+			while (product > limit) {
+				product *= random.nextDouble();
+				count++;
+			};
+			return count;
+		};
+		// Hormann's transformed rejection with squeeze (PTRS)
+		double root = Math.sqrt(mean);
+		double logMean = Math.log(mean);
+		double b = 0.931 + 2.53 * root;
+		double a = -0.059 + 0.02483 * b;
+		double inverseAlpha = 1.1239 + 1.1328 / (b - 3.4);
+		double accept = 0.9277 - 3.6224 / (b - 2);
+		while (true) {
+			double u = random.nextDouble() - 0.5;
+			double v = random.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			double k = Math.floor((2 * a / us + b) * u + mean + 0.43);
+			if (us >= 0.07 && v <= accept) {
+				return (int) k;
+			};
+			if (k < 0 || (us < 0.013 && v > us)) {
+				continue;
+			};
+			if (Math.log(v * inverseAlpha / (a / (us * us) + b)) <= -mean + k * logMean - logFactorial(k)) {
+				return (int) k;
+			};
+		}
+	}
+
+	/*
+	 * log(k!), from a table for small k and Stirling's series otherwise
+	 */
+	private static double logFactorial(double k) {
+		if (k < LOG_FACTORIAL.length) {
+			return LOG_FACTORIAL[(int) k];
+		};
+		double inverse = 1.0 / k;
+		return (k + 0.5) * Math.log(k) - k + 0.5 * Math.log(2 * Math.PI)
+				+ inverse * (1.0 / 12 - inverse * inverse / 360);
+	}
+
+}
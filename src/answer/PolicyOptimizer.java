@@ -0,0 +1,200 @@
+package answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+import question.SimulationComponents;
+import question.WarehouseException;
+
+/**
+ * Searches for the restocking policy which leaves the most cash at the
+ * end of the game, among those whose chance of getting us fired (through
+ * bankruptcy or an unfulfilled order) is acceptably small.  Every
+ * candidate policy plays the same seeded games, and all of the candidates'
+ * games are played at once on the common fork/join pool so that even a
+ * sweep of many cheap candidates keeps every core busy.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class PolicyOptimizer {
+
+	private final MonteCarloSimulation simulation;
+	private final int capacity; // items
+	private final int maxOrder; // items
+	private final int wholesaleCost; // dollars
+	private final int deliveryCharge; // dollars
+	private final int duration; // days
+
+	/**
+	 * How well one candidate policy did.
+	 */
+	public static class Evaluation {
+
+		private final RestockPolicy policy;
+		private final MonteCarloSimulation.Summary summary;
+
+		Evaluation(RestockPolicy policy, MonteCarloSimulation.Summary summary) {
+			this.policy = policy;
+			this.summary = summary;
+		}
+
+		/**
+		 * @return the policy evaluated
+		 */
+		public RestockPolicy policy() {
+			return policy;
+		}
+
+		/**
+		 * @return how the policy's games ended
+		 */
+		public MonteCarloSimulation.Summary summary() {
+			return summary;
+		}
+
+		/**
+		 * @return the fraction of games in which we were fired
+		 */
+		public double failure() {
+			return summary.bankruptcy() + summary.unfulfilledOrder();
+		}
+
+		public String toString() {
+			return policy + ": " + summary;
+		}
+	}
+
+	/**
+	 * Set up an optimizer for simulations with the same parameters as the GUI.
+	 *
+	 * @param warehouseCapacity - the maximum capacity of the warehouse, in items
+	 * @param cashReserve - initial cash reserve, in dollars
+	 * @param maxDailyOrder - the largest possible daily order, in items
+	 * @param wholesaleCostPerBox - how much it costs to buy an item, in dollars
+	 * @param retailPricePerBox - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @param jobDuration - the duration of the job, in days
+	 * @throws WarehouseException if any of the parameters are invalid
+	 */
+	public PolicyOptimizer(
+			Integer warehouseCapacity,
+			Integer cashReserve,
+			Integer maxDailyOrder,
+			Integer wholesaleCostPerBox,
+			Integer retailPricePerBox,
+			Integer deliveryCharge,
+			Integer jobDuration)
+	throws WarehouseException {
+		simulation = new MonteCarloSimulation(warehouseCapacity, cashReserve, maxDailyOrder,
+				wholesaleCostPerBox, retailPricePerBox, deliveryCharge, jobDuration);
+		capacity = warehouseCapacity;
+		maxOrder = maxDailyOrder;
+		wholesaleCost = wholesaleCostPerBox;
+		this.deliveryCharge = deliveryCharge;
+		duration = jobDuration;
+	}
+
+	/**
+	 * Returns a sweep over the parameters of every kind of policy: every
+	 * threshold, every sensible (s, S) pair, every combination of
+	 * weekdays and every lookahead horizon up to the length of the job.
+	 * 
+	 * @return the candidate policies
+	 */
+	public List<RestockPolicy> standardCandidates() {
+		List<RestockPolicy> candidates = new ArrayList<RestockPolicy>();
+		for (int threshold = 0; threshold <= capacity; threshold++) {
+			candidates.add(new ThresholdPolicy(threshold, capacity));
+		};
+		for (int orderUpTo = 1; orderUpTo <= capacity; orderUpTo++) {
+			for (int reorderPoint = 1; reorderPoint <= orderUpTo; reorderPoint++) {
+				candidates.add(new ReorderPointPolicy(reorderPoint, orderUpTo));
+			};
+		};
+		for (int weekdays = 1; weekdays < (1 << 7); weekdays++) {
+			candidates.add(new WeekdayPolicy(weekdays, capacity));
+		};
+		for (int horizon = 1; horizon <= duration; horizon++) {
+			candidates.add(new LookaheadPolicy(horizon, maxOrder - 1, capacity, wholesaleCost, deliveryCharge));
+		};
+		return candidates;
+	}
+
+	/**
+	 * Play the same games with each of the candidate policies.
+	 * 
+	 * @param candidates the policies to try
+	 * @param firstSeed the random number seed for the first game
+	 * @param games how many games to play with each policy
+	 * @return how well each policy did, in the same order as the candidates
+	 */
+	public List<Evaluation> evaluate(List<RestockPolicy> candidates, long firstSeed, long games) {
+		List<ForkJoinTask<MonteCarloSimulation.Summary>> tasks =
+				new ArrayList<ForkJoinTask<MonteCarloSimulation.Summary>>();
+		for (RestockPolicy policy : candidates) {
+			tasks.add(simulation.games(policy, firstSeed, games));
+		};
+		// Play every candidate's games at once (on the common pool)
+		ForkJoinTask.invokeAll(tasks);
+		List<Evaluation> evaluations = new ArrayList<Evaluation>();
+		for (int index = 0; index < candidates.size(); index++) {
+			evaluations.add(new Evaluation(candidates.get(index), tasks.get(index).join()));
+		};
+		return evaluations;
+	}
+
+	/**
+	 * Find the policy which leaves the most cash on average at the end of
+	 * the game, among those which get us fired no more often than allowed.
+	 * 
+	 * @param candidates the policies to try
+	 * @param firstSeed the random number seed for the first game
+	 * @param games how many games to play with each policy
+	 * @param maxFailure the largest acceptable chance of being fired
+	 * @return the best policy's evaluation, or null if every policy gets
+	 * us fired too often
+	 */
+	public Evaluation optimize(List<RestockPolicy> candidates, long firstSeed, long games,
+			double maxFailure) {
+		Evaluation best = null;
+		for (Evaluation evaluation : evaluate(candidates, firstSeed, games)) {
+			if (evaluation.failure() <= maxFailure && (best == null ||
+					evaluation.summary().averageFinalCash() > best.summary().averageFinalCash())) {
+				best = evaluation;
+			};
+		};
+		return best;
+	}
+
+	/**
+	 * Search all of the standard candidates with the GUI's default
+	 * parameters and print the best policy found.
+	 *
+	 * @param args optionally, the number of games per policy and the
+	 * largest acceptable chance of being fired
+	 * @throws WarehouseException if the default parameters are invalid
+	 */
+	public static void main(String[] args) throws WarehouseException {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 10000L;
+		double maxFailure = args.length > 1 ? Double.parseDouble(args[1]) : 0.05;
+		PolicyOptimizer optimizer = new PolicyOptimizer(
+				SimulationComponents.DefaultWarehouseCapacity,
+				SimulationComponents.DefaultCashReserve,
+				SimulationComponents.DefaultMaxOrder,
+				SimulationComponents.DefaultWholesaleCostPerBox,
+				SimulationComponents.DefaultRetailPricePerBox,
+				SimulationComponents.DefaultDeliveryCharge,
+				SimulationComponents.DefaultJobDuration);
+		List<RestockPolicy> candidates = optimizer.standardCandidates();
+		long start = System.nanoTime();
+		Evaluation best = optimizer.optimize(candidates, SimulationComponents.DefaultRandomSeed,
+				games, maxFailure);
+		long elapsed = System.nanoTime() - start;
+		System.out.println(best == null ? "No policy fails less often than " + maxFailure
+				: "Best policy: " + best);
+		System.out.println("Tried " + candidates.size() + " policies in " + (elapsed / 1000000) + " ms");
+	}
+
+}
@@ -0,0 +1,106 @@
+package answer;
+
+import java.util.Arrays;
+
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which keeps its history in two growable
+ * <code>int[]</code> columns instead of lists of boxed integers.  Day
+ * <em>d</em> is stored at index <em>d</em> - 1, so no element is wasted,
+ * and the columns double in length whenever they fill up, so that
+ * turning the page costs amortized constant time and no allocation.
+ * They can grow no longer than the largest array the JVM allows, after
+ * which turning the page throws an <code>IllegalStateException</code>.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class PrimitiveLedger extends AbstractLedger {
+
+	private static final int INITIAL_CAPACITY = 16; // days
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // days (the JVM's array limit)
+
+	private int today = 1; // day is initially 1
+	private int[] stockLevel; // items
+	private int[] cashReserve; // dollars
+
+	/**
+	 * Construct a warehouse's ledger with the supplied initial
+	 * stock level and cash reserve.  By default, the initial
+	 * day is number 1.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price (but we may trade while insolvent, so no exception
+	 * is thrown for a negative initial cash reserve!)
+	 */
+	public PrimitiveLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		stockLevel = new int[INITIAL_CAPACITY];
+		cashReserve = new int[INITIAL_CAPACITY];
+		stockLevel[0] = initialStock;
+		cashReserve[0] = initialCash;
+	}
+
+	public void nextDay() {
+		// Make room for the new page if necessary
+		if (today == stockLevel.length) {
+			if (today == MAX_CAPACITY) {
+				throw new IllegalStateException("Ledger is full: at most " + MAX_CAPACITY + " days can be kept");
+			};
+			int length = (int) Math.min(2L * today, MAX_CAPACITY);
+			stockLevel = Arrays.copyOf(stockLevel, length);
+			cashReserve = Arrays.copyOf(cashReserve, length);
+		};
+		// Transfer today's balances to next day
+		stockLevel[today] = stockLevel[today - 1];
+		cashReserve[today] = cashReserve[today - 1];
+		// Turn the page to the new day
+		today = today + 1;
+	}
+
+	protected int sell(int requested) {
+		// Sell however many we're asked for, or all that we have,
+		// whichever is smaller
+		int sold = Math.min(requested, stockLevel[today - 1]);
+		stockLevel[today - 1] -= sold;
+		cashReserve[today - 1] += sold * retailPrice;
+		return sold;
+	}
+
+	protected void buy(int required) {
+		stockLevel[today - 1] += required;
+		cashReserve[today - 1] -= (required * wholesaleCost) + deliveryCost;
+	}
+
+	protected void restore(int day, int stock, int cash) {
+		stockLevel[day - 1] = stock;
+		cashReserve[day - 1] = cash;
+		today = day;
+	}
+
+	protected int today() {
+		return today;
+	}
+
+	protected int stockOn(int day) {
+		return stockLevel[day - 1];
+	}
+
+	protected int cashOn(int day) {
+		return cashReserve[day - 1];
+	}
+
+}
@@ -0,0 +1,135 @@
+package answer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * A summary of the warehouse events (see <code>WarehouseEvents</code>) in a
+ * flight recording: how many of each kind there were, how long they took,
+ * and, for sales, how much was asked for and how much was actually sold.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class RecordingSummary {
+
+	private static final String PREFIX = "answer.";
+
+	private final Map<String, LatencyHistogram> latencies = new TreeMap<String, LatencyHistogram>();
+	private long requested = 0; // items, over all sales
+	private long sold = 0; // items, over all sales
+	private long partialSales = 0;
+	private int firstInsolvent = -1; // earliest day, over all simulations recorded
+	private int jobDone = -1; // day
+
+	/**
+	 * Read all of the warehouse events in a recording.
+	 *
+	 * @param recording the <code>.jfr</code> file to read
+	 * @throws IOException if the recording cannot be read
+	 */
+	public RecordingSummary(Path recording) throws IOException {
+		try (RecordingFile file = new RecordingFile(recording)) {
+			while (file.hasMoreEvents()) {
+				RecordedEvent event = file.readEvent();
+				String name = event.getEventType().getName();
+				if (name.startsWith(PREFIX)) {
+					add(name, event);
+				};
+			};
+		}
+	}
+
+	/*
+	 * Count one event
+	 */
+	private void add(String name, RecordedEvent event) {
+		latencies.computeIfAbsent(name.substring(PREFIX.length()), key -> new LatencyHistogram())
+			.record(event.getDuration().toNanos());
+		if (name.equals(WarehouseEvents.Sale.NAME)) {
+			requested += event.getInt("requested");
+			sold += event.getInt("sold");
+			if (event.getInt("sold") < event.getInt("requested")) {
+				partialSales++;
+			};
+		} else if (name.equals(WarehouseEvents.Insolvency.NAME)) {
+			int day = event.getInt("day");
+			if (firstInsolvent < 0 || day < firstInsolvent) {
+				firstInsolvent = day;
+			};
+		} else if (name.equals(WarehouseEvents.JobDone.NAME)) {
+			jobDone = event.getInt("day");
+		};
+	}
+
+	/**
+	 * @param kind the kind of event, e.g., "Sale"
+	 * @return the number of events of that kind in the recording
+	 */
+	public long count(String kind) {
+		LatencyHistogram latency = latencies.get(kind);
+		return latency == null ? 0 : latency.count();
+	}
+
+	/**
+	 * @return the total number of items requested in the recorded sales
+	 */
+	public long itemsRequested() {
+		return requested;
+	}
+
+	/**
+	 * @return the total number of items sold in the recorded sales
+	 */
+	public long itemsSold() {
+		return sold;
+	}
+
+	/**
+	 * @return the number of recorded sales which could only be filled in part
+	 */
+	public long partialSales() {
+		return partialSales;
+	}
+
+	public String toString() {
+		StringBuilder summary = new StringBuilder();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			summary.append(String.format("%-12s %s", entry.getKey(), entry.getValue()));
+		};
+		if (latencies.isEmpty()) {
+			summary.append("No warehouse events recorded\n");
+		};
+		if (count("Sale") > 0) {
+			summary.append("Items requested = " + requested + "; sold = " + sold +
+					" (" + partialSales + " partial sales)\n");
+		};
+		if (firstInsolvent >= 0) {
+			summary.append("Earliest insolvency at the end of day " + firstInsolvent + "\n");
+		};
+		if (jobDone >= 0) {
+			summary.append("Job done after day " + jobDone + "\n");
+		};
+		return summary.toString();
+	}
+
+	/**
+	 * Print a summary of each recording named.
+	 *
+	 * @param args the <code>.jfr</code> files to summarise
+	 * @throws IOException if a recording cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		for (String recording : args) {
+			System.out.println(recording + ":");
+			System.out.print(new RecordingSummary(Paths.get(recording)));
+		};
+	}
+
+}
@@ -0,0 +1,33 @@
+package answer;
+
+/**
+ * The classic (s, S) inventory policy: whenever the stock level falls
+ * below the reorder point <em>s</em>, restock up to the order-up-to
+ * level <em>S</em> (which may be less than the warehouse's capacity).
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class ReorderPointPolicy implements RestockPolicy {
+
+	private final int reorderPoint; // items
+	private final int orderUpTo; // items
+
+	/**
+	 * @param reorderPoint - restock whenever fewer than this many items are in stock
+	 * @param orderUpTo - the stock level to restock up to
+	 */
+	public ReorderPointPolicy(int reorderPoint, int orderUpTo) {
+		this.reorderPoint = reorderPoint;
+		this.orderUpTo = orderUpTo;
+	}
+
+	public int restockLevel(int day, int inStock, int cash) {
+		return inStock < reorderPoint ? orderUpTo : NO_RESTOCK;
+	}
+
+	public String toString() {
+		return "(s, S) = (" + reorderPoint + ", " + orderUpTo + ")";
+	}
+
+}
@@ -0,0 +1,30 @@
+package answer;
+
+/**
+ * A rule for deciding, each morning, whether to restock the warehouse
+ * and if so how far.  Policies are consulted once per simulated day, so
+ * they make their decision from primitive values alone, without creating
+ * any objects.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public interface RestockPolicy {
+
+	/**
+	 * The decision not to restock today.
+	 */
+	public static final int NO_RESTOCK = -1;
+
+	/**
+	 * Decide what to do this morning.
+	 * 
+	 * @param day the current day (where days are counted starting at 1)
+	 * @param inStock the number of items currently in stock
+	 * @param cash the current cash reserve, in dollars
+	 * @return the stock level to restock up to today, or
+	 * <code>NO_RESTOCK</code> to leave the warehouse alone
+	 */
+	public int restockLevel(int day, int inStock, int cash);
+
+}
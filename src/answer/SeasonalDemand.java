@@ -0,0 +1,61 @@
+package answer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Poisson orders whose average rises and falls over a regular season:
+ * it peaks a quarter of the way through each season, at
+ * <em>mean</em>&nbsp;&times;&nbsp;(1&nbsp;+&nbsp;<em>amplitude</em>), and
+ * bottoms out three quarters of the way through, at
+ * <em>mean</em>&nbsp;&times;&nbsp;(1&nbsp;&minus;&nbsp;<em>amplitude</em>).
+ * Day 1 of the simulation is taken to be the first day of a season.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class SeasonalDemand implements DemandDistribution {
+
+	private final double mean; // items
+	private final double amplitude; // fraction of the mean
+	private final int period; // days
+
+	/**
+	 * @param mean - the average order over a season, in items
+	 * @param amplitude - how far the average rises and falls, as a fraction
+	 * of the mean (between 0 and 1)
+	 * @param period - the length of a season, in days
+	 * @throws IllegalArgumentException if the mean is negative, the
+	 * amplitude is outside 0 to 1, or the period is not positive
+	 */
+	public SeasonalDemand(double mean, double amplitude, int period) {
+		if (!(mean >= 0)) {
+			throw new IllegalArgumentException("Mean order may not be negative");
+		};
+		if (!(amplitude >= 0 && amplitude <= 1)) {
+			throw new IllegalArgumentException("Amplitude must be between 0 and 1");
+		};
+		if (period <= 0) {
+			throw new IllegalArgumentException("Season must last at least one day");
+		};
+		this.mean = mean;
+		this.amplitude = amplitude;
+		this.period = period;
+	}
+
+	/**
+	 * @param day the day of interest (where days are counted starting at 1)
+	 * @return the average order on that day, in items
+	 */
+	public double meanOn(int day) {
+		return mean * (1 + amplitude * Math.sin(2 * Math.PI * ((day - 1) % period) / period));
+	}
+
+	public int sample(RandomGenerator random, int day) {
+		return PoissonDemand.sample(random, meanOn(day));
+	}
+
+	public String toString() {
+		return "Seasonal orders averaging " + mean + " +/- " + (amplitude * 100) + "% every " + period + " days";
+	}
+
+}
@@ -0,0 +1,423 @@
+package answer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import question.Ledger;
+import question.SimulationComponents;
+import question.WarehouseException;
+
+/**
+ * A small HTTP server which lets many clients run warehouse simulations at
+ * once, each in its own session with its own transactions and ledger.
+ * Every request is handled on a thread of its own: a virtual thread when
+ * the Java runtime provides them, or otherwise a thread from a pool which
+ * grows as needed.  The time taken to handle each request is recorded so
+ * that the server's latency under load can be checked.
+ *
+ * Requests and replies are plain text:
+ * <pre>
+ * POST   /sessions?capacity=20&amp;cash=80&amp;...   start a session, replying with its number
+ * POST   /sessions/<em>n</em>/restockAndSellStock?order=<em>k</em>
+ * POST   /sessions/<em>n</em>/sellStock?order=<em>k</em>
+ * GET    /sessions/<em>n</em>/insolvent             "true" or "false"
+ * GET    /sessions/<em>n</em>/orderUnfulfilled
+ * GET    /sessions/<em>n</em>/jobDone
+ * GET    /sessions/<em>n</em>/ledger[?day=<em>d</em>]     "day,cash,stock" for one day (today by default)
+ * GET    /sessions/<em>n</em>/history               "day,cash,stock" for every day so far
+ * DELETE /sessions/<em>n</em>                       end a session
+ * GET    /stats                               request latency percentiles
+ * </pre>
+ * Any simulation parameter left out when starting a session takes the
+ * GUI's default value, and the ledger uses the storage engine chosen by
+ * <code>LedgerStorage.selected()</code>.  Invalid requests are answered with
+ * status 400 and the <code>WarehouseException</code> message, requests
+ * for sessions which don't exist (or have ended) with status 404, and
+ * requests which fail unexpectedly (e.g., when the ledger's storage fails)
+ * with status 500.  The <code>MAPPED</code> engine may only be used with a
+ * temporary file per session, not a fixed <code>warehouse.ledger.file</code>.
+ *
+ * Sessions which clients forget to end are ended for them once no request
+ * has been made for them for a while (half an hour, by default).
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class SessionServer implements Closeable {
+
+	/** The port used when none is given on the command line */
+	public static final int DEFAULT_PORT = 8302;
+
+	/** How long a session may go unused before it is ended, by default */
+	public static final long DEFAULT_IDLE_MILLIS = 30 * 60 * 1000L;
+
+	private static final int BACKLOG = 1024;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService expiry;
+	private final long idleNanos;
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+	private final AtomicLong nextSession = new AtomicLong(1);
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/*
+	 * One client's simulation.  Requests for the same session are handled
+	 * one at a time, but different sessions proceed independently.  (The
+	 * lock is a ReentrantLock rather than a monitor, since waiting for a
+	 * monitor pins a virtual thread to its carrier before Java 24.)
+	 */
+	private static class Session {
+
+		private final Ledger ledger;
+		private final WarehouseTransactions warehouse;
+		private final ReentrantLock lock = new ReentrantLock();
+		private boolean closed = false; // guarded by the lock
+		private volatile long lastUsed = System.nanoTime();
+
+		Session(Ledger ledger, WarehouseTransactions warehouse) {
+			this.ledger = ledger;
+			this.warehouse = warehouse;
+		}
+	}
+
+	/*
+	 * A request which can't be answered, and the status saying why
+	 */
+	@SuppressWarnings("serial") // We're not interested in binary i/o here
+	private static class RequestException extends Exception {
+
+		private final int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Start a server listening on the given port of the local machine,
+	 * ending sessions after the default time unused.
+	 *
+	 * @param port the port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public SessionServer(int port) throws IOException {
+		this(port, DEFAULT_IDLE_MILLIS);
+	}
+
+	/**
+	 * Start a server listening on the given port of the local machine,
+	 * ending sessions after the given time unused.
+	 *
+	 * @param port the port to listen on, or 0 for any free port
+	 * @param idleMillis how long a session may go unused before it is
+	 * ended, in milliseconds (which must be positive)
+	 * @throws IOException if the port cannot be opened
+	 */
+	public SessionServer(int port, long idleMillis) throws IOException {
+		if (idleMillis <= 0) {
+			throw new IllegalArgumentException("Sessions must be allowed some time unused");
+		};
+		idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		executor = threadPerRequest();
+		server.setExecutor(executor);
+		server.createContext("/sessions", this::handle);
+		server.createContext("/stats", this::handle);
+		// Look for unused sessions a few times per allowance
+		expiry = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Session expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long sweep = Math.max(idleMillis / 4, 1);
+		expiry.scheduleWithFixedDelay(this::expire, sweep, sweep, TimeUnit.MILLISECONDS);
+		server.start();
+	}
+
+	/**
+	 * @return the port the server is listening on
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of sessions currently in progress
+	 */
+	public int sessions() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return the time taken to handle each request so far
+	 */
+	public LatencyHistogram latency() {
+		return latency;
+	}
+
+	/**
+	 * Stops accepting requests and ends every session.
+	 */
+	public void close() {
+		server.stop(0);
+		executor.shutdown();
+		expiry.shutdownNow();
+		for (Session session : sessions.values()) {
+			end(session);
+		};
+		sessions.clear();
+	}
+
+	/*
+	 * Answer one request, timing how long it takes
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		int status = 200;
+		String reply;
+		try {
+			reply = respond(exchange.getRequestMethod(), exchange.getRequestURI());
+		} catch (RequestException exception) {
+			status = exception.status;
+			reply = exception.getMessage();
+		} catch (WarehouseException exception) {
+			status = 400;
+			reply = exception.getMessage();
+		} catch (RuntimeException exception) {
+			// Not the client's fault, but they still deserve an answer
+			status = 500;
+			reply = "Internal error: " + exception;
+		}
+		byte[] body = (reply + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+		latency.record(System.nanoTime() - start);
+	}
+
+	/*
+	 * Work out what a request asks for, and do it
+	 */
+	private String respond(String method, URI uri) throws RequestException, WarehouseException {
+		String[] path = uri.getPath().split("/");
+		Map<String, String> query = parseQuery(uri.getRawQuery());
+		// path[0] is always empty, since the path starts with "/"
+		if (path.length == 2 && path[1].equals("stats")) {
+			expect(method, "GET");
+			return latency.toString().trim() + "; sessions = " + sessions.size();
+		};
+		if (path.length < 2 || !path[1].equals("sessions") || path.length > 4) {
+			throw new RequestException(404, "No such resource: " + uri.getPath());
+		};
+		if (path.length == 2) {
+			expect(method, "POST");
+			return Long.toString(startSession(query));
+		};
+		long id = parseNumber(path[2], "session");
+		Session session = sessions.get(id);
+		if (session == null) {
+			throw new RequestException(404, "No such session: " + id);
+		};
+		if (path.length == 3) {
+			expect(method, "DELETE");
+			if (sessions.remove(id) != null) {
+				end(session); // once any request in progress is done
+			};
+			return "ended";
+		};
+		session.lock.lock();
+		try {
+			// It may have ended while we were waiting for it
+			if (session.closed) {
+				throw new RequestException(404, "No such session: " + id);
+			};
+			session.lastUsed = System.nanoTime();
+			switch (path[3]) {
+			case "restockAndSellStock":
+				expect(method, "POST");
+				session.warehouse.restockAndSellStock(parseInt(query, "order", null));
+				return session.ledger.currentDay().toString();
+			case "sellStock":
+				expect(method, "POST");
+				session.warehouse.sellStock(parseInt(query, "order", null));
+				return session.ledger.currentDay().toString();
+			case "insolvent":
+				expect(method, "GET");
+				return Boolean.toString(session.warehouse.insolvent());
+			case "orderUnfulfilled":
+				expect(method, "GET");
+				return Boolean.toString(session.warehouse.orderUnfulfilled());
+			case "jobDone":
+				expect(method, "GET");
+				return Boolean.toString(session.warehouse.jobDone());
+			case "ledger":
+				expect(method, "GET");
+				int day = parseInt(query, "day", session.ledger.currentDay());
+				return day + "," + session.ledger.cashAvailable(day) + "," + session.ledger.inStock(day);
+			case "history":
+				expect(method, "GET");
+				StringBuilder history = new StringBuilder();
+				for (int past = 1; past <= session.ledger.currentDay(); past++) {
+					history.append(past).append(',')
+						.append(session.ledger.cashAvailable(past)).append(',')
+						.append(session.ledger.inStock(past)).append('\n');
+				};
+				return history.toString().trim();
+			default:
+				throw new RequestException(404, "No such operation: " + path[3]);
+			}
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/*
+	 * Start a new session with the given parameters, or the GUI's defaults
+	 */
+	private long startSession(Map<String, String> query) throws RequestException, WarehouseException {
+		Integer capacity = parseInt(query, "capacity", SimulationComponents.DefaultWarehouseCapacity);
+		LedgerStorage storage = LedgerStorage.selected();
+		if (storage == LedgerStorage.MAPPED && System.getProperty(LedgerStorage.FILE_PROPERTY) != null) {
+			// Every session would truncate and map the same file
+			throw new RequestException(500, "Sessions cannot share one ledger file; unset "
+					+ LedgerStorage.FILE_PROPERTY);
+		};
+		Ledger ledger = WarehouseMetrics.meter(storage.newLedger(capacity,
+				parseInt(query, "cash", SimulationComponents.DefaultCashReserve),
+				parseInt(query, "wholesale", SimulationComponents.DefaultWholesaleCostPerBox),
+				parseInt(query, "retail", SimulationComponents.DefaultRetailPricePerBox),
+				parseInt(query, "delivery", SimulationComponents.DefaultDeliveryCharge)));
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity,
+				parseInt(query, "duration", SimulationComponents.DefaultJobDuration), ledger);
+		long id = nextSession.getAndIncrement();
+		sessions.put(id, new Session(ledger, warehouse));
+		return id;
+	}
+
+	private static void expect(String method, String expected) throws RequestException {
+		if (!method.equals(expected)) {
+			throw new RequestException(405, "Use " + expected + " for this request");
+		};
+	}
+
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new HashMap<>();
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				int equals = parameter.indexOf('=');
+				if (equals > 0) {
+					parameters.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+				};
+			};
+		};
+		return parameters;
+	}
+
+	private static Integer parseInt(Map<String, String> query, String name, Integer missing)
+	throws RequestException {
+		String value = query.get(name);
+		if (value == null) {
+			if (missing == null) {
+				throw new RequestException(400, "Missing parameter: " + name);
+			};
+			return missing;
+		};
+		long number = parseNumber(value, name);
+		if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+			throw new RequestException(400, "Not a valid " + name + ": " + value);
+		};
+		return (int) number;
+	}
+
+	private static long parseNumber(String value, String name) throws RequestException {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException exception) {
+			throw new RequestException(400, "Not a valid " + name + ": " + value);
+		}
+	}
+
+	/*
+	 * End every session which has gone unused for too long
+	 */
+	private void expire() {
+		long now = System.nanoTime();
+		for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+			Session session = entry.getValue();
+			if (now - session.lastUsed > idleNanos && sessions.remove(entry.getKey(), session)) {
+				end(session);
+			};
+		};
+	}
+
+	/*
+	 * End the session, once any request in progress for it is done, so
+	 * that later requests find it closed rather than using its ledger
+	 */
+	private static void end(Session session) {
+		session.lock.lock();
+		try {
+			session.closed = true;
+			if (session.ledger instanceof Closeable) {
+				try {
+					((Closeable) session.ledger).close();
+				} catch (IOException ignored) {
+					// The session is over anyway
+				}
+			};
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/*
+	 * Use a virtual thread per request if this runtime has them (Java 21 on),
+	 * and otherwise an ordinary thread from a pool which grows as needed
+	 */
+	private static ExecutorService threadPerRequest() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException exception) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Run a server on the given port (or the default one) until the
+	 * program is stopped, printing the latency statistics every ten seconds.
+	 *
+	 * @param args optionally, the port to listen on
+	 * @throws IOException if the port cannot be opened
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		SessionServer server = new SessionServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+		System.out.println("Listening on http://localhost:" + server.port() + "/sessions");
+		while (true) {
+			Thread.sleep(10000);
+			System.out.print(server.sessions() + " sessions; " + server.latency());
+		}
+	}
+
+}
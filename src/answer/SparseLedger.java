@@ -0,0 +1,158 @@
+package answer;
+
+import java.util.Arrays;
+
+import question.WarehouseException;
+
+/**
+ * A warehouse ledger which only writes a new entry on days when the stock
+ * level or cash reserve actually changes.  Each entry (a "change point")
+ * records the day on which it was made and the balances at the end of that
+ * day, which then carry over until the next change point.  Turning the page
+ * therefore costs nothing at all, memory grows with trading activity rather
+ * than with elapsed days, and a lookup for an earlier day is a binary
+ * search over the change points.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class SparseLedger extends AbstractLedger {
+
+	private static final int INITIAL_CAPACITY = 16; // change points
+
+	private int today = 1; // day is initially 1
+	private int changes = 0; // number of change points in use
+	private int[] changeDay; // day on which each change point was made
+	private int[] stockLevel; // items, at each change point
+	private int[] cashReserve; // dollars, at each change point
+
+	/**
+	 * Construct a warehouse's ledger with the supplied initial
+	 * stock level and cash reserve.  By default, the initial
+	 * day is number 1.
+	 *
+	 * @param initialStock - initial stock level, in items
+	 * @param initialCash - initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem - how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @throws WarehouseException - if the stock level, wholesale cost, retail price or
+	 * delivery charge are negative, or if the wholesale cost is greater than
+	 * the retail price (but we may trade while insolvent, so no exception
+	 * is thrown for a negative initial cash reserve!)
+	 */
+	public SparseLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge)
+	throws WarehouseException {
+		super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+		changeDay = new int[INITIAL_CAPACITY];
+		stockLevel = new int[INITIAL_CAPACITY];
+		cashReserve = new int[INITIAL_CAPACITY];
+		// The opening balances are the first change point
+		changeDay[0] = 1;
+		stockLevel[0] = initialStock;
+		cashReserve[0] = initialCash;
+		changes = 1;
+	}
+
+	public void nextDay() {
+		// Today's balances carry over implicitly, so just turn the page
+		today = today + 1;
+	}
+
+	protected int sell(int requested) {
+		// Sell however many we're asked for, or all that we have,
+		// whichever is smaller
+		int sold = Math.min(requested, stockLevel[changes - 1]);
+		record(stockLevel[changes - 1] - sold, cashReserve[changes - 1] + (sold * retailPrice));
+		return sold;
+	}
+
+	protected void buy(int required) {
+		record(stockLevel[changes - 1] + required,
+				cashReserve[changes - 1] - (required * wholesaleCost) - deliveryCost);
+	}
+
+	protected void restore(int day, int stock, int cash) {
+		// Forget the change points after that day, then record its balances
+		// as if we'd just traded
+		changes = changePointFor(day) + 1;
+		today = day;
+		record(stock, cash);
+	}
+
+	protected int today() {
+		return today;
+	}
+
+	protected int stockOn(int day) {
+		return stockLevel[changePointFor(day)];
+	}
+
+	protected int cashOn(int day) {
+		return cashReserve[changePointFor(day)];
+	}
+
+	/**
+	 * Returns the number of change points currently recorded, which is
+	 * what this ledger's memory use is proportional to.
+	 *
+	 * @return the number of days on which the balances changed (plus one
+	 * for the opening balances)
+	 */
+	public int changePoints() {
+		return changes;
+	}
+
+	/*
+	 * Record today's new balances, reusing today's change point if there is
+	 * one already, and dropping it again if the day's trading has cancelled out
+	 */
+	private void record(int stock, int cash) {
+		int last = changes - 1;
+		if (stockLevel[last] == stock && cashReserve[last] == cash) {
+			return; // nothing has changed
+		};
+		if (changeDay[last] != today) {
+			// First change today, so start a new change point
+			if (changes == changeDay.length) {
+				changeDay = Arrays.copyOf(changeDay, changes * 2);
+				stockLevel = Arrays.copyOf(stockLevel, changes * 2);
+				cashReserve = Arrays.copyOf(cashReserve, changes * 2);
+			};
+			last = changes++;
+			changeDay[last] = today;
+		} else if (last > 0 && stockLevel[last - 1] == stock && cashReserve[last - 1] == cash) {
+			// Back where we started the day, so today is idle after all
+			changes--;
+			return;
+		};
+		stockLevel[last] = stock;
+		cashReserve[last] = cash;
+	}
+
+	/*
+	 * Find the last change point made on or before the given day
+	 */
+	private int changePointFor(int day) {
+		if (changeDay[changes - 1] <= day) {
+			return changes - 1; // the usual case of looking up today
+		};
+		int low = 0;
+		int high = changes - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (changeDay[middle] <= day) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			};
+		};
+		return low;
+	}
+
+}
@@ -0,0 +1,32 @@
+package answer;
+
+/**
+ * Restock to capacity whenever the stock level falls below a fixed
+ * threshold.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class ThresholdPolicy implements RestockPolicy {
+
+	private final int threshold; // items
+	private final int capacity; // items
+
+	/**
+	 * @param threshold - restock whenever fewer than this many items are in stock
+	 * @param capacity - the warehouse's capacity, in items
+	 */
+	public ThresholdPolicy(int threshold, int capacity) {
+		this.threshold = threshold;
+		this.capacity = capacity;
+	}
+
+	public int restockLevel(int day, int inStock, int cash) {
+		return inStock < threshold ? capacity : NO_RESTOCK;
+	}
+
+	public String toString() {
+		return "Restock to " + capacity + " when below " + threshold;
+	}
+
+}
@@ -0,0 +1,365 @@
+package answer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import question.SimulationComponents;
+import question.WarehouseException;
+
+/**
+ * Replays a history of real daily orders (an <code>OrderTrace</code>)
+ * through <code>WarehouseTransactions</code>, restocking as a
+ * <code>RestockPolicy</code> decides, to see how the policy would have fared.
+ *
+ * The trace is read on a thread of its own, in batches of orders which
+ * are handed over through a small bounded queue.  If the simulation falls
+ * behind, the reader waits for it rather than reading further ahead, and
+ * the batches are recycled once used.  The ledger keeps only today's
+ * balances, not the whole history, so a trace of any length is replayed
+ * in the same small amount of memory.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class TraceBacktest {
+
+	/** How many orders are handed over at a time */
+	public static final int BATCH_SIZE = 4096;
+
+	/** How many batches the reader may get ahead of the simulation */
+	public static final int QUEUE_BATCHES = 4;
+
+	private final int capacity; // items
+	private final int initialCash; // dollars
+	private final int wholesaleCost; // dollars
+	private final int retailPrice; // dollars
+	private final int deliveryCharge; // dollars
+	private final int duration; // days
+
+	/*
+	 * Some orders read from the trace, and how many of them there are
+	 */
+	private static class Batch {
+
+		private final int[] orders = new int[BATCH_SIZE];
+		private int count;
+	}
+
+	/*
+	 * Marks the end of the trace (or the reader giving up)
+	 */
+	private static final Batch END = new Batch();
+
+	/*
+	 * A ledger which keeps only today's balances, forgetting each day as
+	 * the page is turned, since a replay never looks back
+	 */
+	private static class TodayLedger extends AbstractLedger {
+
+		private int today = 1;
+		private int stock; // items
+		private int cash; // dollars
+
+		TodayLedger(int initialStock, int initialCash, int wholesaleCostPerItem,
+				int retailPricePerItem, int deliveryCharge)
+		throws WarehouseException {
+			super(initialStock, wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+			stock = initialStock;
+			cash = initialCash;
+		}
+
+		public void nextDay() {
+			today++;
+		}
+
+		protected int today() {
+			return today;
+		}
+
+		protected int stockOn(int day) {
+			forgotten(day);
+			return stock;
+		}
+
+		protected int cashOn(int day) {
+			forgotten(day);
+			return cash;
+		}
+
+		protected int sell(int requested) {
+			int sold = Math.min(requested, stock);
+			stock -= sold;
+			cash += sold * retailPrice;
+			return sold;
+		}
+
+		protected void buy(int required) {
+			stock += required;
+			cash -= (required * wholesaleCost) + deliveryCost;
+		}
+
+		protected void restore(int day, int stock, int cash) {
+			// Only the balances at the start of the transaction are needed
+			today = day;
+			this.stock = stock;
+			this.cash = cash;
+		}
+
+		/*
+		 * Refuse to make up balances for days already forgotten
+		 */
+		private void forgotten(int day) {
+			if (day != today) {
+				throw new UnsupportedOperationException("Only today's balances are kept during a backtest");
+			};
+		}
+	}
+
+	/**
+	 * How a replay ended.
+	 */
+	public static class Result {
+
+		private final int days;
+		private final boolean insolvent;
+		private final boolean unfulfilled;
+		private final boolean jobDone;
+		private final int finalCash;
+		private final int finalStock;
+
+		Result(int days, WarehouseTransactions warehouse, AbstractLedger ledger) {
+			this.days = days;
+			insolvent = warehouse.insolvent();
+			unfulfilled = warehouse.orderUnfulfilled();
+			jobDone = warehouse.jobDone();
+			finalCash = ledger.cashOn(ledger.today());
+			finalStock = ledger.stockOn(ledger.today());
+		}
+
+		/**
+		 * @return how many days' orders were replayed
+		 */
+		public int days() {
+			return days;
+		}
+
+		/**
+		 * @return true if the replay ended in bankruptcy
+		 */
+		public boolean insolvent() {
+			return insolvent;
+		}
+
+		/**
+		 * @return true if the replay ended with an order which couldn't be filled
+		 */
+		public boolean orderUnfulfilled() {
+			return unfulfilled;
+		}
+
+		/**
+		 * @return true if the job was completed (if none of these is true,
+		 * the trace ran out first)
+		 */
+		public boolean jobDone() {
+			return jobDone;
+		}
+
+		/**
+		 * @return the cash reserve at the end, in dollars
+		 */
+		public int finalCash() {
+			return finalCash;
+		}
+
+		/**
+		 * @return the stock level at the end, in items
+		 */
+		public int finalStock() {
+			return finalStock;
+		}
+
+		public String toString() {
+			String ending = insolvent ? "bankrupt" :
+				(unfulfilled ? "order unfulfilled" : (jobDone ? "job done" : "trace ended"));
+			return days + " days, " + ending + ": " +
+			"Cash reserve = $" + finalCash + "; " +
+			"Items in stock = " + finalStock + "\n";
+		}
+	}
+
+	/**
+	 * Set up a backtest with the same parameters as the GUI, except for
+	 * the maximum daily order, which comes from the trace.
+	 *
+	 * @param warehouseCapacity - the maximum capacity of the warehouse, in items
+	 * (the warehouse is initially fully stocked)
+	 * @param cashReserve - initial cash reserve, in dollars
+	 * @param wholesaleCostPerBox - how much it costs to buy an item, in dollars
+	 * @param retailPricePerBox - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @param jobDuration - the duration of the job, in days
+	 * @throws WarehouseException if any of the parameters would be rejected
+	 * by the ledger or the transactions
+	 */
+	public TraceBacktest(
+			Integer warehouseCapacity,
+			Integer cashReserve,
+			Integer wholesaleCostPerBox,
+			Integer retailPricePerBox,
+			Integer deliveryCharge,
+			Integer jobDuration)
+	throws WarehouseException {
+		// Let the ledger and transactions check the parameters
+		new WarehouseTransactions(warehouseCapacity, jobDuration,
+				new TodayLedger(warehouseCapacity, cashReserve,
+						wholesaleCostPerBox, retailPricePerBox, deliveryCharge));
+		capacity = warehouseCapacity;
+		initialCash = cashReserve;
+		wholesaleCost = wholesaleCostPerBox;
+		retailPrice = retailPricePerBox;
+		this.deliveryCharge = deliveryCharge;
+		duration = jobDuration;
+	}
+
+	/**
+	 * Replay the orders in the given trace, one per day, until the game ends
+	 * (just as it would in the GUI) or the trace runs out.
+	 *
+	 * @param traceFile the trace of daily orders
+	 * @param policy how to decide whether to restock each morning
+	 * @return how the replay ended
+	 * @throws IOException if the trace cannot be read
+	 * @throws WarehouseException if the trace is garbled, contains a negative
+	 * order, or the policy asks to restock beyond the warehouse's capacity
+	 * @throws InterruptedException if interrupted while waiting for the trace
+	 */
+	public Result run(Path traceFile, RestockPolicy policy)
+	throws IOException, WarehouseException, InterruptedException {
+		BlockingQueue<Batch> free = new ArrayBlockingQueue<>(QUEUE_BATCHES + 1);
+		BlockingQueue<Batch> full = new ArrayBlockingQueue<>(QUEUE_BATCHES + 1);
+		for (int batch = 0; batch <= QUEUE_BATCHES; batch++) {
+			free.add(new Batch());
+		};
+		Reader reader = new Reader(new OrderTrace(traceFile), free, full);
+		reader.start();
+		try {
+			TodayLedger ledger = new TodayLedger(capacity, initialCash,
+					wholesaleCost, retailPrice, deliveryCharge);
+			WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+			int days = 0;
+			while (true) {
+				Batch batch = full.take();
+				if (batch == END) {
+					reader.rethrow();
+					return new Result(days, warehouse, ledger);
+				};
+				for (int day = 0; day < batch.count; day++) {
+					// Decide what to do this morning, then face the day's order
+					int today = ledger.today();
+					int level = policy.restockLevel(today, ledger.stockOn(today), ledger.cashOn(today));
+					if (level == RestockPolicy.NO_RESTOCK) {
+						warehouse.sellStock(batch.orders[day]);
+					} else {
+						warehouse.restockToAndSellStock(level, batch.orders[day]);
+					};
+					days++;
+					if (warehouse.insolvent() || warehouse.orderUnfulfilled() || warehouse.jobDone()) {
+						return new Result(days, warehouse, ledger);
+					};
+				};
+				free.put(batch);
+			}
+		} finally {
+			// Stop the reader if we finished early, and wait for it to let go of the file
+			reader.interrupt();
+			reader.join();
+		}
+	}
+
+	/*
+	 * Reads the trace into free batches and queues them for the simulation,
+	 * waiting whenever there are no free batches left
+	 */
+	private static class Reader extends Thread {
+
+		private final OrderTrace trace;
+		private final BlockingQueue<Batch> free;
+		private final BlockingQueue<Batch> full;
+		private volatile Throwable failure;
+
+		Reader(OrderTrace trace, BlockingQueue<Batch> free, BlockingQueue<Batch> full) {
+			super("Order trace reader");
+			setDaemon(true);
+			this.trace = trace;
+			this.free = free;
+			this.full = full;
+		}
+
+		public void run() {
+			try (OrderTrace trace = this.trace) {
+				while (true) {
+					Batch batch = free.take();
+					batch.count = trace.read(batch.orders);
+					if (batch.count <= 0) {
+						break;
+					};
+					full.put(batch);
+				};
+			} catch (InterruptedException exception) {
+				// The simulation has finished without us
+			} catch (Throwable exception) {
+				failure = exception; // whatever it is, the simulation must hear of it
+			} finally {
+				// Never leave the simulation waiting.  (There's always room
+				// unless we were interrupted, and then nobody is waiting.)
+				full.offer(END);
+			}
+		}
+
+		/*
+		 * Pass on anything which went wrong while reading
+		 */
+		void rethrow() throws IOException, WarehouseException {
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure instanceof WarehouseException) {
+				throw (WarehouseException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure != null) {
+				throw (Error) failure; // the only other kind of Throwable which can get here
+			};
+		}
+	}
+
+	/**
+	 * Replay the given trace with the GUI's default parameters (but a job
+	 * which lasts as long as the trace), restocking whenever the stock left
+	 * might not cover the largest expected order, and print how it ended.
+	 *
+	 * @param args the trace file, and optionally the largest expected order
+	 * (the GUI's maximum daily order by default)
+	 * @throws Exception if the trace cannot be replayed
+	 */
+	public static void main(String[] args) throws Exception {
+		int largestOrder = args.length > 1 ? Integer.parseInt(args[1]) : SimulationComponents.DefaultMaxOrder;
+		TraceBacktest backtest = new TraceBacktest(
+				SimulationComponents.DefaultWarehouseCapacity,
+				SimulationComponents.DefaultCashReserve,
+				SimulationComponents.DefaultWholesaleCostPerBox,
+				SimulationComponents.DefaultRetailPricePerBox,
+				SimulationComponents.DefaultDeliveryCharge,
+				Integer.MAX_VALUE - 1);
+		long start = System.nanoTime();
+		Result result = backtest.run(Paths.get(args[0]),
+				new ThresholdPolicy(largestOrder - 1, SimulationComponents.DefaultWarehouseCapacity));
+		long elapsed = System.nanoTime() - start;
+		System.out.print(result);
+		System.out.println("Replayed in " + (elapsed / 1000000) + " ms");
+	}
+
+}
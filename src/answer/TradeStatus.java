@@ -0,0 +1,107 @@
+package answer;
+
+import question.WarehouseException;
+
+/**
+ * The outcome of a purchase, sale or day's trading attempted through the
+ * exception-free methods of the ledgers and <code>WarehouseTransactions</code>
+ * (<code>trySell</code>, <code>tryBuy</code>, <code>trySellStock</code>, etc.).
+ * Invalid requests are reported by returning one of the failures below,
+ * rather than by constructing and throwing an exception, which matters
+ * when many of the requests are expected to be invalid (e.g., when fuzzing).
+ *
+ * Each failure can also be turned into the <code>WarehouseException</code>
+ * the throwing methods would have thrown.  If the
+ * <code>warehouse.exceptions.stackless</code> system property is set, a
+ * single preallocated exception without a stack trace is used for each
+ * failure, which is far cheaper to throw, but doesn't say where it came from.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public enum TradeStatus {
+
+	/** The purchase was made */
+	OK(null),
+
+	/** The whole order was filled */
+	FILLED(null),
+
+	/** The order could only be filled in part, by selling all the stock we had */
+	PARTLY_FILLED(null),
+
+	/** Nothing was done, because the number of items to sell was negative */
+	NEGATIVE_SALE("Attempt to sell negative number of items"),
+
+	/** Nothing was done, because the number of items to buy was negative */
+	NEGATIVE_PURCHASE("Attempt to buy negative number of items"),
+
+	/** Nothing was done, because the sales order was negative */
+	NEGATIVE_ORDER("Sales order cannot be negative"),
+
+	/** Nothing was done, because the restocking level was out of range */
+	BAD_RESTOCK_LEVEL("Restocking level must be between zero and capacity");
+
+	/** The system property which selects stackless, preallocated exceptions */
+	public static final String STACKLESS_PROPERTY = "warehouse.exceptions.stackless";
+
+	private static final boolean STACKLESS = Boolean.getBoolean(STACKLESS_PROPERTY);
+
+	private final String message;
+	private final WarehouseException preallocated;
+
+	private TradeStatus(String message) {
+		this.message = message;
+		preallocated = (message == null) ? null : new WarehouseException(message, false);
+	}
+
+	/**
+	 * @return true unless the request was invalid
+	 */
+	public boolean ok() {
+		return message == null;
+	}
+
+	/**
+	 * @return what was wrong with the request, or null if nothing was
+	 */
+	public String message() {
+		return message;
+	}
+
+	/**
+	 * Returns the exception the throwing methods report this failure with:
+	 * a new one, or the preallocated one if stackless exceptions were
+	 * chosen with the <code>warehouse.exceptions.stackless</code> property.
+	 *
+	 * @return an exception describing this failure
+	 * @throws IllegalStateException if this isn't a failure
+	 */
+	public WarehouseException exception() {
+		return STACKLESS ? preallocated() : new WarehouseException(checkedMessage());
+	}
+
+	/**
+	 * Returns the one stackless exception shared by every report of this
+	 * failure, whichever sort the <code>warehouse.exceptions.stackless</code>
+	 * property chose.
+	 *
+	 * @return the preallocated exception describing this failure
+	 * @throws IllegalStateException if this isn't a failure
+	 */
+	public WarehouseException preallocated() {
+		checkedMessage();
+		return preallocated;
+	}
+
+	/*
+	 * Only failures have exceptions
+	 */
+	private String checkedMessage() {
+		if (message == null) {
+			throw new IllegalStateException(this + " is not a failure");
+		};
+		return message;
+	}
+
+}
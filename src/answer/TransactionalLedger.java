@@ -0,0 +1,65 @@
+package answer;
+
+import question.Ledger;
+
+/**
+ * A warehouse ledger whose purchases, sales and page turns can be made
+ * all-or-nothing, by calling <code>begin</code> first and
+ * <code>commit</code> or <code>rollback</code> afterwards.  Rolling back
+ * puts the ledger back exactly as it was when the transaction began,
+ * forgetting any pages turned since.  Transactions may not be nested.
+ *
+ * A ledger which only decorates another (e.g., <code>IndexedLedger</code>)
+ * supports transactions only if the ledger it decorates does, so check
+ * <code>transactional</code> before beginning one.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public interface TransactionalLedger extends Ledger {
+
+	/**
+	 * @param ledger any ledger
+	 * @return true if the ledger can begin a transaction
+	 */
+	public static boolean supports(Ledger ledger) {
+		return ledger instanceof TransactionalLedger && ((TransactionalLedger) ledger).transactional();
+	}
+
+	/**
+	 * @return true if this ledger can begin a transaction
+	 */
+	public boolean transactional();
+
+	/**
+	 * Starts a transaction: everything done to the ledger from now on can
+	 * be undone with <code>rollback</code>, until <code>commit</code> is
+	 * called.
+	 *
+	 * @throws IllegalStateException if a transaction is already open
+	 * @throws UnsupportedOperationException if the ledger isn't
+	 * <code>transactional</code>
+	 */
+	public void begin();
+
+	/**
+	 * Keeps everything done since the transaction began.
+	 *
+	 * @throws IllegalStateException if no transaction is open
+	 */
+	public void commit();
+
+	/**
+	 * Undoes everything done since the transaction began.
+	 *
+	 * @throws IllegalStateException if no transaction is open
+	 */
+	public void rollback();
+
+	/**
+	 * @return true if a transaction has begun, and not yet been committed
+	 * or rolled back
+	 */
+	public boolean inTransaction();
+
+}
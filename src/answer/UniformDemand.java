@@ -0,0 +1,37 @@
+package answer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Orders for anything from nothing up to (but not including) a maximum,
+ * all equally likely.  This is how the GUI has always drawn its orders:
+ * drawn from a <code>java.util.Random</code>, the orders are exactly
+ * those of <code>nextInt(maxOrder)</code>.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class UniformDemand implements DemandDistribution {
+
+	private final int maxOrder; // items, exclusive
+
+	/**
+	 * @param maxOrder - one more than the largest possible order, in items
+	 * @throws IllegalArgumentException if the maximum is not positive
+	 */
+	public UniformDemand(int maxOrder) {
+		if (maxOrder <= 0) {
+			throw new IllegalArgumentException("Maximum order must be positive");
+		};
+		this.maxOrder = maxOrder;
+	}
+
+	public int sample(RandomGenerator random, int day) {
+		return random.nextInt(maxOrder);
+	}
+
+	public String toString() {
+		return "Uniform orders below " + maxOrder;
+	}
+
+}
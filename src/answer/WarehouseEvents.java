@@ -0,0 +1,146 @@
+package answer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The Java Flight Recorder events recorded by <code>WarehouseTransactions</code>,
+ * so that a slow run can be examined in JDK Mission Control, or summarised
+ * with <code>RecordingSummary</code>.  Record a simulation with, e.g.,
+ *
+ * <pre>
+ * java -XX:StartFlightRecording:settings=warehouse.jfc,filename=run.jfr -cp WarehouseSimulation.jar question.Simulation
+ * </pre>
+ *
+ * where <code>warehouse.jfc</code> (at the top of the project) sets which
+ * events are recorded, how long a day advance, restock or sale must take
+ * before it is recorded, and whether stack traces are taken.  Without
+ * such settings, only insolvency and completion of the job are recorded.
+ *
+ * When nothing is being recorded the events cost next to nothing.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class WarehouseEvents {
+
+	private WarehouseEvents() {
+		// Just a home for the event types
+	}
+
+	/**
+	 * @return true if any of the day-by-day events (day advance, restock
+	 * or sale) are being recorded
+	 */
+	static boolean recording() {
+		return new DayAdvance().isEnabled() || new Restock().isEnabled() || new Sale().isEnabled();
+	}
+
+	/**
+	 * Turning the page in the ledger
+	 */
+	@Name(DayAdvance.NAME)
+	@Label("Day Advance")
+	@Category("Warehouse")
+	@Description("The ledger's page is turned")
+	@StackTrace(false)
+	@Threshold("20 ms")
+	@Enabled(false)
+	static class DayAdvance extends Event {
+		static final String NAME = "answer.DayAdvance";
+
+		@Label("Day")
+		@Description("The new day")
+		int day;
+
+		@Label("Cash")
+		int cash;
+
+		@Label("Stock")
+		int stock;
+	}
+
+	/**
+	 * Buying stock from the wholesaler
+	 */
+	@Name(Restock.NAME)
+	@Label("Restock")
+	@Category("Warehouse")
+	@Description("Stock is bought and delivered")
+	@StackTrace(false)
+	@Threshold("20 ms")
+	@Enabled(false)
+	static class Restock extends Event {
+		static final String NAME = "answer.Restock";
+
+		@Label("Day")
+		int day;
+
+		@Label("Items")
+		int items;
+	}
+
+	/**
+	 * Selling stock to a customer
+	 */
+	@Name(Sale.NAME)
+	@Label("Sale")
+	@Category("Warehouse")
+	@Description("Stock is sold to fill (some or all of) an order")
+	@StackTrace(false)
+	@Threshold("20 ms")
+	@Enabled(false)
+	static class Sale extends Event {
+		static final String NAME = "answer.Sale";
+
+		@Label("Day")
+		int day;
+
+		@Label("Requested")
+		int requested;
+
+		@Label("Sold")
+		int sold;
+	}
+
+	/**
+	 * Running out of money
+	 */
+	@Name(Insolvency.NAME)
+	@Label("Insolvency")
+	@Category("Warehouse")
+	@Description("The cash reserve has gone negative")
+	static class Insolvency extends Event {
+		static final String NAME = "answer.Insolvency";
+
+		@Label("Day")
+		int day;
+
+		@Label("Cash")
+		int cash;
+	}
+
+	/**
+	 * Reaching the end of the job
+	 */
+	@Name(JobDone.NAME)
+	@Label("Job Done")
+	@Category("Warehouse")
+	@Description("The last day of the job is over")
+	static class JobDone extends Event {
+		static final String NAME = "answer.JobDone";
+
+		@Label("Day")
+		int day;
+
+		@Label("Cash")
+		int cash;
+	}
+
+}
@@ -0,0 +1,397 @@
+package answer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import question.SimulationComponents;
+import question.WarehouseException;
+
+/**
+ * A fleet of many identical warehouses, each managed exactly as if it had
+ * its own <code>WarehouseTransactions</code> and ledger, but all trading
+ * on the same days.  Rather than one pair of objects per warehouse, the
+ * fleet keeps each warehouse's stock level, cash reserve and order status
+ * in plain arrays, and splits the warehouses into contiguous shards which
+ * are advanced in parallel using fork/join.
+ *
+ * Individual warehouses' histories are not kept.  Instead, as each day
+ * ends the fleet records its totals (cash, stock, and how many warehouses
+ * are insolvent or failed to fill an order), which can be looked up for
+ * any day just as a ledger's balances can.  As in the GUI, the warehouses
+ * start fully stocked, and may carry on trading while insolvent.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class WarehouseFleet {
+
+	/*
+	 * The fewest warehouses worth giving a shard of their own
+	 */
+	private static final int MIN_SHARD = 1024;
+	private static final int SHARDS_PER_THREAD = 4;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int warehouses;
+	private final int capacity; // items
+	private final int wholesaleCost; // dollars
+	private final int retailPrice; // dollars
+	private final int deliveryCharge; // dollars
+	private final int duration; // days
+
+	// Each warehouse's current state, indexed by warehouse
+	private final int[] stock; // items
+	private final int[] cash; // dollars
+	private final boolean[] unfulfilled;
+
+	// The fleet's totals at the end of each day, with day d at index d-1
+	private int today = 1;
+	private long[] totalCash = new long[INITIAL_CAPACITY];
+	private long[] totalStock = new long[INITIAL_CAPACITY];
+	private int[] insolventCount = new int[INITIAL_CAPACITY];
+	private int[] unfulfilledCount = new int[INITIAL_CAPACITY];
+
+	private final Shard[] shards;
+
+	/*
+	 * Today's orders and policy, shared with the shards while a day is
+	 * being processed
+	 */
+	private int[] orders;
+	private RestockPolicy policy;
+
+	/**
+	 * Set up a fleet of identical, fully-stocked warehouses.
+	 *
+	 * @param warehouses - how many warehouses there are in the fleet
+	 * @param warehouseCapacity - the maximum capacity of each warehouse, in items
+	 * @param cashReserve - each warehouse's initial cash reserve, in dollars
+	 * @param wholesaleCostPerBox - how much it costs to buy an item, in dollars
+	 * @param retailPricePerBox - how much we get from selling an item, in dollars
+	 * @param deliveryCharge - extra cost associated with buying items, in dollars
+	 * @param jobDuration - the duration of the job, in days
+	 * @throws WarehouseException if there are no warehouses, or any of the other
+	 * parameters would be rejected by the ledger or the transactions
+	 */
+	public WarehouseFleet(
+			int warehouses,
+			Integer warehouseCapacity,
+			Integer cashReserve,
+			Integer wholesaleCostPerBox,
+			Integer retailPricePerBox,
+			Integer deliveryCharge,
+			Integer jobDuration)
+	throws WarehouseException {
+		if (warehouses <= 0) {
+			throw new WarehouseException("A fleet must have at least one warehouse");
+		};
+		// Let the ledger and transactions check the rest
+		new WarehouseTransactions(warehouseCapacity, jobDuration,
+				new PrimitiveLedger(warehouseCapacity, cashReserve,
+						wholesaleCostPerBox, retailPricePerBox, deliveryCharge));
+		this.warehouses = warehouses;
+		capacity = warehouseCapacity;
+		wholesaleCost = wholesaleCostPerBox;
+		retailPrice = retailPricePerBox;
+		this.deliveryCharge = deliveryCharge;
+		duration = jobDuration;
+		stock = new int[warehouses];
+		cash = new int[warehouses];
+		unfulfilled = new boolean[warehouses];
+		Arrays.fill(stock, capacity);
+		Arrays.fill(cash, cashReserve);
+		// Record day 1's opening totals
+		totalCash[0] = (long) warehouses * cashReserve;
+		totalStock[0] = (long) warehouses * capacity;
+		insolventCount[0] = cashReserve < 0 ? warehouses : 0;
+		// Share the warehouses out evenly between the shards
+		int parallelism = ForkJoinPool.commonPool().getParallelism();
+		int count = Math.max(1, Math.min(warehouses / MIN_SHARD, parallelism * SHARDS_PER_THREAD));
+		shards = new Shard[count];
+		for (int shard = 0; shard < count; shard++) {
+			shards[shard] = new Shard((int) ((long) warehouses * shard / count),
+					(int) ((long) warehouses * (shard + 1) / count));
+		};
+	}
+
+	/**
+	 * Complete a day's transactions at every warehouse, by restocking those
+	 * which the policy says should be restocked, selling each warehouse's
+	 * order, and turning the page, exactly as <code>restockToAndSellStock</code>
+	 * or <code>sellStock</code> would.
+	 *
+	 * @param todaysOrders the number of items ordered from each warehouse today
+	 * @param restockPolicy how to decide whether each warehouse is restocked,
+	 * which will be consulted from several threads at once
+	 * @throws WarehouseException if there is not exactly one order per warehouse,
+	 * or any of them is negative (in which case nothing is done)
+	 * @throws IllegalArgumentException if the policy asks for a warehouse to be
+	 * restocked beyond its capacity (in which case the day is left incomplete,
+	 * and the fleet should not be used again)
+	 */
+	public void nextDay(int[] todaysOrders, RestockPolicy restockPolicy) throws WarehouseException {
+		// Sanity checks on parameters
+		if (todaysOrders.length != warehouses) {
+			throw new WarehouseException("There must be one order for each warehouse");
+		};
+		for (int order : todaysOrders) {
+			if (order < 0) {
+				throw new WarehouseException("Sales order cannot be negative");
+			};
+		};
+		// Let the shards do the work
+		orders = todaysOrders;
+		policy = restockPolicy;
+		for (Shard shard : shards) {
+			shard.reinitialize();
+		};
+		try {
+			ForkJoinTask.invokeAll(shards);
+		} finally {
+			orders = null;
+			policy = null;
+		}
+		// Add up the shards' totals for the new day
+		long cashTotal = 0;
+		long stockTotal = 0;
+		int insolvent = 0;
+		int failed = 0;
+		for (Shard shard : shards) {
+			cashTotal += shard.cashTotal;
+			stockTotal += shard.stockTotal;
+			insolvent += shard.insolvent;
+			failed += shard.unfulfilled;
+		};
+		if (today == totalCash.length) {
+			totalCash = Arrays.copyOf(totalCash, today * 2);
+			totalStock = Arrays.copyOf(totalStock, today * 2);
+			insolventCount = Arrays.copyOf(insolventCount, today * 2);
+			unfulfilledCount = Arrays.copyOf(unfulfilledCount, today * 2);
+		};
+		totalCash[today] = cashTotal;
+		totalStock[today] = stockTotal;
+		insolventCount[today] = insolvent;
+		unfulfilledCount[today] = failed;
+		today++;
+	}
+
+	/*
+	 * A contiguous range of warehouses, all handled by one thread, which
+	 * totals up its own part of the fleet as it goes
+	 */
+	@SuppressWarnings("serial") // We don't care about binary i/o here
+	private class Shard extends RecursiveAction {
+
+		private final int from; // first warehouse
+		private final int to; // last warehouse (exclusive)
+		private long cashTotal;
+		private long stockTotal;
+		private int insolvent;
+		private int unfulfilled;
+
+		Shard(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			final int[] stock = WarehouseFleet.this.stock;
+			final int[] cash = WarehouseFleet.this.cash;
+			final boolean[] failed = WarehouseFleet.this.unfulfilled;
+			final int[] orders = WarehouseFleet.this.orders;
+			final RestockPolicy policy = WarehouseFleet.this.policy;
+			final int day = today;
+			long cashTotal = 0;
+			long stockTotal = 0;
+			int insolvent = 0;
+			int unfulfilled = 0;
+			for (int warehouse = from; warehouse < to; warehouse++) {
+				int inStock = stock[warehouse];
+				int reserve = cash[warehouse];
+				// Restock if the policy says so
+				int level = policy.restockLevel(day, inStock, reserve);
+				if (level != RestockPolicy.NO_RESTOCK) {
+					if (level < 0 || level > capacity) {
+						throw new IllegalArgumentException(policy + ": restocking level must be between zero and capacity");
+					};
+					int required = Math.max(level - inStock, 0);
+					inStock += required;
+					reserve -= (required * wholesaleCost) + deliveryCharge;
+				};
+				// Sell as much of the order as we can
+				int order = orders[warehouse];
+				int sold = Math.min(order, inStock);
+				inStock -= sold;
+				reserve += sold * retailPrice;
+				stock[warehouse] = inStock;
+				cash[warehouse] = reserve;
+				failed[warehouse] = sold != order;
+				// Add this warehouse to the shard's totals
+				cashTotal += reserve;
+				stockTotal += inStock;
+				if (reserve < 0) {
+					insolvent++;
+				};
+				if (sold != order) {
+					unfulfilled++;
+				};
+			};
+			this.cashTotal = cashTotal;
+			this.stockTotal = stockTotal;
+			this.insolvent = insolvent;
+			this.unfulfilled = unfulfilled;
+		}
+	}
+
+	/**
+	 * @return the number of warehouses in the fleet
+	 */
+	public int warehouses() {
+		return warehouses;
+	}
+
+	/**
+	 * @return the current day (where days are counted starting at 1)
+	 */
+	public Integer currentDay() {
+		return today;
+	}
+
+	/**
+	 * @return true if the job is finished (for every warehouse at once)
+	 */
+	public boolean jobDone() {
+		return today > duration;
+	}
+
+	/**
+	 * @param warehouse the warehouse of interest (counted from zero)
+	 * @return the number of items currently in stock at that warehouse
+	 */
+	public int inStock(int warehouse) {
+		return stock[warehouse];
+	}
+
+	/**
+	 * @param warehouse the warehouse of interest (counted from zero)
+	 * @return that warehouse's current cash reserve, in dollars
+	 */
+	public int cashAvailable(int warehouse) {
+		return cash[warehouse];
+	}
+
+	/**
+	 * @param warehouse the warehouse of interest (counted from zero)
+	 * @return true if that warehouse failed to fill its most recent order
+	 */
+	public boolean orderUnfulfilled(int warehouse) {
+		return unfulfilled[warehouse];
+	}
+
+	/**
+	 * Returns the total cash reserve of the whole fleet at the end of the given day.
+	 *
+	 * @param day the day of interest
+	 * @return the fleet's total cash reserve, in dollars
+	 * @throws WarehouseException if the given day is less than 1 or
+	 * greater than the current day
+	 */
+	public long totalCash(Integer day) throws WarehouseException {
+		checkDay(day);
+		return totalCash[day - 1];
+	}
+
+	/**
+	 * Returns the total number of items in stock across the whole fleet at the
+	 * end of the given day.
+	 *
+	 * @param day the day of interest
+	 * @return the fleet's total stock, in items
+	 * @throws WarehouseException if the given day is invalid
+	 */
+	public long totalStock(Integer day) throws WarehouseException {
+		checkDay(day);
+		return totalStock[day - 1];
+	}
+
+	/**
+	 * Returns how many warehouses were insolvent at the end of the given day.
+	 *
+	 * @param day the day of interest
+	 * @return the number of warehouses with a negative cash reserve
+	 * @throws WarehouseException if the given day is invalid
+	 */
+	public int insolventCount(Integer day) throws WarehouseException {
+		checkDay(day);
+		return insolventCount[day - 1];
+	}
+
+	/**
+	 * Returns how many warehouses failed to fill their order on the given day.
+	 *
+	 * @param day the day of interest
+	 * @return the number of warehouses whose order was not filled completely
+	 * (always zero on day 1, before any orders have been placed)
+	 * @throws WarehouseException if the given day is invalid
+	 */
+	public int unfulfilledCount(Integer day) throws WarehouseException {
+		checkDay(day);
+		return unfulfilledCount[day - 1];
+	}
+
+	public String toString() {
+		return "Day " + today + ": " +
+		"Total cash reserve = $" + totalCash[today - 1] + "; " +
+		"Items in stock = " + totalStock[today - 1] + "; " +
+		"Insolvent = " + insolventCount[today - 1] + "; " +
+		"Unfulfilled orders = " + unfulfilledCount[today - 1] + "\n";
+	}
+
+	/*
+	 * Reject lookups of days before the fleet began or after today
+	 */
+	private void checkDay(Integer day) throws WarehouseException {
+		if (day <= 0 || day > today) {
+			throw new WarehouseException("Attempt to lookup nonexistent day in fleet");
+		};
+	}
+
+	/**
+	 * Run a fleet of fifty thousand warehouses (or as many as given on the
+	 * command line) with the GUI's default parameters and random orders,
+	 * printing the fleet's totals each day.
+	 *
+	 * @param args optionally, the number of warehouses
+	 * @throws WarehouseException if the default parameters are invalid
+	 */
+	public static void main(String[] args) throws WarehouseException {
+		int warehouses = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		WarehouseFleet fleet = new WarehouseFleet(warehouses,
+				SimulationComponents.DefaultWarehouseCapacity,
+				SimulationComponents.DefaultCashReserve,
+				SimulationComponents.DefaultWholesaleCostPerBox,
+				SimulationComponents.DefaultRetailPricePerBox,
+				SimulationComponents.DefaultDeliveryCharge,
+				SimulationComponents.DefaultJobDuration);
+		RestockPolicy policy = new ThresholdPolicy(SimulationComponents.DefaultMaxOrder - 1,
+				SimulationComponents.DefaultWarehouseCapacity);
+		SplittableRandom random = new SplittableRandom(SimulationComponents.DefaultRandomSeed);
+		int[] orders = new int[warehouses];
+		System.out.print(fleet);
+		long start = System.nanoTime();
+		while (!fleet.jobDone()) {
+			for (int warehouse = 0; warehouse < warehouses; warehouse++) {
+				orders[warehouse] = random.nextInt(SimulationComponents.DefaultMaxOrder);
+			};
+			fleet.nextDay(orders, policy);
+			System.out.print(fleet);
+		};
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Simulated in " + (elapsed / 1000000) + " ms using " +
+				fleet.shards.length + " shards");
+	}
+
+}
@@ -2,16 +2,22 @@ package answer;
 
 import java.util.ArrayList;
 
-import question.Ledger;
 import question.WarehouseException;
 
 /**
  * A solution to the "warehouse ledger" part of INB370 Assignment 1.
  * 
+ * A day's trading can be made all-or-nothing with <code>begin</code>,
+ * <code>commit</code> and <code>rollback</code>; rolling back just cuts the
+ * later days off the end of the ledger.
+ * 
+ * Each purchase, sale and page turn is also published as a
+ * <code>LedgerEvent</code> to anyone subscribed to <code>events()</code>.
+ * 
  * @author CAB302
  * @version 1.0
  */
-public class WarehouseLedger implements Ledger {
+public class WarehouseLedger implements TransactionalLedger {
 	
 	private Integer today = 1; // day is initially 1
 	private ArrayList<Integer> cashReserve = new ArrayList<Integer>(); // boxes
@@ -19,6 +25,10 @@ public class WarehouseLedger implements Ledger {
 	private Integer wholesaleCost; // dollars
 	private Integer retailPrice; // dollars
 	private Integer deliveryCost; // dollars
+	private final LedgerEventPublisher events = new LedgerEventPublisher();
+	private int beganOn = 0; // day the open transaction began, or 0 if none is open
+	private int beganWithStock; // items
+	private int beganWithCash; // dollars
 	
 	/**
 	 * Construct a warehouse's ledger with the supplied initial
@@ -72,30 +82,126 @@ public class WarehouseLedger implements Ledger {
 		cashReserve.add(cashReserve.get(today));
 		// Turn the page to the new day
 		today = today + 1;
+		if (events.active()) {
+			events.publish(LedgerEvent.Kind.DAY_CLOSED, today - 1, 0,
+					stockLevel.get(today), cashReserve.get(today));
+		};
+	}
+	
+	/**
+	 * Returns the publisher of this ledger's purchases, sales and page
+	 * turns, so that they can be followed without polling.
+	 * 
+	 * @return the publisher, to which any number may subscribe
+	 */
+	public LedgerEventPublisher events() {
+		return events;
+	}
+	
+	public boolean transactional() {
+		return true;
+	}
+	
+	public void begin() {
+		if (beganOn != 0) {
+			throw new IllegalStateException("A transaction is already open");
+		};
+		beganWithStock = stockLevel.get(today);
+		beganWithCash = cashReserve.get(today);
+		beganOn = today;
+		events.hold(); // until we know whether it happened
+	}
+	
+	public void commit() {
+		if (beganOn == 0) {
+			throw new IllegalStateException("No transaction is open");
+		};
+		beganOn = 0;
+		events.release();
+	}
+	
+	public void rollback() {
+		if (beganOn == 0) {
+			throw new IllegalStateException("No transaction is open");
+		};
+		// Forget any later days, and put the first day's balances back
+		stockLevel.subList(beganOn + 1, stockLevel.size()).clear();
+		cashReserve.subList(beganOn + 1, cashReserve.size()).clear();
+		stockLevel.set(beganOn, beganWithStock);
+		cashReserve.set(beganOn, beganWithCash);
+		today = beganOn;
+		beganOn = 0;
+		events.discard();
+	}
+	
+	public boolean inTransaction() {
+		return beganOn != 0;
 	}
 	
 	public boolean sellItems(Integer requested) throws WarehouseException {
+		TradeStatus status = trySell(requested);
+		if (!status.ok()) {
+			throw status.exception();
+		};
+		return status == TradeStatus.FILLED;
+	}
+	
+	public void buyItems(Integer requested) throws WarehouseException {
+		TradeStatus status = tryBuy(requested);
+		if (!status.ok()) {
+			throw status.exception();
+		};
+	}
+	
+	/**
+	 * Sells the requested number of items today, or as many as we have,
+	 * just like <code>sellItems</code>, but reports a negative request by
+	 * returning <code>NEGATIVE_SALE</code> rather than throwing an exception.
+	 * 
+	 * @param requested the number of items ordered
+	 * @return <code>FILLED</code>, <code>PARTLY_FILLED</code> or
+	 * <code>NEGATIVE_SALE</code>
+	 */
+	public TradeStatus trySell(Integer requested) {
 		// Sanity check on parameter
 		if (requested < 0) {
-			throw new WarehouseException("Attempt to sell negative number of items");
+			return TradeStatus.NEGATIVE_SALE;
 		};
 		// Sell however many we're asked for, or all that we have,
 		// whichever is smaller
 		Integer sold = Integer.valueOf(requested > stockLevel.get(today) ? stockLevel.get(today) : requested);
 		stockLevel.set(today, stockLevel.get(today) - sold);
 		cashReserve.set(today, cashReserve.get(today) + (sold * retailPrice));
+		boolean filled = requested.equals(sold);
+		if (events.active()) {
+			events.publish(filled ? LedgerEvent.Kind.SOLD : LedgerEvent.Kind.PARTLY_FILLED,
+					today, sold, stockLevel.get(today), cashReserve.get(today));
+		};
 		// Let the caller know if the order wasn't completed fully
-		return requested.equals(sold);
+		return filled ? TradeStatus.FILLED : TradeStatus.PARTLY_FILLED;
 	}
 	
-	public void buyItems(Integer requested) throws WarehouseException {
+	/**
+	 * Buys the requested number of items today, just like
+	 * <code>buyItems</code>, but reports a negative number by returning
+	 * <code>NEGATIVE_PURCHASE</code> rather than throwing an exception.
+	 * 
+	 * @param requested the number of items being purchased
+	 * @return <code>OK</code> or <code>NEGATIVE_PURCHASE</code>
+	 */
+	public TradeStatus tryBuy(Integer requested) {
 		// Sanity check on parameter
 		if (requested < 0) {
-			throw new WarehouseException("Attempt to buy negative number of items");
+			return TradeStatus.NEGATIVE_PURCHASE;
 		};
 		// We may go into debt when buying items
 		stockLevel.set(today, stockLevel.get(today) + requested);
 		cashReserve.set(today, cashReserve.get(today) - (requested * wholesaleCost) - deliveryCost);
+		if (events.active()) {
+			events.publish(LedgerEvent.Kind.BOUGHT, today, requested,
+					stockLevel.get(today), cashReserve.get(today));
+		};
+		return TradeStatus.OK;
 	}
 	
 	public Integer currentDay() {
@@ -0,0 +1,191 @@
+package answer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import question.Ledger;
+
+/**
+ * Counts of the operations performed on metered ledgers (see
+ * <code>MeteredLedger</code>), along with how long the main ledger operations take, which can be
+ * watched over JMX once registered.
+ *
+ * Metering is opt-in.  Counters are <code>LongAdder</code>s, so many threads
+ * can update the same metrics without contending for one memory location,
+ * and only one call in every <code>SAMPLE_EVERY</code> is timed, since
+ * reading the clock costs more than most ledger operations.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class WarehouseMetrics implements WarehouseMetricsMBean {
+
+	/** The system property which turns metering on in the simulator */
+	public static final String PROPERTY = "warehouse.metrics";
+
+	/** How often calls are timed: once in this many (a power of two) */
+	public static final int SAMPLE_EVERY = 64;
+
+	private static WarehouseMetrics global; // shared by the simulator's ledgers
+
+	final LongAdder buys = new LongAdder();
+	final LongAdder itemsBought = new LongAdder();
+	final LongAdder sells = new LongAdder();
+	final LongAdder itemsSold = new LongAdder();
+	final LongAdder partialFills = new LongAdder();
+	final LongAdder restockDeliveries = new LongAdder();
+	final LongAdder exceptions = new LongAdder();
+	final LongAdder daysAdvanced = new LongAdder();
+	final LatencyHistogram buyLatency = new LatencyHistogram();
+	final LatencyHistogram sellLatency = new LatencyHistogram();
+	final LatencyHistogram nextDayLatency = new LatencyHistogram();
+
+	private ObjectName name; // once registered
+
+	/**
+	 * @return true if the <code>warehouse.metrics</code> system property
+	 * asks for metering
+	 */
+	public static boolean enabled() {
+		return Boolean.getBoolean(PROPERTY);
+	}
+
+	/**
+	 * Returns the metrics shared by everything the simulator meters,
+	 * registering them (as <code>answer:type=WarehouseMetrics,name=global</code>)
+	 * the first time they are asked for.
+	 *
+	 * @return the simulator's metrics
+	 */
+	public static synchronized WarehouseMetrics global() {
+		if (global == null) {
+			global = new WarehouseMetrics();
+			try {
+				global.register("global");
+			} catch (JMException exception) {
+				// Still count, even if nobody can watch
+			}
+		};
+		return global;
+	}
+
+	/**
+	 * Meter the given ledger with the simulator's metrics, but only if the
+	 * <code>warehouse.metrics</code> system property asks for metering.
+	 *
+	 * @param ledger the ledger to meter
+	 * @return a metered view of the ledger, or the ledger itself
+	 */
+	public static Ledger meter(Ledger ledger) {
+		return enabled() ? new MeteredLedger(ledger, global()) : ledger;
+	}
+
+	/**
+	 * Publish these metrics on the platform MBean server, under the name
+	 * <code>answer:type=WarehouseMetrics,name=</code><em>name</em>.
+	 *
+	 * @param name distinguishes these metrics from any others
+	 * @throws JMException if the name is invalid or already in use
+	 */
+	public synchronized void register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("answer:type=WarehouseMetrics,name=" + ObjectName.quote(name));
+		server.registerMBean(this, objectName);
+		this.name = objectName;
+	}
+
+	/**
+	 * Stop publishing these metrics, if they were registered.
+	 *
+	 * @throws JMException if they cannot be unregistered
+	 */
+	public synchronized void unregister() throws JMException {
+		if (name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		};
+	}
+
+	public long getBuys() {
+		return buys.sum();
+	}
+
+	public long getItemsBought() {
+		return itemsBought.sum();
+	}
+
+	public long getSells() {
+		return sells.sum();
+	}
+
+	public long getItemsSold() {
+		return itemsSold.sum();
+	}
+
+	public long getPartialFills() {
+		return partialFills.sum();
+	}
+
+	public long getRestockDeliveries() {
+		return restockDeliveries.sum();
+	}
+
+	public long getExceptions() {
+		return exceptions.sum();
+	}
+
+	public long getDaysAdvanced() {
+		return daysAdvanced.sum();
+	}
+
+	public long getBuyLatencyP50() {
+		return buyLatency.percentile(0.5);
+	}
+
+	public long getBuyLatencyP99() {
+		return buyLatency.percentile(0.99);
+	}
+
+	public long getSellLatencyP50() {
+		return sellLatency.percentile(0.5);
+	}
+
+	public long getSellLatencyP99() {
+		return sellLatency.percentile(0.99);
+	}
+
+	public long getNextDayLatencyP50() {
+		return nextDayLatency.percentile(0.5);
+	}
+
+	public long getNextDayLatencyP99() {
+		return nextDayLatency.percentile(0.99);
+	}
+
+	public void reset() {
+		buys.reset();
+		itemsBought.reset();
+		sells.reset();
+		itemsSold.reset();
+		partialFills.reset();
+		restockDeliveries.reset();
+		exceptions.reset();
+		daysAdvanced.reset();
+		buyLatency.reset();
+		sellLatency.reset();
+		nextDayLatency.reset();
+	}
+
+	public String toString() {
+		return "Buys = " + getBuys() + " (" + getItemsBought() + " items); " +
+		"Sells = " + getSells() + " (" + getItemsSold() + " items, " + getPartialFills() + " partial); " +
+		"Restock deliveries = " + getRestockDeliveries() + "; " +
+		"Exceptions = " + getExceptions() + "; " +
+		"Days advanced = " + getDaysAdvanced() + "\n";
+	}
+
+}
@@ -0,0 +1,58 @@
+package answer;
+
+/**
+ * The management interface through which <code>WarehouseMetrics</code>
+ * are published over JMX (e.g., to JConsole or VisualVM).  Latencies are
+ * in nanoseconds.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public interface WarehouseMetricsMBean {
+
+	/** @return the number of purchases (calls to <code>buyItems</code>) */
+	public long getBuys();
+
+	/** @return the total number of items bought */
+	public long getItemsBought();
+
+	/** @return the number of sales (calls to <code>sellItems</code>) */
+	public long getSells();
+
+	/** @return the total number of items sold */
+	public long getItemsSold();
+
+	/** @return the number of sales which could only be filled in part */
+	public long getPartialFills();
+
+	/** @return the number of days on which the warehouse was restocked */
+	public long getRestockDeliveries();
+
+	/** @return the number of <code>WarehouseException</code>s thrown */
+	public long getExceptions();
+
+	/** @return the number of times the page was turned */
+	public long getDaysAdvanced();
+
+	/** @return the median time taken by <code>buyItems</code> */
+	public long getBuyLatencyP50();
+
+	/** @return the 99th percentile of the time taken by <code>buyItems</code> */
+	public long getBuyLatencyP99();
+
+	/** @return the median time taken by <code>sellItems</code> */
+	public long getSellLatencyP50();
+
+	/** @return the 99th percentile of the time taken by <code>sellItems</code> */
+	public long getSellLatencyP99();
+
+	/** @return the median time taken by <code>nextDay</code> */
+	public long getNextDayLatencyP50();
+
+	/** @return the 99th percentile of the time taken by <code>nextDay</code> */
+	public long getNextDayLatencyP99();
+
+	/** Sets every counter and histogram back to zero */
+	public void reset();
+
+}
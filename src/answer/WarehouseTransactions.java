@@ -1,11 +1,20 @@
 package answer;
 
+import java.util.BitSet;
+
+import question.Ledger;
 import question.Transactions;
 import question.WarehouseException;
 
 /**
  * A solution to the "warehouse transactions" part of INB370 Assignment 1.
  * 
+ * Each day's restocking, sale and page turn, and the end of the simulation
+ * (insolvency or completing the job), are also published as
+ * <code>LedgerEvent</code>s to anyone subscribed to <code>events()</code>.
+ * When the day is traded in a transaction of its own, its events are only
+ * published once it has been committed.
+ * 
  * @author CAB302
  * @version 1.0
  */
@@ -13,8 +22,9 @@ public class WarehouseTransactions implements Transactions {
 
 	private Integer maxCapacity;
 	private Integer maxDays;
-	private WarehouseLedger theLedger;
+	private Ledger theLedger;
 	private boolean lastOrderFulfilled = true;
+	private final LedgerEventPublisher events = new LedgerEventPublisher();
 
 	/**
 	 * Define the transactions you can perform while managing a warehouse of items
@@ -30,7 +40,7 @@ public class WarehouseTransactions implements Transactions {
 	public WarehouseTransactions(
 			Integer warehouseCapacity,
 			Integer jobDuration,
-			WarehouseLedger cleanLedger) throws WarehouseException {
+			Ledger cleanLedger) throws WarehouseException {
 		// Sanity checks on transaction parameters
 		if (warehouseCapacity < 0) {
 			throw new WarehouseException("Warehouse capacity may not be negative");
@@ -44,7 +54,51 @@ public class WarehouseTransactions implements Transactions {
 		theLedger = cleanLedger;
 	}
 
-	
+	/*
+	 * A fork of the given transactions, with the given fork of its ledger
+	 */
+	private WarehouseTransactions(WarehouseTransactions original, Ledger forkedLedger) {
+		maxCapacity = original.maxCapacity;
+		maxDays = original.maxDays;
+		theLedger = forkedLedger;
+		lastOrderFulfilled = original.lastOrderFulfilled;
+	}
+
+	/**
+	 * Returns new transactions, in exactly the same state as these, on a
+	 * fork of this warehouse's ledger, so that a different future can be
+	 * tried out without affecting this one.  This takes constant time, and
+	 * the fork shares its ledger's history with this one.
+	 * 
+	 * @return the new transactions
+	 * @throws UnsupportedOperationException unless the ledger is a
+	 * <code>PersistentLedger</code>
+	 */
+	public WarehouseTransactions fork() {
+		if (!(theLedger instanceof PersistentLedger)) {
+			throw new UnsupportedOperationException("Only a PersistentLedger can be forked");
+		};
+		return new WarehouseTransactions(this, ((PersistentLedger) theLedger).fork());
+	}
+
+	/**
+	 * Returns the publisher of this warehouse's events, so that they can be
+	 * followed (e.g., by a GUI) without polling.  A fork has a publisher of
+	 * its own.
+	 * 
+	 * @return the publisher, to which any number may subscribe
+	 */
+	public LedgerEventPublisher events() {
+		return events;
+	}
+
+	/**
+	 * @return the ledger these transactions are recorded in
+	 */
+	public Ledger ledger() {
+		return theLedger;
+	}
+
 	public boolean insolvent() {
 		return theLedger.cashAvailable() < 0;
 	}
@@ -58,28 +112,304 @@ public class WarehouseTransactions implements Transactions {
 	}
 	
 	public void restockAndSellStock(Integer todaysOrder) throws WarehouseException {
+		check(tryRestockAndSellStock(todaysOrder));
+	}
+
+	/**
+	 * Complete a day's transactions by (1)&nbsp;restocking the warehouse up to
+	 * the given level, (2)&nbsp;selling the ordered number of items, and
+	 * (3)&nbsp;turning the page in the ledger, in that order.  As for
+	 * <code>restockAndSellStock</code>, the delivery charge is paid even if
+	 * the warehouse is already stocked to that level.
+	 * 
+	 * @param stockLevel the number of items to restock up to, which may
+	 * not exceed the warehouse's capacity
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @throws WarehouseException if the stock level is negative or greater than
+	 * the warehouse's capacity, or today's order was negative
+	 */
+	public void restockToAndSellStock(Integer stockLevel, Integer todaysOrder) throws WarehouseException {
+		check(tryRestockToAndSellStock(stockLevel, todaysOrder));
+	}
+
+	public void sellStock(Integer todaysOrder) throws WarehouseException {
+		check(trySellStock(todaysOrder));
+	}
+
+	/**
+	 * Complete a day's transactions just like <code>restockAndSellStock</code>,
+	 * but report an invalid order by returning a failure, having done
+	 * nothing, rather than by throwing an exception.
+	 * 
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return <code>FILLED</code>, <code>PARTLY_FILLED</code>,
+	 * <code>NEGATIVE_ORDER</code> or (if the warehouse holds more than its
+	 * capacity) <code>NEGATIVE_PURCHASE</code>
+	 */
+	public TradeStatus tryRestockAndSellStock(int todaysOrder) {
 		// Sanity check on parameter
 		if (todaysOrder < 0) {
-			throw new WarehouseException("Sales order cannot be negative");
+			return TradeStatus.NEGATIVE_ORDER;
 		};
 		// Perform today's transactions
-		theLedger.buyItems(maxCapacity - theLedger.inStock());
-		lastOrderFulfilled = theLedger.sellItems(todaysOrder);
-		// "Tomorrow is another day" - Scarlett O'Hara
-		theLedger.nextDay();
+		return trade(true, maxCapacity - theLedger.inStock(), todaysOrder);
 	}
 
-	public void sellStock(Integer todaysOrder) throws WarehouseException {
+	/**
+	 * Complete a day's transactions just like <code>restockToAndSellStock</code>,
+	 * but report invalid parameters by returning a failure, having done
+	 * nothing, rather than by throwing an exception.
+	 * 
+	 * @param stockLevel the number of items to restock up to
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return <code>FILLED</code>, <code>PARTLY_FILLED</code>,
+	 * <code>BAD_RESTOCK_LEVEL</code> or <code>NEGATIVE_ORDER</code>
+	 */
+	public TradeStatus tryRestockToAndSellStock(int stockLevel, int todaysOrder) {
+		// Sanity checks on parameters
+		if (stockLevel < 0 || stockLevel > maxCapacity) {
+			return TradeStatus.BAD_RESTOCK_LEVEL;
+		};
+		if (todaysOrder < 0) {
+			return TradeStatus.NEGATIVE_ORDER;
+		};
+		// Perform today's transactions
+		return trade(true, Math.max(stockLevel - theLedger.inStock(), 0), todaysOrder);
+	}
+
+	/**
+	 * Complete a day's transactions just like <code>sellStock</code>, but
+	 * report an invalid order by returning a failure, having done nothing,
+	 * rather than by throwing an exception.
+	 * 
+	 * @param todaysOrder the number of items ordered for retail sale today
+	 * @return <code>FILLED</code>, <code>PARTLY_FILLED</code> or
+	 * <code>NEGATIVE_ORDER</code>
+	 */
+	public TradeStatus trySellStock(int todaysOrder) {
 		// Sanity check on parameter
 		if (todaysOrder < 0) {
-			throw new WarehouseException("Sales order cannot be negative");
+			return TradeStatus.NEGATIVE_ORDER;
 		};
 		// Perform today's transaction
+		return trade(false, 0, todaysOrder);
+	}
+
+	/*
+	 * Throw the exception for a failed day's trading
+	 */
+	private static void check(TradeStatus status) throws WarehouseException {
+		if (!status.ok()) {
+			throw status.exception();
+		};
+	}
+
+	/*
+	 * Restock (if asked to) and sell the (valid) order, then turn the page,
+	 * all in one transaction if the ledger supports them (and the caller
+	 * hasn't already begun one)
+	 */
+	private TradeStatus trade(boolean restocking, int items, int todaysOrder) {
+		if (restocking && items < 0) {
+			return TradeStatus.NEGATIVE_PURCHASE; // overfull to begin with
+		};
+		TransactionalLedger scope = (TransactionalLedger.supports(theLedger)
+				&& !((TransactionalLedger) theLedger).inTransaction()) ? (TransactionalLedger) theLedger : null;
+		boolean wasFulfilled = lastOrderFulfilled;
+		boolean done = false;
+		if (scope != null) {
+			events.hold(); // until the day is committed
+			scope.begin();
+		};
+		try {
+			if (restocking) {
+				restock(items);
+			};
+			sell(todaysOrder);
+			nextDay();
+			done = true;
+		} catch (WarehouseException exception) {
+			// We've already checked everything the ledger would complain about
+			throw new IllegalStateException("Ledger rejected a valid transaction", exception);
+		} finally {
+			if (scope != null && done) {
+				scope.commit();
+				events.release();
+			} else if (scope != null) {
+				// Leave the day as if it had never been attempted
+				scope.rollback();
+				lastOrderFulfilled = wasFulfilled;
+				events.discard();
+			};
+		}
+		return lastOrderFulfilled ? TradeStatus.FILLED : TradeStatus.PARTLY_FILLED;
+	}
+
+	/*
+	 * Buy the given number of items, recording a Restock event if wanted
+	 */
+	private void restock(int items) throws WarehouseException {
+		WarehouseEvents.Restock event = new WarehouseEvents.Restock();
+		event.begin();
+		theLedger.buyItems(items);
+		event.end();
+		if (event.shouldCommit()) {
+			event.day = theLedger.currentDay();
+			event.items = items;
+			event.commit();
+		};
+		if (events.active()) {
+			events.publish(LedgerEvent.Kind.BOUGHT, theLedger.currentDay(), items,
+					theLedger.inStock(), theLedger.cashAvailable());
+		};
+	}
+
+	/*
+	 * Sell the ordered number of items (or as many as we have), recording
+	 * a Sale event if wanted
+	 */
+	private void sell(int todaysOrder) throws WarehouseException {
+		WarehouseEvents.Sale event = new WarehouseEvents.Sale();
+		// Only look at the shelves beforehand if we'll need to know
+		int available = (event.isEnabled() || events.active()) ? theLedger.inStock() : 0;
+		event.begin();
 		lastOrderFulfilled = theLedger.sellItems(todaysOrder);
+		event.end();
+		if (event.shouldCommit()) {
+			event.day = theLedger.currentDay();
+			event.requested = todaysOrder;
+			event.sold = lastOrderFulfilled ? todaysOrder : available;
+			event.commit();
+		};
+		if (events.active()) {
+			events.publish(lastOrderFulfilled ? LedgerEvent.Kind.SOLD : LedgerEvent.Kind.PARTLY_FILLED,
+					theLedger.currentDay(), lastOrderFulfilled ? todaysOrder : available,
+					theLedger.inStock(), theLedger.cashAvailable());
+		};
+	}
+
+	/*
+	 * Turn the page in the ledger, recording a DayAdvance event if wanted,
+	 * and an Insolvency or JobDone event if this day ended the simulation
+	 */
+	private void nextDay() {
+		WarehouseEvents.DayAdvance event = new WarehouseEvents.DayAdvance();
+		event.begin();
 		// "Tomorrow is another day" - Scarlett O'Hara
 		theLedger.nextDay();
+		event.end();
+		if (event.shouldCommit()) {
+			event.day = theLedger.currentDay();
+			event.cash = theLedger.cashAvailable();
+			event.stock = theLedger.inStock();
+			event.commit();
+		};
+		if (events.active()) {
+			events.publish(LedgerEvent.Kind.DAY_CLOSED, theLedger.currentDay() - 1, 0,
+					theLedger.inStock(), theLedger.cashAvailable());
+		};
+		ended();
+	}
+
+	/*
+	 * Record the end of the simulation, if it has just ended (for today)
+	 */
+	private void ended() {
+		WarehouseEvents.Insolvency insolvency = new WarehouseEvents.Insolvency();
+		if (insolvency.isEnabled() && insolvent()) {
+			insolvency.day = theLedger.currentDay() - 1;
+			insolvency.cash = theLedger.cashAvailable();
+			insolvency.commit();
+		};
+		WarehouseEvents.JobDone done = new WarehouseEvents.JobDone();
+		if (done.isEnabled() && theLedger.currentDay() == maxDays + 1) {
+			done.day = maxDays;
+			done.cash = theLedger.cashAvailable();
+			done.commit();
+		};
+		if (events.active()) {
+			int closed = theLedger.currentDay() - 1;
+			if (insolvent()) {
+				events.publish(LedgerEvent.Kind.INSOLVENT, closed, 0, theLedger.inStock(), theLedger.cashAvailable());
+			};
+			if (closed == maxDays) {
+				events.publish(LedgerEvent.Kind.JOB_DONE, closed, 0, theLedger.inStock(), theLedger.cashAvailable());
+			};
+		};
 	}
 
+	/**
+	 * Complete a run of days' transactions in one go, by restocking on the
+	 * chosen days and selling the ordered number of items every day, exactly
+	 * as if <code>restockAndSellStock</code> or <code>sellStock</code> had been
+	 * called for each day in turn.  Processing stops after the first day at
+	 * the end of which we are insolvent, have failed to fill an order or have
+	 * finished the job.
+	 * 
+	 * NB: The whole run of orders is checked before any are processed, so
+	 * if any order is negative nothing at all is done.  But a warehouse
+	 * found to be overfull on a restocking day (so that restocking would
+	 * mean buying a negative number of items) is only discovered on that
+	 * day, so the exception is thrown part-way through, after the earlier
+	 * days' transactions have been completed.
+	 * 
+	 * @param orders the number of items ordered for retail sale on each day
+	 * @param restock the days (indexed as for <code>orders</code>) on which
+	 * the warehouse is restocked to capacity before selling
+	 * @return the index in <code>orders</code> of the day which ended the
+	 * simulation, or -1 if every order was processed without ending it
+	 * @throws WarehouseException if any of the orders was negative, or the
+	 * warehouse was overfull on a restocking day
+	 */
+	public int processOrders(int[] orders, BitSet restock) throws WarehouseException {
+		// Sanity check on parameters
+		for (int order : orders) {
+			if (order < 0) {
+				throw TradeStatus.NEGATIVE_ORDER.exception();
+			};
+		};
+		// Use the ledger's primitive operations directly when we can (and
+		// nobody is watching each day's events)
+		if (theLedger instanceof AbstractLedger && !WarehouseEvents.recording() && !events.active()) {
+			return processOrders((AbstractLedger) theLedger, orders, restock);
+		};
+		for (int day = 0; day < orders.length; day++) {
+			if (restock.get(day)) {
+				restock(maxCapacity - theLedger.inStock());
+			};
+			sell(orders[day]);
+			nextDay();
+			if (insolvent() || orderUnfulfilled() || jobDone()) {
+				return day;
+			};
+		};
+		return -1;
+	}
 
+	/*
+	 * The same, for ledgers whose primitive operations we can call directly
+	 */
+	private int processOrders(AbstractLedger ledger, int[] orders, BitSet restock) throws WarehouseException {
+		final int capacity = maxCapacity;
+		final int lastDay = maxDays;
+		int today = ledger.today();
+		for (int day = 0; day < orders.length; day++) {
+			if (restock.get(day)) {
+				// Refuse to "buy" a negative number of items, just as restock does
+				TradeStatus status = ledger.tryBuy(capacity - ledger.stockOn(today));
+				if (!status.ok()) {
+					throw status.exception();
+				};
+			};
+			lastOrderFulfilled = ledger.sell(orders[day]) == orders[day];
+			ledger.nextDay();
+			today++;
+			if (ledger.cashOn(today) < 0 || !lastOrderFulfilled || today > lastDay) {
+				ended();
+				return day;
+			};
+		};
+		return -1;
+	}
 
 }
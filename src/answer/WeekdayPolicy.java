@@ -0,0 +1,40 @@
+package answer;
+
+/**
+ * Restock to capacity on fixed days of each week, regardless of the
+ * stock level.  Day 1 of the simulation is taken to be the first day of
+ * the week.
+ * 
+ * @author CAB302
+ * @version 1.0
+ */
+public class WeekdayPolicy implements RestockPolicy {
+
+	private static final int DAYS_PER_WEEK = 7;
+
+	private final int weekdays; // bit n set means restock on day n of the week
+	private final int capacity; // items
+
+	/**
+	 * @param weekdays - the days of the week on which to restock, as a
+	 * bit mask (bit 0 for the first day of the week, and so on)
+	 * @param capacity - the warehouse's capacity, in items
+	 */
+	public WeekdayPolicy(int weekdays, int capacity) {
+		this.weekdays = weekdays;
+		this.capacity = capacity;
+	}
+
+	public int restockLevel(int day, int inStock, int cash) {
+		return (weekdays & (1 << ((day - 1) % DAYS_PER_WEEK))) != 0 ? capacity : NO_RESTOCK;
+	}
+
+	public String toString() {
+		StringBuilder days = new StringBuilder();
+		for (int weekday = 0; weekday < DAYS_PER_WEEK; weekday++) {
+			days.append((weekdays & (1 << weekday)) != 0 ? 'R' : '-');
+		};
+		return "Restock to " + capacity + " on days " + days;
+	}
+
+}
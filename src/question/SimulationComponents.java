@@ -7,17 +7,27 @@ import java.awt.event.ActionListener;
 import java.awt.Insets;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
 
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
 // Import the student's solution to the assignment
-import answer.WarehouseLedger;
+import answer.DemandGenerator;
+import answer.LedgerStorage;
+import answer.RestockPolicy;
+import answer.ThresholdPolicy;
+import answer.WarehouseMetrics;
 import answer.WarehouseTransactions;
 
 
@@ -41,16 +51,38 @@ public class SimulationComponents extends JPanel implements ActionListener
 	public static final Integer DefaultRetailPricePerBox = 8; // dollars
 	public static final Integer DefaultDeliveryCharge = 50; // dollars
 	public static final Integer DefaultJobDuration = 7; // days
+
+	// Choices for automatic play
+	private static final String[] PolicyNames = {
+		"Restock when an order might not be covered",
+		"Restock every day",
+		"Never restock"};
+	private static final String[] SpeedNames = {
+		"1 day per second",
+		"10 days per second",
+		"100 days per second",
+		"As fast as possible"};
+	private static final long[] SpeedDelays = {1000, 100, 10, 0}; // milliseconds per day
+	private static final long FrameNanos = 1000000000L / 30; // at most 30 updates per second
 	
 	// Buttons
 	private JButton startButton;
 	private JButton restockButton;
 	private JButton doNotRestockButton;
+	private JButton autoPlayButton;
+	private JButton pauseButton;
+	private JButton stopButton;
 	private JPanel buttons;
 
+	// Choices for automatic play (initially unavailable)
+	private JPanel autoPanel;
+	private JComboBox<String> policyChoice;
+	private JComboBox<String> speedChoice;
+
 	// Display for error messages
 	private JTextArea display;           
 	private JScrollPane textScrollPane; 
+	private SimulationLog log;
 
 	// Mutable text fields for simulation parameters
 	private JTextField seedText;       
@@ -70,10 +102,12 @@ public class SimulationComponents extends JPanel implements ActionListener
 	private enum Position {TOP, MIDDLE, BOTTOM};
 
 	// Simulation state
+	private Integer maxCapacity;
 	private Integer maxDailyOrder;
-	private Random order;
+	private DemandGenerator demand;
 	private WarehouseTransactions warehouse;
-	private WarehouseLedger ledger;
+	private Ledger ledger;
+	private AutoPlayer autoPlayer; // when playing automatically
 
 
 	/*
@@ -104,7 +138,13 @@ public class SimulationComponents extends JPanel implements ActionListener
 		display.setLineWrap(true);
 		textScrollPane = new JScrollPane(display);
 		this.add(textScrollPane, makeConstraints(Position.TOP));
-		resetDisplay("Set the initial simulation parameters and press 'Start'\n\n");
+		log = openLog();
+		String whereLogged = "";
+		if (log.file() != null) {
+			whereLogged = "The whole log is kept in " + log.file() + "\n\n";
+			display.setToolTipText("The whole log is kept in " + log.file());
+		};
+		resetDisplay("Set the initial simulation parameters and press 'Start'\n\n" + whereLogged);
 
 		// Progress bar for displaying current stock level (initially indeterminate)
 		stockPanel = new JPanel();
@@ -124,6 +164,16 @@ public class SimulationComponents extends JPanel implements ActionListener
 		retailText = addParameterPanel("Retail price per box (dollars):", DefaultRetailPricePerBox);
 		deliveryText = addParameterPanel("Delivery charge (dollars):", DefaultDeliveryCharge);
 		durationText = addParameterPanel("Job duration (days):", DefaultJobDuration);
+
+		// Panel for choosing how to play automatically (initially unavailable)
+		autoPanel = new JPanel();
+		policyChoice = new JComboBox<>(PolicyNames);
+		speedChoice = new JComboBox<>(SpeedNames);
+		autoPanel.add(new JLabel("Auto-play:"));
+		autoPanel.add(policyChoice);
+		autoPanel.add(speedChoice);
+		this.add(autoPanel, makeConstraints(Position.MIDDLE));
+		autoPanel.setVisible(false);
 		
 		// Panel for buttons
 		buttons = new JPanel();
@@ -146,23 +196,61 @@ public class SimulationComponents extends JPanel implements ActionListener
 		restockButton.setVisible(false);
 		doNotRestockButton.setVisible(false);
 
+		// Buttons for automatic play (also initially unavailable)
+		autoPlayButton = new JButton("Auto-play");
+		autoPlayButton.addActionListener(this);
+		pauseButton = new JButton("Pause");
+		pauseButton.addActionListener(this);
+		stopButton = new JButton("Stop");
+		stopButton.addActionListener(this);
+		buttons.add(autoPlayButton);
+		buttons.add(pauseButton);
+		buttons.add(stopButton);
+		autoPlayButton.setVisible(false);
+		pauseButton.setVisible(false);
+		stopButton.setVisible(false);
+
 	}
 
 	
+	/*
+	 * Keep the display area's log in the file named by the system property
+	 * warehouse.log.file, or a new temporary file (deleted when we exit) if
+	 * none is given
+	 */
+	private SimulationLog openLog() {
+		try {
+			String name = System.getProperty(SimulationLog.FILE_PROPERTY);
+			Path file;
+			if (name != null) {
+				file = Paths.get(name);
+			} else {
+				file = Files.createTempFile("warehouse", ".log");
+				file.toFile().deleteOnExit();
+			};
+			return new SimulationLog(display, SimulationLog.DEFAULT_MAX_LINES, file);
+		} catch (IOException exception) {
+			// Carry on without a log file
+			return new SimulationLog(display, SimulationLog.DEFAULT_MAX_LINES);
+		}
+	}
+
+
 	/*
 	 * Convenience method for resetting the text in the display area
 	 */
 	private void resetDisplay(String initialText) {
-		display.setText(initialText);
+		log.reset(initialText);
 	}
 
 
 	/*
 	 * Convenience method for adding text to the display area without
-	 * overwriting what's already there
+	 * overwriting what's already there (only the most recent lines are
+	 * kept in the display, but all of them go to the log file)
 	 */
 	private void appendDisplay(String newText) {
-		display.setText(display.getText() + newText);
+		log.append(newText);
 	}
 
 	
@@ -242,6 +330,19 @@ public class SimulationComponents extends JPanel implements ActionListener
 		{
 			doNotRestockPushed();
 			endSimulation();
+		}
+		else if (source == autoPlayButton)
+		{
+			startAutoPlay();
+		}
+		else if (source == pauseButton)
+		{
+			autoPlayer.togglePause();
+			pauseButton.setText(autoPlayer.isPaused() ? "Resume" : "Pause");
+		}
+		else if (source == stopButton)
+		{
+			autoPlayer.stop();
 		};
 	}
 
@@ -267,17 +368,18 @@ public class SimulationComponents extends JPanel implements ActionListener
 			if (maxDailyOrder > warehouseCapacity) {
 				throw new WarehouseException("Maximum daily order may not exceed warehouse capacity");
 			};
-			if (maxDailyOrder < 0) {
-				throw new WarehouseException("Maximum daily order may not be negative");
+			if (maxDailyOrder <= 0) {
+				throw new WarehouseException("Maximum daily order must be positive");
 			};
 			
 			// Create the warehouse ledger and transactions objects
-			ledger = new WarehouseLedger(
+			maxCapacity = warehouseCapacity;
+			ledger = WarehouseMetrics.meter(LedgerStorage.selected().newLedger(
 					warehouseCapacity, // warehouse is initially fully stocked
 					cashOnHand,
 					wholesaleCost,
 					retailPrice,
-					deliveryCharge);
+					deliveryCharge));
 			warehouse = new WarehouseTransactions(
 					warehouseCapacity,
 					jobDuration,
@@ -297,14 +399,17 @@ public class SimulationComponents extends JPanel implements ActionListener
 			startButton.setVisible(false);
 			restockButton.setVisible(true);
 			doNotRestockButton.setVisible(true);
+			autoPlayButton.setVisible(true);
+			autoPanel.setVisible(true);
 
 			// Set the length and initial value of the progress bar
 			stockLevel.setMaximum(warehouseCapacity);
 			stockLevel.setValue(warehouseCapacity);
 			stockLevel.setIndeterminate(false);
 			
-			// Initialise the random number generator
-			order = new Random(randomSeed);
+			// Initialise the random number generator (drawing the same orders
+			// for a given seed as ever)
+			demand = DemandGenerator.legacy(randomSeed, maxDailyOrder);
 			
 			// Tell the user that the simulation has started successfully
 			resetDisplay("Warehouse simulation started\n");
@@ -331,40 +436,225 @@ public class SimulationComponents extends JPanel implements ActionListener
 
 	
 	private void restockPushed() {
-		// Display the choice of action
-		appendDisplay("Action taken: Restock; ");
-		// Create today's order from retailers
-		Integer todaysOrder = order.nextInt(maxDailyOrder);
-		appendDisplay("Today's order: " + todaysOrder + 
-				(todaysOrder == 1 ? " box" : " boxes") + "\n");
-		try {
-			// Restock the warehouse and then try to fulfill today's order
-			warehouse.restockAndSellStock(todaysOrder);
-			// Display the current stock level and ledger record
-			stockLevel.setValue(ledger.inStock());
-			appendDisplay("-----\n" + ledger.toString());
-		} catch (Exception exception) { // Something has gone wrong with the student's solution
-			appendDisplay("Unexpected exception thrown!\n" + exception.toString() + "\n");
-		};
+		playDay(maxCapacity);
+		stockLevel.setValue(ledger.inStock());
 	}
 	
 	
 	private void doNotRestockPushed() {
+		playDay(RestockPolicy.NO_RESTOCK);
+		stockLevel.setValue(ledger.inStock());
+	}
+
+	
+	/*
+	 * Play one day, restocking up to the given level first (or not at all),
+	 * and display what happened.  This is called on the event dispatch thread
+	 * when playing by hand, and on the auto-play worker thread otherwise,
+	 * so it leaves the progress bar to the caller.  Returns false if the
+	 * day couldn't be played because something went wrong.
+	 */
+	private boolean playDay(int restockLevel) {
 		// Display the choice of action
-		appendDisplay("Action taken: None; ");
+		if (restockLevel == RestockPolicy.NO_RESTOCK) {
+			appendDisplay("Action taken: None; ");
+		} else if (restockLevel == maxCapacity) {
+			appendDisplay("Action taken: Restock; ");
+		} else {
+			appendDisplay("Action taken: Restock to " + restockLevel + "; ");
+		};
 		// Create today's order from retailers
-		Integer todaysOrder = order.nextInt(maxDailyOrder);
+		Integer todaysOrder = demand.nextOrder();
 		appendDisplay("Today's order: " + todaysOrder + 
 				(todaysOrder == 1 ? " box" : " boxes") + "\n");
 		try {
-			// Try to fulfill today's order
-			warehouse.sellStock(todaysOrder);
-			// Display the current stock level and ledger record
-			stockLevel.setValue(ledger.inStock());
+			// Restock the warehouse as chosen and then try to fulfill today's order
+			if (restockLevel == RestockPolicy.NO_RESTOCK) {
+				warehouse.sellStock(todaysOrder);
+			} else if (restockLevel == maxCapacity) {
+				warehouse.restockAndSellStock(todaysOrder);
+			} else {
+				warehouse.restockToAndSellStock(restockLevel, todaysOrder);
+			};
+			// Display the ledger record
 			appendDisplay("-----\n" + ledger.toString());
+			return true;
 		} catch (Exception exception) { // Something has gone wrong with the student's solution
 			appendDisplay("Unexpected exception thrown!\n" + exception.toString() + "\n");
+			return false;
+		}
+	}
+
+
+	/*
+	 * Start playing automatically, with the chosen policy and speed
+	 */
+	private void startAutoPlay() {
+		RestockPolicy policy;
+		switch (policyChoice.getSelectedIndex()) {
+		case 0:
+			policy = new ThresholdPolicy(maxDailyOrder - 1, maxCapacity);
+			break;
+		case 1:
+			policy = (day, inStock, cash) -> maxCapacity;
+			break;
+		default:
+			policy = (day, inStock, cash) -> RestockPolicy.NO_RESTOCK;
+			break;
 		}
+		appendDisplay("Auto-play: " + policyChoice.getSelectedItem() + ", " +
+				speedChoice.getSelectedItem() + "\n");
+		// Hand the simulation over to the worker until it's done
+		restockButton.setEnabled(false);
+		doNotRestockButton.setEnabled(false);
+		policyChoice.setEnabled(false);
+		speedChoice.setEnabled(false);
+		autoPlayButton.setVisible(false);
+		pauseButton.setText("Pause");
+		pauseButton.setVisible(true);
+		stopButton.setVisible(true);
+		autoPlayer = new AutoPlayer(policy, SpeedDelays[speedChoice.getSelectedIndex()]);
+		autoPlayer.execute();
+	}
+
+
+	/*
+	 * Plays the simulation in the background, a day at a time, until the
+	 * game ends or the user stops it.  Snapshots of the stock level and cash
+	 * reserve are passed back to the event dispatch thread no more often
+	 * than the display can usefully show them.
+	 */
+	private class AutoPlayer extends SwingWorker<Void, int[]> {
+
+		private final RestockPolicy policy;
+		private final long delayMillis; // between days
+		private final Object pauseLock = new Object();
+		private boolean paused = false;
+		private volatile boolean stopped = false;
+
+		AutoPlayer(RestockPolicy policy, long delayMillis) {
+			this.policy = policy;
+			this.delayMillis = delayMillis;
+		}
+
+		protected Void doInBackground() throws InterruptedException {
+			long lastFrame = System.nanoTime();
+			while (!stopped && !gameOver()) {
+				waitWhilePaused();
+				if (stopped) {
+					break;
+				};
+				if (!playDay(policy.restockLevel(ledger.currentDay(), ledger.inStock(), ledger.cashAvailable()))) {
+					// It will probably go wrong again, so hand back to the user
+					appendDisplay("Auto-play stopped\n");
+					break;
+				};
+				if (System.nanoTime() - lastFrame >= FrameNanos) {
+					publish(new int[] {ledger.inStock(), ledger.cashAvailable()});
+					lastFrame = System.nanoTime();
+				};
+				pauseFor(delayMillis);
+			};
+			return null;
+		}
+
+		/*
+		 * Show only the latest of the snapshots waiting (on the event
+		 * dispatch thread)
+		 */
+		protected void process(List<int[]> snapshots) {
+			int[] latest = snapshots.get(snapshots.size() - 1);
+			showSnapshot(latest[0], latest[1]);
+		}
+
+		/*
+		 * Hand the simulation back once the worker has finished (on the
+		 * event dispatch thread)
+		 */
+		protected void done() {
+			stockLevel.setValue(ledger.inStock());
+			stockLevel.setString(null);
+			pauseButton.setVisible(false);
+			stopButton.setVisible(false);
+			autoPlayButton.setVisible(true);
+			restockButton.setEnabled(true);
+			doNotRestockButton.setEnabled(true);
+			policyChoice.setEnabled(true);
+			speedChoice.setEnabled(true);
+			try {
+				get();
+				if (stopped) {
+					appendDisplay("Auto-play stopped\n");
+				};
+			} catch (Exception exception) { // Something has gone wrong with the policy or solution
+				appendDisplay("Unexpected exception thrown!\n" + exception.toString() + "\n");
+			}
+			endSimulation();
+			if (gameOver()) {
+				autoPlayButton.setEnabled(false);
+			};
+		}
+
+		void togglePause() {
+			synchronized (pauseLock) {
+				paused = !paused;
+				pauseLock.notifyAll();
+			}
+		}
+
+		boolean isPaused() {
+			synchronized (pauseLock) {
+				return paused;
+			}
+		}
+
+		void stop() {
+			synchronized (pauseLock) {
+				stopped = true;
+				pauseLock.notifyAll();
+			}
+		}
+
+		private void waitWhilePaused() throws InterruptedException {
+			synchronized (pauseLock) {
+				while (paused && !stopped) {
+					pauseLock.wait();
+				};
+			}
+		}
+
+		/*
+		 * Wait between days, waking early if stopped or paused
+		 */
+		private void pauseFor(long millis) throws InterruptedException {
+			if (millis == 0) {
+				return;
+			};
+			long deadline = System.currentTimeMillis() + millis;
+			synchronized (pauseLock) {
+				long remaining;
+				while (!stopped && !paused && (remaining = deadline - System.currentTimeMillis()) > 0) {
+					pauseLock.wait(remaining);
+				};
+			}
+		}
+	}
+
+
+	/*
+	 * Show a snapshot of the warehouse on the progress bar
+	 */
+	private void showSnapshot(int inStock, int cash) {
+		stockLevel.setValue(inStock);
+		stockLevel.setString(inStock + " boxes, $" + cash);
+	}
+
+
+	/*
+	 * Has the game reached one of its termination conditions?
+	 */
+	private boolean gameOver() {
+		return warehouse.insolvent() || warehouse.orderUnfulfilled() || warehouse.jobDone();
 	}
 
 	
@@ -378,16 +668,19 @@ public class SimulationComponents extends JPanel implements ActionListener
 						"-----\nClose the window to end the simulation\n");
 				restockButton.setEnabled(false);
 				doNotRestockButton.setEnabled(false);
+				autoPlayButton.setEnabled(false);
 			} else if (warehouse.orderUnfulfilled()) {
 				appendDisplay("You let our best customer down - you're fired!\n" +
 						"-----\nClose the window to end the simulation\n");
 				restockButton.setEnabled(false);
 				doNotRestockButton.setEnabled(false);
+				autoPlayButton.setEnabled(false);
 			} else if (warehouse.jobDone()) {
 				appendDisplay("Congratulations on a job well done!  Here's your pay.\n" +
 						"-----\nClose the window to end the simulation\n");
 				restockButton.setEnabled(false);
 				doNotRestockButton.setEnabled(false);
+				autoPlayButton.setEnabled(false);
 			}
 		} catch (Exception exception) { // Something has gone wrong with the student's solution
 			appendDisplay("Unexpected exception thrown!\n" + exception.toString() + "\n");
@@ -0,0 +1,261 @@
+package question;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.Element;
+
+/**
+ * The simulation's running commentary, shown in a text area which only
+ * ever holds the most recent lines, so that long simulations neither slow
+ * down nor run out of memory.  Every line is also written to a log file
+ * (if one is given), where the lines which have scrolled out of the text
+ * area can still be found.
+ *
+ * Text may be added from any thread, and returns immediately.  Text added
+ * in quick succession is gathered up and added to the text area in one
+ * go, on the Swing event dispatch thread, and written to the file by a
+ * thread of its own.  If the file falls so far behind that a megabyte or
+ * so of text is waiting for it, further text is left out of the file (but
+ * still shown) until it catches up, and a note of how much was left out is
+ * written in its place.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class SimulationLog {
+
+	/** The system property naming the log file used by the GUI */
+	public static final String FILE_PROPERTY = "warehouse.log.file";
+
+	/** How many lines the GUI's text area keeps by default */
+	public static final int DEFAULT_MAX_LINES = 1000;
+
+	/*
+	 * How many characters, per line displayed, may be waiting for the
+	 * text area before the oldest are dropped
+	 */
+	private static final int CHARS_PER_LINE = 256;
+
+	/*
+	 * How many characters may be waiting for the file before new text is
+	 * left out of it
+	 */
+	private static final int MAX_FILE_PENDING = 1 << 20;
+
+	private final JTextArea display;
+	private final int maxLines;
+	private final int maxPending; // characters
+	private final Path file;
+	private final Writer out;
+	private final Thread writer;
+
+	// Text waiting to be shown or written, guarded by the lock
+	private final Object lock = new Object();
+	private final StringBuilder forDisplay = new StringBuilder();
+	private final StringBuilder forFile = new StringBuilder();
+	private long leftOut = 0; // characters not written to the file
+	private boolean replaceDisplay = false; // rather than add to it
+	private boolean updateScheduled = false;
+	private boolean closed = false;
+	private IOException failure;
+
+	/**
+	 * Show the log in the given text area, keeping no more than the given
+	 * number of lines, without writing it anywhere else.
+	 *
+	 * @param display where to show the most recent lines
+	 * @param maxLines how many lines to keep in the text area
+	 */
+	public SimulationLog(JTextArea display, int maxLines) {
+		this.display = display;
+		this.maxLines = maxLines;
+		maxPending = maxLines * CHARS_PER_LINE;
+		file = null;
+		out = null;
+		writer = null;
+	}
+
+	/**
+	 * Show the log in the given text area, keeping no more than the given
+	 * number of lines, and write all of it to the given file (replacing
+	 * anything the file contained before).
+	 *
+	 * @param display where to show the most recent lines
+	 * @param maxLines how many lines to keep in the text area
+	 * @param file where to write the whole log
+	 * @throws IOException if the file cannot be written
+	 */
+	public SimulationLog(JTextArea display, int maxLines, Path file) throws IOException {
+		this.display = display;
+		this.maxLines = maxLines;
+		maxPending = maxLines * CHARS_PER_LINE;
+		this.file = file;
+		out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		writer = new Thread(this::writeFile, "Simulation log writer");
+		writer.setDaemon(true);
+		writer.start();
+		// Don't lose the end of the log when the window is closed
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	/**
+	 * @return the file the whole log is written to, or null if there is none
+	 */
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Adds text to the end of the log.
+	 *
+	 * @param newText the text to add
+	 */
+	public void append(String newText) {
+		synchronized (lock) {
+			forDisplay.append(newText);
+			if (forDisplay.length() > maxPending) {
+				// The text area has fallen so far behind that anything it's
+				// showing, and the oldest of what's waiting, is out of date
+				int start = forDisplay.indexOf("\n", forDisplay.length() - (maxPending / 2));
+				forDisplay.delete(0, start < 0 ? forDisplay.length() - (maxPending / 2) : start + 1);
+				replaceDisplay = true;
+			};
+			written(newText);
+		}
+	}
+
+	/**
+	 * Replaces everything shown in the text area with the given text, which
+	 * is also added to the log file.
+	 *
+	 * @param initialText the text to show
+	 */
+	public void reset(String initialText) {
+		synchronized (lock) {
+			forDisplay.setLength(0);
+			forDisplay.append(initialText);
+			replaceDisplay = true;
+			written(initialText);
+		}
+	}
+
+	/**
+	 * Writes everything logged so far to the file, and stops writing to it.
+	 * Anything logged afterwards is only shown in the text area.
+	 */
+	public void close() {
+		if (writer == null) {
+			return;
+		};
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Pass new text on to the text area and the file (with the lock held)
+	 */
+	private void written(String newText) {
+		if (out != null && !closed && failure == null) {
+			if (forFile.length() + newText.length() > MAX_FILE_PENDING) {
+				leftOut += newText.length();
+			} else {
+				noteLeftOut();
+				forFile.append(newText);
+				lock.notifyAll();
+			};
+		};
+		if (!updateScheduled) {
+			updateScheduled = true;
+			SwingUtilities.invokeLater(this::updateDisplay);
+		};
+	}
+
+	/*
+	 * Say in the file how much text has been left out of it, if any, since
+	 * it was last said (with the lock held)
+	 */
+	private void noteLeftOut() {
+		if (leftOut > 0) {
+			forFile.append("[" + leftOut + " characters of the log were left out here,"
+					+ " because the file could not keep up]\n");
+			leftOut = 0;
+		};
+	}
+
+	/*
+	 * Add everything waiting to the text area, then drop the oldest lines
+	 * if there are too many (run on the event dispatch thread)
+	 */
+	private void updateDisplay() {
+		String newText;
+		boolean replace;
+		synchronized (lock) {
+			newText = forDisplay.toString();
+			forDisplay.setLength(0);
+			replace = replaceDisplay;
+			replaceDisplay = false;
+			updateScheduled = false;
+		}
+		if (replace) {
+			display.setText(newText);
+		} else {
+			display.append(newText);
+		};
+		// Only trim now and then, so that we're not forever removing one line
+		Element lines = display.getDocument().getDefaultRootElement();
+		int excess = lines.getElementCount() - maxLines;
+		if (excess > maxLines / 4) {
+			display.replaceRange("", 0, lines.getElement(excess - 1).getEndOffset());
+		};
+	}
+
+	/*
+	 * Write whatever has been logged to the file, as it arrives, until the
+	 * log is closed (run on the writer thread)
+	 */
+	private void writeFile() {
+		try {
+			while (true) {
+				String newText;
+				synchronized (lock) {
+					while (forFile.length() == 0 && !closed) {
+						lock.wait();
+					};
+					if (closed) {
+						noteLeftOut();
+					};
+					if (forFile.length() == 0) {
+						break; // closed, with everything written
+					};
+					newText = forFile.toString();
+					forFile.setLength(0);
+				}
+				out.write(newText);
+				out.flush();
+			};
+			out.close();
+		} catch (IOException exception) {
+			synchronized (lock) {
+				failure = exception;
+				forFile.setLength(0);
+			}
+			append("Cannot write log file " + file + ": " + exception.getMessage() + "\n");
+		} catch (InterruptedException exception) {
+			// Nobody else interrupts this thread, so just stop
+		}
+	}
+
+}
@@ -20,4 +20,17 @@ public class WarehouseException extends Exception {
 	public WarehouseException(String message) {
 		super("Warehouse Exception: " + message);
 	}
+
+	/**
+	 * Creates a new instance of WarehouseException which may be thrown
+	 * over and over again, because it has no stack trace (or suppressed
+	 * exceptions) of its own.  Such exceptions are much cheaper to throw,
+	 * but don't say where they were thrown from.
+	 * 
+	 * @param message an informative message about the problem found
+	 * @param stackTrace whether the exception should record a stack trace
+	 */
+	public WarehouseException(String message, boolean stackTrace) {
+		super("Warehouse Exception: " + message, null, stackTrace, stackTrace);
+	}
 }
@@ -0,0 +1,274 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the AsyncTransactions class
+ */
+public class AsyncTransactionsTest {
+
+	// Simulation parameters
+	final int capacity = 20;
+	final int cash = 80;
+	final int maxOrder = 15;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+	final int duration = 7;
+
+	WarehouseTransactions warehouse;
+	List<Runnable> held; // tasks given to the executor but not yet run
+	AsyncTransactions async;
+
+	private WarehouseTransactions newWarehouse() throws WarehouseException {
+		return new WarehouseTransactions(capacity, duration,
+				new PrimitiveLedger(capacity, cash, wholesale, retail, delivery));
+	}
+
+	/*
+	 * Trade through an executor which only runs tasks when told to
+	 */
+	@BeforeEach @Test
+	public void setUpAsync() throws WarehouseException {
+		warehouse = newWarehouse();
+		held = new ArrayList<Runnable>();
+		async = new AsyncTransactions(warehouse, held::add);
+	}
+
+	private void runHeld() {
+		while (!held.isEmpty()) {
+			held.remove(0).run();
+		};
+	}
+
+	/*
+	 * Test that days are traded in order, just as they would be synchronously
+	 */
+	@Test
+	public void SameAsSynchronous() throws WarehouseException, InterruptedException, ExecutionException {
+		WarehouseTransactions expected = newWarehouse();
+		Random random = new Random(1);
+		List<CompletableFuture<AsyncTransactions.Outcome>> outcomes =
+				new ArrayList<CompletableFuture<AsyncTransactions.Outcome>>();
+		List<TradeStatus> statuses = new ArrayList<TradeStatus>();
+		for (int day = 1; day <= 30; day++) {
+			int order = random.nextInt(maxOrder);
+			if (day % 3 == 0) {
+				outcomes.add(async.restockAndSellStock(order));
+				statuses.add(expected.tryRestockAndSellStock(order));
+			} else if (day % 5 == 0) {
+				outcomes.add(async.restockToAndSellStock(capacity / 2, order));
+				statuses.add(expected.tryRestockToAndSellStock(capacity / 2, order));
+			} else {
+				outcomes.add(async.sellStock(order));
+				statuses.add(expected.trySellStock(order));
+			};
+		};
+		assertFalse(outcomes.get(0).isDone());
+		runHeld();
+		for (int day = 1; day <= 30; day++) {
+			AsyncTransactions.Outcome outcome = outcomes.get(day - 1).get();
+			assertEquals(outcome.status(), statuses.get(day - 1));
+			assertEquals(outcome.day(), day + 1);
+		};
+		AsyncTransactions.Outcome last = outcomes.get(29).get();
+		assertEquals(last.insolvent(), expected.insolvent());
+		assertEquals(last.orderUnfulfilled(), expected.orderUnfulfilled());
+		assertTrue(last.jobDone());
+		assertEquals(warehouse.ledger().toString(), expected.ledger().toString());
+	}
+
+	/*
+	 * Test that everything queued while the writer waits goes in one batch
+	 */
+	@Test
+	public void QueuedOperationsBatched() {
+		for (int day = 0; day < 100; day++) {
+			async.sellStock(1);
+		};
+		assertEquals(held.size(), 1);
+		runHeld();
+		assertEquals(async.operations(), 100);
+		assertEquals(async.batches(), 1);
+		async.sellStock(1);
+		runHeld();
+		assertEquals(async.operations(), 101);
+		assertEquals(async.batches(), 2);
+	}
+
+	/*
+	 * Test that very long queues are split into batches
+	 */
+	@Test
+	public void LongQueuesSplit() {
+		for (int day = 0; day < 3 * AsyncTransactions.MAX_BATCH; day++) {
+			async.sellStock(0);
+		};
+		runHeld();
+		assertEquals(async.batches(), 3);
+		assertEquals((int) warehouse.ledger().currentDay(), 3 * AsyncTransactions.MAX_BATCH + 1);
+	}
+
+	/*
+	 * Test that invalid orders are reported, and don't upset later days
+	 */
+	@Test
+	public void InvalidOrdersReported() throws InterruptedException, ExecutionException {
+		CompletableFuture<AsyncTransactions.Outcome> bad = async.sellStock(-1);
+		CompletableFuture<AsyncTransactions.Outcome> badLevel = async.restockToAndSellStock(capacity + 1, 1);
+		CompletableFuture<AsyncTransactions.Outcome> good = async.sellStock(capacity + 1);
+		runHeld();
+		assertEquals(bad.get().status(), TradeStatus.NEGATIVE_ORDER);
+		assertEquals(bad.get().day(), 1);
+		assertEquals(badLevel.get().status(), TradeStatus.BAD_RESTOCK_LEVEL);
+		assertEquals(good.get().status(), TradeStatus.PARTLY_FILLED);
+		assertTrue(good.get().orderUnfulfilled());
+		assertEquals(good.get().day(), 2);
+	}
+
+	/*
+	 * Test that a snapshot is taken after the days queued before it
+	 */
+	@Test
+	public void SnapshotInOrder() throws InterruptedException, ExecutionException {
+		async.sellStock(1);
+		CompletableFuture<AsyncTransactions.Outcome> before = async.snapshot();
+		async.sellStock(1);
+		runHeld();
+		assertEquals(before.get().status(), TradeStatus.OK);
+		assertEquals(before.get().day(), 2);
+		assertEquals(async.snapshot().isDone(), false);
+	}
+
+	/*
+	 * Test that a failing ledger fails only the day it failed on
+	 */
+	@Test
+	public void FailuresCompleteExceptionally() throws WarehouseException, InterruptedException, ExecutionException {
+		PrimitiveLedger failing = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery) {
+			protected int sell(int requested) {
+				if (requested == 13) {
+					throw new IllegalStateException("Unlucky");
+				};
+				return super.sell(requested);
+			}
+		};
+		AsyncTransactions unlucky = new AsyncTransactions(
+				new WarehouseTransactions(capacity, duration, failing), held::add);
+		CompletableFuture<AsyncTransactions.Outcome> failed = unlucky.sellStock(13);
+		CompletableFuture<AsyncTransactions.Outcome> next = unlucky.sellStock(12);
+		runHeld();
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+			failed.get();
+		});
+		assertTrue(exception.getCause() instanceof IllegalStateException);
+		assertEquals(next.get().day(), 2);
+	}
+
+	/*
+	 * Test that an Error from the ledger fails its day without leaving the
+	 * rest of the batch pending
+	 */
+	@Test
+	public void ErrorsCompleteExceptionally() throws WarehouseException, InterruptedException, ExecutionException {
+		PrimitiveLedger failing = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery) {
+			protected int sell(int requested) {
+				if (requested == 13) {
+					throw new AssertionError("Unlucky");
+				};
+				return super.sell(requested);
+			}
+		};
+		AsyncTransactions unlucky = new AsyncTransactions(
+				new WarehouseTransactions(capacity, duration, failing), held::add);
+		CompletableFuture<AsyncTransactions.Outcome> failed = unlucky.sellStock(13);
+		CompletableFuture<AsyncTransactions.Outcome> next = unlucky.sellStock(12);
+		runHeld();
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+			failed.get();
+		});
+		assertTrue(exception.getCause() instanceof AssertionError);
+		assertEquals(next.get().day(), 2);
+	}
+
+	/*
+	 * Test that days which can't be handed to the executor fail, and that
+	 * later days are tried again once it accepts them
+	 */
+	@Test
+	public void RejectedDaysFail() throws InterruptedException, ExecutionException {
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		writer.shutdown();
+		AsyncTransactions refused = new AsyncTransactions(warehouse, writer);
+		CompletableFuture<AsyncTransactions.Outcome> failed = refused.sellStock(1);
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+			failed.get(10, TimeUnit.SECONDS);
+		});
+		assertTrue(exception.getCause() instanceof RejectedExecutionException);
+		assertEquals((int) warehouse.ledger().currentDay(), 1);
+		// Still usable through an executor which does accept it
+		boolean[] reject = {true};
+		AsyncTransactions fussy = new AsyncTransactions(warehouse, task -> {
+			if (reject[0]) {
+				throw new RejectedExecutionException("Busy");
+			};
+			held.add(task);
+		});
+		assertTrue(fussy.sellStock(1).isCompletedExceptionally());
+		reject[0] = false;
+		CompletableFuture<AsyncTransactions.Outcome> accepted = fussy.sellStock(1);
+		runHeld();
+		assertEquals(accepted.get().day(), 2);
+	}
+
+	/*
+	 * Test that many threads can submit at once, each seeing its own days
+	 * traded in the order it submitted them
+	 */
+	@Test
+	public void ConcurrentSubmitters() throws Exception {
+		final int threads = 4;
+		final int days = 5000;
+		ExecutorService writer = Executors.newFixedThreadPool(2);
+		ExecutorService submitters = Executors.newFixedThreadPool(threads);
+		AsyncTransactions shared = new AsyncTransactions(warehouse, writer);
+		List<CompletableFuture<List<CompletableFuture<AsyncTransactions.Outcome>>>> submitted =
+				new ArrayList<CompletableFuture<List<CompletableFuture<AsyncTransactions.Outcome>>>>();
+		for (int thread = 0; thread < threads; thread++) {
+			submitted.add(CompletableFuture.supplyAsync(() -> {
+				List<CompletableFuture<AsyncTransactions.Outcome>> mine =
+						new ArrayList<CompletableFuture<AsyncTransactions.Outcome>>();
+				for (int day = 0; day < days; day++) {
+					mine.add(shared.restockAndSellStock(1));
+				};
+				return mine;
+			}, submitters));
+		};
+		for (CompletableFuture<List<CompletableFuture<AsyncTransactions.Outcome>>> thread : submitted) {
+			int previous = 0;
+			for (CompletableFuture<AsyncTransactions.Outcome> outcome : thread.get()) {
+				int day = outcome.get(10, TimeUnit.SECONDS).day();
+				assertTrue(day > previous);
+				previous = day;
+			};
+		};
+		assertEquals(shared.snapshot().get().day(), threads * days + 1);
+		assertEquals(shared.operations(), threads * days + 1);
+		writer.shutdown();
+		submitters.shutdown();
+	}
+
+}
@@ -0,0 +1,148 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the BatchKernel class (and whichever kernel
+ * BatchKernel.create chooses)
+ */
+public class BatchKernelTest {
+
+	/*
+	 * The GUI's default simulation parameters, but with a longer job
+	 */
+	final int capacity = 20; // items
+	final int cash = 80; // dollars
+	final int maxOrder = 15; // items
+	final int wholesale = 5; // dollars
+	final int retail = 8; // dollars
+	final int delivery = 50; // dollars
+	final int duration = 30; // days
+
+	final int lanes = 1003; // deliberately not a multiple of any vector length
+
+	/*
+	 * Play every lane with random orders and restocking decisions, checking
+	 * each day that every lane matches a warehouse traded the same way
+	 */
+	private void checkAgainstTransactions(BatchKernel kernel, int initialStock, int initialCash, long seed)
+			throws WarehouseException {
+		WarehouseTransactions[] warehouses = new WarehouseTransactions[lanes];
+		boolean[] ended = new boolean[lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			warehouses[lane] = new WarehouseTransactions(capacity, duration,
+					new WarehouseLedger(initialStock, initialCash, wholesale, retail, delivery));
+		};
+		SplittableRandom random = new SplittableRandom(seed);
+		int[] orders = new int[lanes];
+		int[] levels = new int[lanes];
+		int trading = lanes;
+		for (int day = 1; day <= duration; day++) {
+			for (int lane = 0; lane < lanes; lane++) {
+				orders[lane] = random.nextInt(maxOrder);
+				levels[lane] = random.nextBoolean() ? RestockPolicy.NO_RESTOCK : random.nextInt(capacity + 1);
+				if (ended[lane]) {
+					continue;
+				};
+				WarehouseTransactions warehouse = warehouses[lane];
+				if (levels[lane] == RestockPolicy.NO_RESTOCK) {
+					warehouse.sellStock(orders[lane]);
+				} else {
+					warehouse.restockToAndSellStock(levels[lane], orders[lane]);
+				};
+				if (warehouse.insolvent() || warehouse.orderUnfulfilled() || warehouse.jobDone()) {
+					ended[lane] = true;
+					trading--;
+				};
+			};
+			assertEquals(kernel.trade(orders, levels), trading);
+			for (int lane = 0; lane < lanes; lane++) {
+				WarehouseTransactions warehouse = warehouses[lane];
+				assertEquals(kernel.stock(lane), (int) warehouse.ledger().inStock());
+				assertEquals(kernel.cash(lane), (int) warehouse.ledger().cashAvailable());
+				assertEquals(kernel.day(lane), (int) warehouse.ledger().currentDay());
+				int expected = warehouse.insolvent() ? BatchKernel.BANKRUPT
+						: warehouse.orderUnfulfilled() ? BatchKernel.UNFULFILLED
+						: warehouse.jobDone() ? BatchKernel.COMPLETED : BatchKernel.TRADING;
+				assertEquals(kernel.outcome(lane), expected, "Lane " + lane + " on day " + day);
+			};
+		};
+		assertEquals(kernel.trading(), 0);
+	}
+
+	@Test
+	public void ScalarMatchesTransactions() throws WarehouseException {
+		checkAgainstTransactions(new BatchKernel(lanes, capacity, capacity, cash,
+				wholesale, retail, delivery, duration), capacity, cash, 1);
+	}
+
+	@Test
+	public void ChosenKernelMatchesTransactions() throws WarehouseException {
+		checkAgainstTransactions(BatchKernel.create(lanes, capacity, capacity, cash,
+				wholesale, retail, delivery, duration), capacity, cash, 2);
+	}
+
+	/*
+	 * Test with enough cash that many lanes finish the job
+	 */
+	@Test
+	public void WealthyMatchesTransactions() throws WarehouseException {
+		checkAgainstTransactions(BatchKernel.create(lanes, capacity, 5, 100000,
+				wholesale, retail, delivery, duration), 5, 100000, 3);
+	}
+
+	/*
+	 * Test that decisions come from the policy, and stop once a lane ends
+	 */
+	@Test
+	public void PolicyConsulted() throws WarehouseException {
+		BatchKernel kernel = BatchKernel.create(3, capacity, capacity, cash,
+				wholesale, retail, delivery, duration);
+		int[] levels = new int[] {7, 7, 7};
+		kernel.decide(new ThresholdPolicy(10, capacity), levels);
+		assertArrayEquals(levels, new int[] {RestockPolicy.NO_RESTOCK, RestockPolicy.NO_RESTOCK,
+				RestockPolicy.NO_RESTOCK});
+		kernel.trade(new int[] {15, 0, capacity + 1}, levels);
+		assertEquals(kernel.outcome(2), BatchKernel.UNFULFILLED);
+		levels[2] = 7;
+		kernel.decide(new ThresholdPolicy(10, capacity), levels);
+		assertArrayEquals(levels, new int[] {capacity, RestockPolicy.NO_RESTOCK, 7});
+	}
+
+	@Test
+	public void InvalidDaysRejected() throws WarehouseException {
+		BatchKernel kernel = BatchKernel.create(2, capacity, capacity, cash,
+				wholesale, retail, delivery, duration);
+		assertThrows(WarehouseException.class, () -> {
+			kernel.trade(new int[] {1, -1}, new int[] {-1, -1});
+		});
+		assertThrows(WarehouseException.class, () -> {
+			kernel.trade(new int[] {1, 1}, new int[] {capacity + 1, -1});
+		});
+		assertThrows(WarehouseException.class, () -> {
+			kernel.trade(new int[] {1, 1}, new int[] {-2, -1});
+		});
+		// Nothing was traded
+		assertEquals(kernel.day(0), 1);
+		assertEquals(kernel.stock(0), capacity);
+	}
+
+	@Test
+	public void InvalidParametersRejected() {
+		assertThrows(WarehouseException.class, () -> {
+			BatchKernel.create(10, capacity, capacity + 1, cash, wholesale, retail, delivery, duration);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			BatchKernel.create(10, capacity, capacity, cash, retail + 1, retail, delivery, duration);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			BatchKernel.create(10, capacity, capacity, cash, wholesale, retail, delivery, 0);
+		});
+	}
+
+}
@@ -0,0 +1,194 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import answer.ConcurrentLedger;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the ConcurrentLedger class
+ *
+ * NB: All of the LedgerTest tests are inherited, so the concurrent ledger
+ * must behave identically to the original one when used by one thread.
+ * The tests below check that it stays consistent when used by many.
+ */
+public class ConcurrentLedgerTest extends LedgerTest {
+
+	private static final int THREADS = 8;
+	private static final int SALES_PER_THREAD = 20000;
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new ConcurrentLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+	}
+
+	/*
+	 * Test that history survives many new chunks being added
+	 */
+	@Test
+	public void LongHistoryRemembered() throws WarehouseException {
+		final int days = 10000;
+		for (int day = 1; day < days; day++) {
+			typicalLedger.buyItems(day % 3);
+			typicalLedger.sellItems(day % 5);
+			typicalLedger.nextDay();
+		};
+		Ledger reference = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		for (int day = 1; day < days; day++) {
+			reference.buyItems(day % 3);
+			reference.sellItems(day % 5);
+			reference.nextDay();
+		};
+		for (int day = 1; day <= days; day++) {
+			assertEquals(reference.inStock(day), typicalLedger.inStock(day));
+			assertEquals(reference.cashAvailable(day), typicalLedger.cashAvailable(day));
+		};
+	}
+
+	/*
+	 * Test that many threads selling (and one turning the pages) never sell
+	 * more than was in stock, and that every sale is accounted for exactly once
+	 */
+	@Test
+	public void NoOversellUnderContention() throws Exception {
+		final int initialStock = 50000; // less than the threads try to sell
+		final int retailPrice = 3;
+		ConcurrentLedger ledger = new ConcurrentLedger(initialStock, 0, 1, retailPrice, 0);
+		AtomicLong totalSold = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] sellers = new Thread[THREADS];
+		for (int thread = 0; thread < THREADS; thread++) {
+			final long seed = thread;
+			sellers[thread] = new Thread(() -> {
+				Random random = new Random(seed);
+				long sold = 0;
+				try {
+					start.await();
+				} catch (InterruptedException exception) {
+					return;
+				}
+				for (int sale = 0; sale < SALES_PER_THREAD; sale++) {
+					int requested = random.nextInt(5);
+					int result = ledger.sell(requested);
+					assertTrue(result >= 0 && result <= requested);
+					sold += result;
+				};
+				totalSold.addAndGet(sold);
+			});
+			sellers[thread].start();
+		};
+		Thread pageTurner = new Thread(() -> {
+			for (int day = 1; day < 5000; day++) {
+				ledger.nextDay();
+				Thread.yield();
+			};
+		});
+		pageTurner.start();
+		start.countDown();
+		for (Thread seller : sellers) {
+			seller.join();
+		};
+		pageTurner.join();
+		// Everything was sold, and paid for, but no more than that
+		assertEquals(initialStock, totalSold.get());
+		assertEquals(Integer.valueOf(0), ledger.inStock());
+		assertEquals(Integer.valueOf(initialStock * retailPrice), ledger.cashAvailable());
+		// Each day's balances must agree with each other
+		int previousStock = initialStock;
+		for (int day = 1; day <= ledger.currentDay(); day++) {
+			int stockLevel = ledger.inStock(day);
+			assertTrue(stockLevel >= 0 && stockLevel <= previousStock);
+			assertEquals(Integer.valueOf((initialStock - stockLevel) * retailPrice), ledger.cashAvailable(day));
+			previousStock = stockLevel;
+		};
+	}
+
+	/*
+	 * Test that purchases and sales made at the same time all land, with
+	 * the cash reserve agreeing exactly with the stock movements
+	 */
+	@Test
+	public void BuyingAndSellingTogether() throws Exception {
+		ConcurrentLedger ledger = new ConcurrentLedger(0, 0, 2, 5, 1);
+		AtomicLong totalSold = new AtomicLong();
+		Thread[] workers = new Thread[THREADS];
+		for (int thread = 0; thread < THREADS; thread++) {
+			final boolean buyer = (thread % 2 == 0);
+			workers[thread] = new Thread(() -> {
+				long sold = 0;
+				for (int step = 0; step < SALES_PER_THREAD; step++) {
+					if (buyer) {
+						ledger.buy(2);
+					} else {
+						sold += ledger.sell(3);
+					};
+					if (step % 1000 == 0) {
+						ledger.nextDay(); // everyone turns pages now and then
+					};
+				};
+				totalSold.addAndGet(sold);
+			});
+			workers[thread].start();
+		};
+		for (Thread worker : workers) {
+			worker.join();
+		};
+		long purchases = (THREADS / 2) * (long) SALES_PER_THREAD;
+		long bought = purchases * 2;
+		assertEquals(bought - totalSold.get(), (long) ledger.inStock());
+		assertEquals(totalSold.get() * 5 - bought * 2 - purchases * 1, (long) ledger.cashAvailable());
+		assertEquals(Integer.valueOf(1 + THREADS * (SALES_PER_THREAD / 1000)), ledger.currentDay());
+	}
+
+	/*
+	 * Test that several warehouses can trade through one shared ledger at
+	 * once (so no day may be rolled back, undoing the others' sales)
+	 */
+	@Test
+	public void SharedByManyWarehouses() throws Exception {
+		final int days = 2000;
+		final int retailPrice = 2;
+		ConcurrentLedger ledger = new ConcurrentLedger(THREADS * days, 0, 1, retailPrice, 0);
+		assertFalse(ledger.transactional());
+		assertThrows(UnsupportedOperationException.class, () -> {
+			ledger.begin();
+		});
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] workers = new Thread[THREADS];
+		for (int thread = 0; thread < THREADS; thread++) {
+			workers[thread] = new Thread(() -> {
+				try {
+					WarehouseTransactions warehouse = new WarehouseTransactions(THREADS * days, Integer.MAX_VALUE, ledger);
+					for (int day = 0; day < days; day++) {
+						warehouse.sellStock(1);
+						assertFalse(warehouse.orderUnfulfilled());
+					};
+				} catch (Throwable exception) {
+					failure.compareAndSet(null, exception);
+				}
+			});
+			workers[thread].start();
+		};
+		for (Thread worker : workers) {
+			worker.join();
+		};
+		assertNull(failure.get());
+		assertEquals(Integer.valueOf(0), ledger.inStock());
+		assertEquals(Integer.valueOf(THREADS * days * retailPrice), ledger.cashAvailable());
+		assertEquals(Integer.valueOf(1 + THREADS * days), ledger.currentDay());
+	}
+
+}
@@ -0,0 +1,158 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+/*
+ * Unit tests for the DemandGenerator class and the demand distributions
+ */
+public class DemandGeneratorTest {
+
+	final long seed = 100L;
+	final int maxOrder = 15;
+	final int days = 200000;
+
+	/*
+	 * Mean and variance of many orders
+	 */
+	private double[] moments(DemandGenerator generator, int count) {
+		double sum = 0, sumOfSquares = 0;
+		for (int day = 0; day < count; day++) {
+			int order = generator.nextOrder();
+			assertTrue(order >= 0);
+			sum += order;
+			sumOfSquares += (double) order * order;
+		};
+		double mean = sum / count;
+		return new double[] {mean, sumOfSquares / count - mean * mean};
+	}
+
+	/*
+	 * Test that the legacy generator draws exactly the GUI's orders
+	 */
+	@Test
+	public void LegacyOrdersUnchanged() {
+		for (long guiSeed : new long[] {seed, 0L, -1L, 302L}) {
+			Random gui = new Random(guiSeed);
+			DemandGenerator generator = DemandGenerator.legacy(guiSeed, maxOrder);
+			for (int day = 1; day <= 1000; day++) {
+				assertEquals(generator.nextOrder(), gui.nextInt(maxOrder));
+			};
+			assertEquals(generator.day(), 1001);
+		};
+	}
+
+	/*
+	 * Test that a seed always produces the same orders, one at a time or
+	 * in batches
+	 */
+	@Test
+	public void Reproducible() {
+		DemandGenerator first = new DemandGenerator(seed, new PoissonDemand(7.5));
+		DemandGenerator second = new DemandGenerator(seed, new PoissonDemand(7.5));
+		int[] batch = new int[100];
+		second.nextOrders(batch);
+		for (int day = 0; day < batch.length; day++) {
+			assertEquals(first.nextOrder(), batch[day]);
+		};
+	}
+
+	/*
+	 * Test that split streams are reproducible, and differ from each other
+	 */
+	@Test
+	public void SplitStreams() {
+		DemandGenerator master = new DemandGenerator(seed, new UniformDemand(1000));
+		DemandGenerator again = new DemandGenerator(seed, new UniformDemand(1000));
+		DemandGenerator[] streams = new DemandGenerator[4];
+		DemandGenerator[] sameStreams = new DemandGenerator[4];
+		for (int stream = 0; stream < streams.length; stream++) {
+			streams[stream] = master.split();
+			sameStreams[stream] = again.split();
+		};
+		int[][] orders = new int[streams.length][50];
+		for (int stream = 0; stream < streams.length; stream++) {
+			streams[stream].nextOrders(orders[stream]);
+			int[] same = new int[50];
+			sameStreams[stream].nextOrders(same);
+			assertArrayEquals(orders[stream], same);
+		};
+		for (int stream = 1; stream < streams.length; stream++) {
+			assertFalse(Arrays.equals(orders[0], orders[stream]));
+		};
+		assertEquals(streams[0].day(), 51);
+	}
+
+	/*
+	 * Test the averages and spreads of the distributions
+	 */
+	@Test
+	public void Distributions() {
+		double[] uniform = moments(new DemandGenerator(seed, new UniformDemand(maxOrder)), days);
+		assertEquals(uniform[0], (maxOrder - 1) / 2.0, 0.05);
+		for (double mean : new double[] {0.5, 7.5, 40.0, 1000.0}) {
+			double[] poisson = moments(new DemandGenerator(seed, new PoissonDemand(mean)), days);
+			assertEquals(poisson[0], mean, 0.02 * mean + 0.02, "Poisson mean " + mean);
+			assertEquals(poisson[1], mean, 0.05 * mean + 0.05, "Poisson variance " + mean);
+		};
+		for (double dispersion : new double[] {0.5, 2.0, 10.0}) {
+			double mean = 8.0;
+			double[] negativeBinomial = moments(
+					new DemandGenerator(seed, new NegativeBinomialDemand(mean, dispersion)), days);
+			double variance = mean + mean * mean / dispersion;
+			assertEquals(negativeBinomial[0], mean, 0.05 * mean, "Dispersion " + dispersion);
+			assertEquals(negativeBinomial[1], variance, 0.08 * variance, "Dispersion " + dispersion);
+		};
+		assertEquals(new PoissonDemand(0).sample(new Random(seed), 1), 0);
+	}
+
+	/*
+	 * Test that seasonal orders follow the season
+	 */
+	@Test
+	public void Seasons() {
+		final int period = 28;
+		SeasonalDemand seasonal = new SeasonalDemand(10.0, 0.5, period);
+		assertEquals(seasonal.meanOn(1), 10.0, 1e-9);
+		assertEquals(seasonal.meanOn(1 + period / 4), 15.0, 1e-9);
+		assertEquals(seasonal.meanOn(1 + 3 * period / 4), 5.0, 1e-9);
+		assertEquals(seasonal.meanOn(1 + period), 10.0, 1e-9);
+		// Total up orders on the peak and trough days of many seasons
+		DemandGenerator generator = new DemandGenerator(seed, seasonal);
+		long peak = 0, trough = 0;
+		int seasons = 5000;
+		for (int season = 0; season < seasons; season++) {
+			for (int day = 1; day <= period; day++) {
+				int order = generator.nextOrder();
+				if (day == 1 + period / 4) {
+					peak += order;
+				} else if (day == 1 + 3 * period / 4) {
+					trough += order;
+				};
+			};
+		};
+		assertEquals((double) peak / seasons, 15.0, 0.3);
+		assertEquals((double) trough / seasons, 5.0, 0.2);
+	}
+
+	@Test
+	public void InvalidDistributions() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new UniformDemand(0);
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new PoissonDemand(-1);
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new NegativeBinomialDemand(5, 0);
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new SeasonalDemand(5, 1.5, 7);
+		});
+	}
+
+}
@@ -0,0 +1,150 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import answer.WarehouseFleet;
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the WarehouseFleet class
+ */
+public class FleetTest {
+
+	/*
+	 * The GUI's default simulation parameters
+	 */
+	final Integer capacity = 20; // boxes
+	final Integer cash = 80; // dollars
+	final Integer maxOrder = 15; // boxes
+	final Integer wholesale = 5; // dollars
+	final Integer retail = 8; // dollars
+	final Integer delivery = 50; // dollars
+	final Integer duration = 7; // days
+
+	/*
+	 * Enough warehouses to be split into several shards
+	 */
+	final int warehouses = 10000;
+
+	WarehouseFleet typicalFleet;
+
+	@BeforeEach @Test
+	public void FleetConstructed() throws WarehouseException {
+		typicalFleet = new WarehouseFleet(warehouses, capacity, cash,
+				wholesale, retail, delivery, duration);
+	}
+
+	@Test
+	public void EmptyFleet() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			new WarehouseFleet(0, capacity, cash, wholesale, retail, delivery, duration);
+		});
+	}
+
+	@Test
+	public void InvalidLedgerParameters() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			new WarehouseFleet(warehouses, capacity, cash, retail + 1, retail, delivery, duration);
+		});
+	}
+
+	@Test
+	public void InitialTotals() throws WarehouseException {
+		assertEquals(typicalFleet.currentDay(), Integer.valueOf(1));
+		assertEquals(typicalFleet.totalCash(1), (long) warehouses * cash);
+		assertEquals(typicalFleet.totalStock(1), (long) warehouses * capacity);
+		assertEquals(typicalFleet.insolventCount(1), 0);
+		assertEquals(typicalFleet.unfulfilledCount(1), 0);
+	}
+
+	@Test
+	public void WrongNumberOfOrders() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			typicalFleet.nextDay(new int[warehouses - 1], new ThresholdPolicy(1, capacity));
+		});
+	}
+
+	@Test
+	public void NegativeOrder() throws WarehouseException {
+		int[] orders = new int[warehouses];
+		orders[warehouses - 1] = -1;
+		assertThrows(WarehouseException.class, () -> {
+			typicalFleet.nextDay(orders, new ThresholdPolicy(1, capacity));
+		});
+		// Nothing should have been done
+		assertEquals(typicalFleet.currentDay(), Integer.valueOf(1));
+		assertEquals(typicalFleet.inStock(0), (int) capacity);
+	}
+
+	@Test
+	public void NonexistentDay() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			typicalFleet.totalCash(2);
+		});
+	}
+
+	/*
+	 * Test that every warehouse ends up exactly where its own transactions
+	 * and ledger would have put it, and that the daily totals add up
+	 */
+	@Test
+	public void FleetMatchesTransactions() throws WarehouseException {
+		final int sampled = 500; // warehouses checked individually
+		RestockPolicy policy = new ThresholdPolicy(maxOrder - 1, capacity);
+		WarehouseTransactions[] transactions = new WarehouseTransactions[sampled];
+		WarehouseLedger[] ledgers = new WarehouseLedger[sampled];
+		for (int warehouse = 0; warehouse < sampled; warehouse++) {
+			ledgers[warehouse] = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+			transactions[warehouse] = new WarehouseTransactions(capacity, duration, ledgers[warehouse]);
+		};
+		Random random = new Random(302);
+		int[] orders = new int[warehouses];
+		while (!typicalFleet.jobDone()) {
+			int today = typicalFleet.currentDay();
+			for (int warehouse = 0; warehouse < warehouses; warehouse++) {
+				orders[warehouse] = random.nextInt(maxOrder);
+			};
+			for (int warehouse = 0; warehouse < sampled; warehouse++) {
+				WarehouseLedger ledger = ledgers[warehouse];
+				int level = policy.restockLevel(today, ledger.inStock(), ledger.cashAvailable());
+				if (level == RestockPolicy.NO_RESTOCK) {
+					transactions[warehouse].sellStock(orders[warehouse]);
+				} else {
+					transactions[warehouse].restockToAndSellStock(level, orders[warehouse]);
+				};
+			};
+			typicalFleet.nextDay(orders, policy);
+			long totalCash = 0;
+			long totalStock = 0;
+			int insolvent = 0;
+			int unfulfilled = 0;
+			for (int warehouse = 0; warehouse < warehouses; warehouse++) {
+				totalCash += typicalFleet.cashAvailable(warehouse);
+				totalStock += typicalFleet.inStock(warehouse);
+				insolvent += typicalFleet.cashAvailable(warehouse) < 0 ? 1 : 0;
+				unfulfilled += typicalFleet.orderUnfulfilled(warehouse) ? 1 : 0;
+			};
+			assertEquals(totalCash, typicalFleet.totalCash(today + 1));
+			assertEquals(totalStock, typicalFleet.totalStock(today + 1));
+			assertEquals(insolvent, typicalFleet.insolventCount(today + 1));
+			assertEquals(unfulfilled, typicalFleet.unfulfilledCount(today + 1));
+		};
+		for (int warehouse = 0; warehouse < sampled; warehouse++) {
+			assertEquals(ledgers[warehouse].inStock(), Integer.valueOf(typicalFleet.inStock(warehouse)));
+			assertEquals(ledgers[warehouse].cashAvailable(), Integer.valueOf(typicalFleet.cashAvailable(warehouse)));
+			assertEquals(transactions[warehouse].orderUnfulfilled(), typicalFleet.orderUnfulfilled(warehouse));
+		};
+		assertEquals(typicalFleet.currentDay(), Integer.valueOf(duration + 1));
+	}
+
+	@Test
+	public void PolicyBeyondCapacity() throws WarehouseException {
+		assertThrows(IllegalArgumentException.class, () -> {
+			typicalFleet.nextDay(new int[warehouses], new ThresholdPolicy(capacity + 1, capacity + 1));
+		});
+	}
+
+}
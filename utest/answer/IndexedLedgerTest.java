@@ -0,0 +1,153 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import answer.IndexedLedger;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the IndexedLedger class
+ * 
+ * NB: All of the LedgerTest tests are inherited, so an indexed ledger
+ * must behave identically to the original one.  The tests below check
+ * the range queries against the answers found by brute force.
+ */
+public class IndexedLedgerTest extends LedgerTest {
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new IndexedLedger(new WarehouseLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge));
+	}
+	
+	/*
+	 * Build a long, random history in which we sometimes go into debt
+	 */
+	private IndexedLedger RandomHistory(int days) throws WarehouseException {
+		IndexedLedger indexed = (IndexedLedger) typicalLedger;
+		Random random = new Random(302);
+		for (int day = 1; day < days; day++) {
+			if (random.nextInt(3) == 0) {
+				indexed.buyItems(random.nextInt(8));
+			};
+			indexed.sellItems(random.nextInt(6));
+			indexed.nextDay();
+		};
+		indexed.sellItems(1); // today is still open
+		return indexed;
+	}
+	
+	@Test
+	public void RangeQueriesMatchBruteForce() throws WarehouseException {
+		final int days = 1000;
+		IndexedLedger indexed = RandomHistory(days);
+		Random random = new Random(370);
+		for (int query = 0; query < 500; query++) {
+			int from = 1 + random.nextInt(days);
+			int to = from + random.nextInt(days - from + 1);
+			int minCash = Integer.MAX_VALUE, maxCash = Integer.MIN_VALUE;
+			int minStock = Integer.MAX_VALUE, maxStock = Integer.MIN_VALUE;
+			long totalCash = 0, totalStock = 0;
+			int lowStockDays = 0;
+			for (int day = from; day <= to; day++) {
+				minCash = Math.min(minCash, indexed.cashAvailable(day));
+				maxCash = Math.max(maxCash, indexed.cashAvailable(day));
+				minStock = Math.min(minStock, indexed.inStock(day));
+				maxStock = Math.max(maxStock, indexed.inStock(day));
+				totalCash += indexed.cashAvailable(day);
+				totalStock += indexed.inStock(day);
+				lowStockDays += indexed.inStock(day) < 5 ? 1 : 0;
+			};
+			assertEquals(minCash, indexed.minCash(from, to));
+			assertEquals(maxCash, indexed.maxCash(from, to));
+			assertEquals(totalCash, indexed.totalCash(from, to));
+			assertEquals((double) totalCash / (to - from + 1), indexed.averageCash(from, to), 1e-9);
+			assertEquals(minStock, indexed.minStock(from, to));
+			assertEquals(maxStock, indexed.maxStock(from, to));
+			assertEquals(totalStock, indexed.totalStock(from, to));
+			assertEquals((double) totalStock / (to - from + 1), indexed.averageStock(from, to), 1e-9);
+			assertEquals(lowStockDays, indexed.daysStockBelow(5, from, to));
+		};
+	}
+	
+	@Test
+	public void FirstDaysMatchBruteForce() throws WarehouseException {
+		final int days = 700;
+		IndexedLedger indexed = RandomHistory(days);
+		int firstInDebt = 0;
+		for (int day = days; day >= 1; day--) {
+			if (indexed.cashAvailable(day) < 0) {
+				firstInDebt = day;
+			};
+		};
+		assertEquals(firstInDebt, indexed.firstDayInDebt());
+		for (int from = 1; from <= days; from += 37) {
+			int firstLow = 0;
+			for (int day = days; day >= from; day--) {
+				if (indexed.inStock(day) < 3) {
+					firstLow = day;
+				};
+			};
+			assertEquals(firstLow, indexed.firstDayStockBelow(3, from));
+		};
+	}
+	
+	@Test
+	public void NeverInDebt() throws WarehouseException {
+		IndexedLedger indexed = (IndexedLedger) typicalLedger;
+		PerformTransactions(); // in debt on day 2 only
+		assertEquals(indexed.firstDayInDebt(), 2);
+		IndexedLedger solvent = new IndexedLedger(new PrimitiveLedger(stock, cash, wholesale, retail, delivery));
+		solvent.nextDay();
+		assertEquals(solvent.firstDayInDebt(), 0);
+	}
+	
+	@Test
+	public void TodayIncludedInRange() throws WarehouseException {
+		IndexedLedger indexed = (IndexedLedger) typicalLedger;
+		PerformTransactions();
+		assertEquals(indexed.maxCash(1, 3), 110); // today's cash so far
+		assertEquals(indexed.minStock(3, 3), 6);
+		indexed.sellItems(6);
+		assertEquals(indexed.minStock(1, 3), 0); // changes as today goes on
+		assertEquals(indexed.daysStockBelow(1, 1, 3), 1);
+	}
+	
+	@Test
+	public void ExistingHistoryIndexed() throws WarehouseException {
+		Ledger plain = new SparseLedger(stock, cash, wholesale, retail, delivery);
+		plain.sellItems(4);
+		plain.nextDay();
+		plain.buyItems(10);
+		plain.nextDay();
+		IndexedLedger indexed = new IndexedLedger(plain);
+		assertEquals(indexed.minStock(1, 3), 6);
+		assertEquals(indexed.maxStock(1, 2), 16);
+		assertEquals(indexed.firstDayInDebt(), 2);
+	}
+	
+	@Test
+	public void InvalidPeriods() throws WarehouseException {
+		IndexedLedger indexed = (IndexedLedger) typicalLedger;
+		PerformTransactions();
+		assertThrows(WarehouseException.class, () -> {
+			indexed.minCash(0, 2);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			indexed.maxStock(2, 4);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			indexed.totalCash(3, 2);
+		});
+	}
+	
+}
@@ -0,0 +1,205 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import answer.JournalledLedger;
+import answer.JournalledLedger.Durability;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the JournalledLedger class
+ * 
+ * NB: All of the LedgerTest tests are inherited, so a journalled ledger
+ * must behave identically to the original one.  The tests below check
+ * that a ledger can be rebuilt from its journal.
+ */
+public class JournalledLedgerTest extends LedgerTest {
+
+	/*
+	 * Every journal created by a test, so they can be tidied up afterwards
+	 */
+	ArrayList<JournalledLedger> opened = new ArrayList<JournalledLedger>();
+	ArrayList<Path> files = new ArrayList<Path>();
+	
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		try {
+			Path file = Files.createTempFile("JournalledLedgerTest", ".journal");
+			files.add(file);
+			JournalledLedger ledger = new JournalledLedger(file, LedgerStorage.PRIMITIVE,
+					Durability.EVERY_DAY, 0, initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+			opened.add(ledger);
+			return ledger;
+		} catch (IOException exception) {
+			throw new WarehouseException(exception.toString());
+		}
+	}
+	
+	@AfterEach
+	public void TidyUp() throws IOException {
+		for (JournalledLedger ledger : opened) {
+			ledger.close();
+		};
+		for (Path file : files) {
+			Files.deleteIfExists(file);
+		};
+	}
+	
+	/*
+	 * Rebuild the typical ledger from its journal
+	 */
+	private JournalledLedger Recover(Durability durability) throws WarehouseException {
+		JournalledLedger recovered = JournalledLedger.recover(files.get(files.size() - 1),
+				LedgerStorage.SPARSE, durability, 10);
+		opened.add(recovered);
+		return recovered;
+	}
+	
+	@Test
+	public void LedgerRecovered() throws WarehouseException, IOException {
+		PerformTransactions();
+		((JournalledLedger) typicalLedger).close();
+		JournalledLedger recovered = Recover(Durability.EVERY_OPERATION);
+		assertEquals(recovered.toString(), typicalLedger.toString());
+		assertEquals(recovered.cashAvailable(2), Integer.valueOf(-65));
+		assertEquals(recovered.inStock(1), Integer.valueOf(9));
+	}
+	
+	@Test
+	public void RecoveredLedgerCarriesOn() throws WarehouseException, IOException {
+		PerformTransactions();
+		((JournalledLedger) typicalLedger).close();
+		JournalledLedger recovered = Recover(Durability.PERIODIC);
+		recovered.nextDay();
+		recovered.sellItems(two);
+		recovered.close();
+		JournalledLedger again = Recover(Durability.EVERY_DAY);
+		assertEquals(again.toString(), "Day 4: Cash reserve = $160; Items in stock = 4\n");
+	}
+	
+	@Test
+	public void CompletedDaysSurviveCrash() throws WarehouseException, IOException {
+		// With "every day" durability, the journal is forced when the page
+		// is turned, so abandoning the ledger mid-day loses only that day
+		PerformTransactions();
+		JournalledLedger recovered = Recover(Durability.EVERY_DAY);
+		assertEquals(recovered.currentDay(), Integer.valueOf(3));
+		assertEquals(recovered.cashAvailable(), Integer.valueOf(-65)); // day 3 not yet journalled
+		assertEquals(recovered.inStock(), Integer.valueOf(13));
+	}
+	
+	@Test
+	public void TornRecordDiscarded() throws WarehouseException, IOException {
+		PerformTransactions();
+		((JournalledLedger) typicalLedger).close();
+		Path file = files.get(files.size() - 1);
+		// Chop the last record in half
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 2);
+		}
+		JournalledLedger recovered = Recover(Durability.EVERY_OPERATION);
+		assertEquals(recovered.toString(), "Day 3: Cash reserve = $-15; Items in stock = 11\n");
+		// The torn record is gone, so new records follow on cleanly
+		recovered.sellItems(5);
+		recovered.close();
+		assertEquals(Recover(Durability.EVERY_OPERATION).inStock(), Integer.valueOf(6));
+	}
+	
+	@Test
+	public void InvalidOperationsNotJournalled() throws WarehouseException, IOException {
+		assertThrows(WarehouseException.class, () -> {
+			typicalLedger.sellItems(negative);
+		});
+		((JournalledLedger) typicalLedger).close();
+		assertEquals(Recover(Durability.EVERY_OPERATION).toString(), typicalLedger.toString());
+	}
+	
+	/*
+	 * Test that a committed transaction is recovered
+	 */
+	@Test
+	public void CommittedTransactionRecovered() throws WarehouseException, IOException {
+		JournalledLedger ledger = (JournalledLedger) typicalLedger;
+		ledger.begin();
+		ledger.sellItems(5);
+		ledger.nextDay();
+		ledger.commit();
+		ledger.close();
+		assertEquals(Recover(Durability.EVERY_OPERATION).toString(), typicalLedger.toString());
+	}
+
+	/*
+	 * Test that a rolled-back transaction is cut out of the journal, whether
+	 * or not it had been written out yet
+	 */
+	@Test
+	public void RolledBackTransactionForgotten() throws WarehouseException, IOException {
+		JournalledLedger ledger = (JournalledLedger) typicalLedger;
+		ledger.sellItems(1);
+		for (boolean written : new boolean[] {false, true}) {
+			ledger.begin();
+			ledger.buyItems(7);
+			ledger.nextDay();
+			if (written) {
+				ledger.force();
+			};
+			ledger.sellItems(3);
+			ledger.rollback();
+		};
+		ledger.sellItems(2);
+		ledger.close();
+		JournalledLedger recovered = Recover(Durability.EVERY_OPERATION);
+		assertEquals(recovered.currentDay(), Integer.valueOf(1));
+		assertEquals(recovered.inStock(), Integer.valueOf(stock - 3));
+		assertEquals(recovered.cashAvailable(), Integer.valueOf(cash + 3 * retail));
+	}
+
+	/*
+	 * Test that a transaction still open when the program dies is left out
+	 * on recovery, even if its records reached the disk
+	 */
+	@Test
+	public void UncommittedTransactionDiscarded() throws WarehouseException, IOException {
+		JournalledLedger ledger = (JournalledLedger) typicalLedger;
+		ledger.sellItems(1);
+		ledger.nextDay();
+		ledger.begin();
+		ledger.sellItems(4);
+		ledger.nextDay();
+		ledger.force();
+		// Abandon the ledger without committing
+		JournalledLedger recovered = Recover(Durability.EVERY_OPERATION);
+		assertEquals(recovered.currentDay(), Integer.valueOf(2));
+		assertEquals(recovered.inStock(), Integer.valueOf(stock - 1));
+		// And the recovered journal carries on from there
+		recovered.sellItems(2);
+		recovered.close();
+		assertEquals(Recover(Durability.EVERY_OPERATION).inStock(), Integer.valueOf(stock - 3));
+	}
+
+	@Test
+	public void NotAJournal() throws IOException {
+		Path file = Files.createTempFile("JournalledLedgerTest", ".txt");
+		files.add(file);
+		Files.write(file, new byte[] {1, 2, 3});
+		assertThrows(WarehouseException.class, () -> {
+			Recover(Durability.EVERY_OPERATION);
+		});
+	}
+	
+}
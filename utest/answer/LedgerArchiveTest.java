@@ -0,0 +1,227 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the LedgerArchive class
+ */
+public class LedgerArchiveTest {
+
+	// Simulation parameters
+	final int capacity = 20;
+	final int cash = 80;
+	final int maxOrder = 15;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+
+	Path file;
+	Path csv;
+
+	@BeforeEach
+	public void FilesCreated() throws IOException {
+		file = Files.createTempFile("ledger", ".whla");
+		csv = Files.createTempFile("ledger", ".csv");
+	}
+
+	@AfterEach
+	public void FilesDeleted() throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(csv);
+	}
+
+	/*
+	 * A ledger which has traded for the given number of days, restocking
+	 * whenever it might not cover the largest order, and trading only on
+	 * one day in every idleEvery days (if positive)
+	 */
+	private PrimitiveLedger traded(int days, int idleEvery) throws WarehouseException {
+		PrimitiveLedger ledger = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery);
+		SplittableRandom random = new SplittableRandom(302);
+		for (int day = 1; day < days; day++) {
+			if (idleEvery <= 0 || day % idleEvery == 0) {
+				if (ledger.inStock() < maxOrder) {
+					ledger.buyItems(capacity - ledger.inStock());
+				};
+				ledger.sellItems(random.nextInt(maxOrder));
+			};
+			ledger.nextDay();
+		};
+		return ledger;
+	}
+
+	/*
+	 * Check that the file holds exactly the ledger's history, reading it
+	 * in chunks of the given size
+	 */
+	private void assertHistory(PrimitiveLedger ledger, int chunk) throws Exception {
+		try (LedgerArchive archive = new LedgerArchive(file)) {
+			assertEquals(archive.wholesaleCost(), wholesale);
+			assertEquals(archive.retailPrice(), retail);
+			assertEquals(archive.deliveryCharge(), delivery);
+			assertEquals(archive.days(), (long) ledger.currentDay());
+			int[] stock = new int[chunk];
+			int[] cash = new int[chunk];
+			int day = 1;
+			int count;
+			while ((count = archive.read(stock, cash)) > 0) {
+				for (int index = 0; index < count; index++, day++) {
+					assertEquals(stock[index], (int) ledger.inStock(day));
+					assertEquals(cash[index], (int) ledger.cashAvailable(day));
+				};
+			};
+			assertEquals(day, ledger.currentDay() + 1);
+			assertEquals(archive.read(stock, cash), -1);
+		}
+	}
+
+	@Test
+	public void HistoryRestored() throws Exception {
+		PrimitiveLedger ledger = traded(100000, 0);
+		assertEquals(LedgerArchive.export(ledger, file), 100000);
+		for (int chunk : new int[] {1, 7, LedgerArchive.BLOCK_DAYS, 100000, 300000}) {
+			assertHistory(ledger, chunk);
+		};
+	}
+
+	/*
+	 * Test that the original ledger can be saved too
+	 */
+	@Test
+	public void OriginalLedgerSaved() throws Exception {
+		WarehouseLedger original = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		PrimitiveLedger ledger = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery);
+		for (int day = 1; day < 500; day++) {
+			original.sellItems(day % 4);
+			ledger.sellItems(day % 4);
+			original.buyItems(day % 4);
+			ledger.buyItems(day % 4);
+			original.nextDay();
+			ledger.nextDay();
+		};
+		LedgerArchive.export(original, wholesale, retail, delivery, file);
+		assertHistory(ledger, 64);
+	}
+
+	/*
+	 * Test that idle days take next to no room, and any history much less
+	 * room than its text
+	 */
+	@Test
+	public void HistoryCompact() throws Exception {
+		final int days = 200000;
+		PrimitiveLedger busy = traded(days, 0);
+		LedgerArchive.export(busy, file);
+		long text = 0;
+		for (int day = 1; day <= days; day++) {
+			text += ("Day " + day + ": Cash reserve = $" + busy.cashAvailable(day) + "; " +
+					"Items in stock = " + busy.inStock(day) + "\n").length();
+		};
+		assertTrue(Files.size(file) * 10 < text, Files.size(file) + " bytes");
+		PrimitiveLedger idle = traded(days, 100);
+		LedgerArchive.export(idle, file);
+		assertTrue(Files.size(file) < days / 10, Files.size(file) + " bytes");
+		assertHistory(idle, 1000);
+	}
+
+	/*
+	 * Test that extreme changes survive the round trip
+	 */
+	@Test
+	public void ExtremeValues() throws Exception {
+		int[] stock = {0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, 1};
+		int[] cash = {Integer.MIN_VALUE, Integer.MAX_VALUE, -1, Integer.MIN_VALUE, 0, 0};
+		try (LedgerArchive.Writer writer = new LedgerArchive.Writer(file, wholesale, retail, delivery)) {
+			for (int day = 0; day < stock.length; day++) {
+				writer.append(stock[day], cash[day]);
+			};
+		}
+		try (LedgerArchive archive = new LedgerArchive(file)) {
+			int[] readStock = new int[10];
+			int[] readCash = new int[10];
+			assertEquals(archive.read(readStock, readCash), stock.length);
+			for (int day = 0; day < stock.length; day++) {
+				assertEquals(readStock[day], stock[day]);
+				assertEquals(readCash[day], cash[day]);
+			};
+		}
+	}
+
+	@Test
+	public void CsvExported() throws Exception {
+		PrimitiveLedger ledger = traded(10, 0);
+		LedgerArchive.export(ledger, file);
+		assertEquals(LedgerArchive.toCsv(file, csv), 10);
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		assertEquals(lines.size(), 11);
+		assertEquals(lines.get(0), "day,stock,cash");
+		assertEquals(lines.get(1), "1," + ledger.inStock(1) + "," + ledger.cashAvailable(1));
+		assertEquals(lines.get(10), "10," + ledger.inStock(10) + "," + ledger.cashAvailable(10));
+	}
+
+	/*
+	 * Test that other files and unfinished histories are rejected
+	 */
+	@Test
+	public void DamagedFilesRejected() throws Exception {
+		Files.write(file, "day,stock,cash\n1,20,80\n".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IOException.class, () -> {
+			new LedgerArchive(file);
+		});
+		LedgerArchive.export(traded(10000, 0), file);
+		byte[] whole = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(whole, whole.length - 100));
+		try (LedgerArchive archive = new LedgerArchive(file)) {
+			assertThrows(IOException.class, () -> {
+				archive.read(new int[20000], new int[20000]);
+			});
+		}
+	}
+
+	/*
+	 * Test that blocks whose contents don't make sense are rejected, rather
+	 * than read past
+	 */
+	@Test
+	public void DamagedBlocksRejected() throws Exception {
+		LedgerArchive.export(traded(100, 0), file);
+		byte[] whole = Files.readAllBytes(file);
+		int block = 5 * Integer.BYTES + Long.BYTES + Integer.BYTES; // after the header and block length
+		byte[][] damaged = {
+			{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80}, // endless count
+			{100, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, // negative run
+			{100, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF}, // endless difference
+		};
+		for (byte[] contents : damaged) {
+			byte[] copy = whole.clone();
+			System.arraycopy(contents, 0, copy, block, contents.length);
+			Files.write(file, copy);
+			try (LedgerArchive archive = new LedgerArchive(file)) {
+				assertThrows(IOException.class, () -> {
+					archive.read(new int[100], new int[100]);
+				});
+			}
+		};
+		// Every column running on to the end of the block
+		byte[] copy = whole.clone();
+		Arrays.fill(copy, block + 1, copy.length, (byte) 0x81);
+		Files.write(file, copy);
+		try (LedgerArchive archive = new LedgerArchive(file)) {
+			assertThrows(IOException.class, () -> {
+				archive.read(new int[100], new int[100]);
+			});
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the events published by WarehouseLedger and
+ * WarehouseTransactions
+ */
+public class LedgerEventTest {
+
+	// Simulation parameters
+	final int capacity = 20;
+	final int cash = 80;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+	final int duration = 7;
+
+	/*
+	 * A subscriber which keeps everything it's sent, asking for a given
+	 * number of events at first, and none thereafter
+	 */
+	private static class Collector implements Flow.Subscriber<LedgerEvent> {
+
+		final List<LedgerEvent> events = new ArrayList<LedgerEvent>();
+		final long wanted;
+		volatile boolean completed = false;
+
+		Collector(long wanted) {
+			this.wanted = wanted;
+		}
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(wanted);
+		}
+
+		public void onNext(LedgerEvent event) {
+			events.add(event);
+		}
+
+		public void onError(Throwable error) {
+			fail(error);
+		}
+
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	WarehouseLedger ledger;
+	WarehouseTransactions warehouse;
+
+	@BeforeEach @Test
+	public void setUpWarehouse() throws WarehouseException {
+		ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		warehouse = new WarehouseTransactions(capacity, duration, ledger);
+	}
+
+	/*
+	 * Test that the ledger publishes each purchase, sale and page turn
+	 */
+	@Test
+	public void LedgerEventsPublished() throws WarehouseException {
+		Collector direct = new Collector(Long.MAX_VALUE);
+		ledger.events().subscribe(direct);
+		ledger.buyItems(3);
+		ledger.sellItems(4);
+		ledger.sellItems(100);
+		ledger.nextDay();
+		ledger.events().close();
+		waitFor(direct);
+		assertEquals(direct.events.size(), 4);
+		assertEquals(direct.events.get(0).toString(),
+				"Day 1: BOUGHT 3 items; Cash reserve = $15; Items in stock = 23");
+		assertEquals(direct.events.get(1).kind(), LedgerEvent.Kind.SOLD);
+		assertEquals(direct.events.get(1).items(), 4);
+		assertEquals(direct.events.get(2).kind(), LedgerEvent.Kind.PARTLY_FILLED);
+		assertEquals(direct.events.get(2).items(), 19);
+		assertEquals(direct.events.get(2).stock(), 0);
+		assertEquals(direct.events.get(3).kind(), LedgerEvent.Kind.DAY_CLOSED);
+		assertEquals(direct.events.get(3).day(), 1);
+		assertEquals(direct.events.get(3).cash(), 15 + 8 * 23);
+	}
+
+	/*
+	 * Test that a simulation's whole story is told, ending with the job done
+	 */
+	@Test
+	public void TransactionEventsPublished() throws WarehouseException {
+		Collector collector = new Collector(Long.MAX_VALUE);
+		warehouse.events().subscribe(collector);
+		for (int day = 1; day <= duration; day++) {
+			warehouse.sellStock(2);
+		};
+		warehouse.events().close();
+		waitFor(collector);
+		assertEquals(collector.events.size(), 2 * duration + 1);
+		assertEquals(collector.events.get(0).kind(), LedgerEvent.Kind.SOLD);
+		assertEquals(collector.events.get(0).items(), 2);
+		assertEquals(collector.events.get(1).kind(), LedgerEvent.Kind.DAY_CLOSED);
+		assertEquals(collector.events.get(1).stock(), capacity - 2);
+		LedgerEvent last = collector.events.get(2 * duration);
+		assertEquals(last.kind(), LedgerEvent.Kind.JOB_DONE);
+		assertEquals(last.day(), duration);
+		assertEquals(last.cash(), (int) warehouse.ledger().cashAvailable());
+	}
+
+	/*
+	 * Test that insolvency and partial fills are published, including by
+	 * batches of orders
+	 */
+	@Test
+	public void FailuresPublished() throws WarehouseException {
+		WarehouseTransactions broke = new WarehouseTransactions(capacity, duration,
+				new PrimitiveLedger(1, -100, wholesale, retail, delivery));
+		Collector collector = new Collector(Long.MAX_VALUE);
+		broke.events().subscribe(collector);
+		BitSet restock = new BitSet();
+		restock.set(0);
+		assertEquals(broke.processOrders(new int[] {1, 1, 1}, restock), 0);
+		broke.sellStock(50);
+		broke.events().close();
+		waitFor(collector);
+		List<LedgerEvent.Kind> kinds = new ArrayList<LedgerEvent.Kind>();
+		for (LedgerEvent event : collector.events) {
+			kinds.add(event.kind());
+		};
+		assertEquals(kinds, List.of(LedgerEvent.Kind.BOUGHT, LedgerEvent.Kind.SOLD,
+				LedgerEvent.Kind.DAY_CLOSED, LedgerEvent.Kind.INSOLVENT,
+				LedgerEvent.Kind.PARTLY_FILLED, LedgerEvent.Kind.DAY_CLOSED,
+				LedgerEvent.Kind.INSOLVENT));
+	}
+
+	/*
+	 * Test that a day which fails part-way, and is rolled back, publishes
+	 * nothing, from either the warehouse or its ledger
+	 */
+	@Test
+	public void RolledBackDaysUnpublished() throws WarehouseException {
+		boolean[] failing = {true};
+		WarehouseLedger fragile = new WarehouseLedger(capacity, cash, wholesale, retail, delivery) {
+			public void nextDay() {
+				if (failing[0]) {
+					throw new IllegalStateException("Ledger unavailable");
+				};
+				super.nextDay();
+			}
+		};
+		WarehouseTransactions trading = new WarehouseTransactions(capacity, duration, fragile);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		Collector direct = new Collector(Long.MAX_VALUE);
+		trading.events().subscribe(collector);
+		fragile.events().subscribe(direct);
+		assertThrows(IllegalStateException.class, () -> {
+			trading.restockAndSellStock(3);
+		});
+		failing[0] = false;
+		trading.sellStock(2);
+		trading.events().close();
+		fragile.events().close();
+		waitFor(collector);
+		waitFor(direct);
+		for (Collector events : List.of(collector, direct)) {
+			assertEquals(events.events.size(), 2);
+			assertEquals(events.events.get(0).kind(), LedgerEvent.Kind.SOLD);
+			assertEquals(events.events.get(0).stock(), capacity - 2);
+			assertEquals(events.events.get(1).kind(), LedgerEvent.Kind.DAY_CLOSED);
+		};
+	}
+
+	/*
+	 * Test that a subscriber which stops asking for events doesn't hold up
+	 * trading, but just misses out
+	 */
+	@Test
+	public void SlowSubscriberDropped() throws WarehouseException {
+		LedgerEventPublisher publisher = new LedgerEventPublisher(Runnable::run, 4);
+		Collector slow = new Collector(2);
+		Collector fast = new Collector(Long.MAX_VALUE);
+		publisher.subscribe(slow);
+		publisher.subscribe(fast);
+		for (int day = 1; day <= 100; day++) {
+			publisher.publish(LedgerEvent.Kind.DAY_CLOSED, day, 0, 0, 0);
+		};
+		assertEquals(slow.events.size(), 2);
+		assertEquals(fast.events.size(), 100);
+		assertEquals(publisher.dropped(), 100 - 2 - 4);
+	}
+
+	/*
+	 * Test that nothing is built when nobody is listening
+	 */
+	@Test
+	public void InactiveWithoutSubscribers() throws WarehouseException {
+		assertFalse(warehouse.events().active());
+		assertFalse(ledger.events().active());
+		warehouse.restockAndSellStock(5);
+		assertEquals(warehouse.events().dropped(), 0);
+	}
+
+	/*
+	 * Wait (briefly) for the subscriber to have been told that there are
+	 * no more events
+	 */
+	private void waitFor(Collector collector) {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!collector.completed && System.currentTimeMillis() < deadline) {
+			Thread.onSpinWait();
+		};
+		assertTrue(collector.completed);
+	}
+
+}
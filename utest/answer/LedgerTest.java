@@ -4,17 +4,35 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import answer.WarehouseLedger;
 import org.junit.jupiter.api.*;
+import question.Ledger;
 import question.WarehouseException;
 
 /*
  * Unit tests for the WarehouseLedger class
+ * 
+ * NB: The tests for the other ledger storage engines extend this class,
+ * overriding method "newLedger", so that every engine must pass exactly
+ * the same tests.
  */
 public class LedgerTest {
 	
+	/*
+	 * Construct the ledger under test
+	 */
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new WarehouseLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+	}
+	
 	/* 
 	 * Define a typical warehouse ledger for use in various tests
 	 */
-	WarehouseLedger typicalLedger;
+	Ledger typicalLedger;
 	final Integer stock = 10; // items
 	final Integer cash = 100; // dollars
 	final Integer wholesale = 20; // dollars
@@ -34,25 +52,25 @@ public class LedgerTest {
 	 */
 	@Test
 	public void DayInitialised() throws WarehouseException {
-		WarehouseLedger typicalLedger = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		Ledger typicalLedger = newLedger(stock, cash, wholesale, retail, delivery);
 		assertEquals(typicalLedger.currentDay(), one);
 	}
 
 	@Test
 	public void CashInitialised() throws WarehouseException {
-		WarehouseLedger typicalLedger = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		Ledger typicalLedger = newLedger(stock, cash, wholesale, retail, delivery);
 		assertEquals(typicalLedger.cashAvailable(), cash);
 	}
 	
 	@Test
 	public void StockInitialised() throws WarehouseException {
-		WarehouseLedger typicalLedger = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		Ledger typicalLedger = newLedger(stock, cash, wholesale, retail, delivery);
 		assertEquals(typicalLedger.inStock(), stock);
 	}	
 	
 	@Test
 	public void InsolventLedgerConstructed() throws WarehouseException {
-		WarehouseLedger redLedger = new WarehouseLedger(stock, negative, wholesale, retail, delivery);
+		Ledger redLedger = newLedger(stock, negative, wholesale, retail, delivery);
 		assertEquals(redLedger.cashAvailable(), negative);
 	}
 	
@@ -69,7 +87,7 @@ public class LedgerTest {
 	public void NegativeInitialStock() throws WarehouseException {
 		assertThrows(WarehouseException.class, () -> {
 			@SuppressWarnings("unused")
-			WarehouseLedger badLedger = new WarehouseLedger(negative, cash, wholesale, retail, delivery);
+			Ledger badLedger = newLedger(negative, cash, wholesale, retail, delivery);
 		});
 	}
 	
@@ -77,7 +95,7 @@ public class LedgerTest {
 	public void NegativeWholesaleCost() throws WarehouseException {
 		assertThrows(WarehouseException.class, () -> {
 			@SuppressWarnings("unused")
-			WarehouseLedger badLedger = new WarehouseLedger(stock, cash, negative, retail, delivery);
+			Ledger badLedger = newLedger(stock, cash, negative, retail, delivery);
 		});
 	}
 	
@@ -85,7 +103,7 @@ public class LedgerTest {
 	public void WholesaleCostExceedsRetailPrice() throws WarehouseException {
 		assertThrows(WarehouseException.class, () -> {
 			@SuppressWarnings("unused")
-			WarehouseLedger badLedger = new WarehouseLedger(stock, cash, wholesale, wholesale - 1, delivery);
+			Ledger badLedger = newLedger(stock, cash, wholesale, wholesale - 1, delivery);
 		});
 	}
 	
@@ -93,7 +111,7 @@ public class LedgerTest {
 	public void NegativeDeliverySurcharge() throws WarehouseException {
 		assertThrows(WarehouseException.class, () -> {
 			@SuppressWarnings("unused")
-			WarehouseLedger badLedger = new WarehouseLedger(stock, cash, wholesale, retail, negative);
+			Ledger badLedger = newLedger(stock, cash, wholesale, retail, negative);
 		});
 	}
 	
@@ -103,37 +121,37 @@ public class LedgerTest {
 	@Test
 	public void WholesaleEqualsRetail() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(stock, cash, retail, retail, delivery);
+		Ledger extremeLedger = newLedger(stock, cash, retail, retail, delivery);
 	}
 	
 	@Test
 	public void NoInitialStock() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(0, cash, wholesale, retail, delivery);
+		Ledger extremeLedger = newLedger(0, cash, wholesale, retail, delivery);
 	}
 	
 	@Test
 	public void NoInitialCashReserve() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(stock, 0, wholesale, retail, delivery);
+		Ledger extremeLedger = newLedger(stock, 0, wholesale, retail, delivery);
 	}
 	
 	@Test
 	public void GettingStockForFree() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(stock, cash, 0, retail, delivery);
+		Ledger extremeLedger = newLedger(stock, cash, 0, retail, delivery);
 	}
 	
 	@Test
 	public void GivingFreeStockAway() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(stock, cash, 0, 0, delivery);
+		Ledger extremeLedger = newLedger(stock, cash, 0, 0, delivery);
 	}
 	
 	@Test
 	public void NoDeliveryCharge() throws WarehouseException {
 		@SuppressWarnings("unused")
-		WarehouseLedger extremeLedger = new WarehouseLedger(stock, cash, wholesale, retail, 0);
+		Ledger extremeLedger = newLedger(stock, cash, wholesale, retail, 0);
 	}
 
 	
@@ -142,7 +160,7 @@ public class LedgerTest {
 	 */
 	@BeforeEach @Test
 	public void WarehouseLedgerConstructed() throws WarehouseException {
-		typicalLedger = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		typicalLedger = newLedger(stock, cash, wholesale, retail, delivery);
 	}
 	
 	
@@ -0,0 +1,238 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for transactions (begin, commit and rollback) on each of the
+ * ledgers which support them, including the decorators
+ */
+public class LedgerTransactionTest {
+
+	// Ledger parameters
+	final int stock = 20;
+	final int cash = 80;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+
+	/*
+	 * Each way of making a transactional ledger
+	 */
+	private interface Maker {
+		TransactionalLedger make() throws WarehouseException;
+	}
+
+	private List<Maker> makers() {
+		List<Maker> makers = new ArrayList<Maker>();
+		for (LedgerStorage engine : new LedgerStorage[] {LedgerStorage.BOXED, LedgerStorage.PRIMITIVE,
+				LedgerStorage.SPARSE, LedgerStorage.PERSISTENT, LedgerStorage.MAPPED}) {
+			makers.add(() -> (TransactionalLedger) engine.newLedger(stock, cash, wholesale, retail, delivery));
+		};
+		makers.add(() -> new IndexedLedger(new WarehouseLedger(stock, cash, wholesale, retail, delivery)));
+		makers.add(() -> new MeteredLedger(new PrimitiveLedger(stock, cash, wholesale, retail, delivery),
+				new WarehouseMetrics()));
+		return makers;
+	}
+
+	/*
+	 * Trade for a while in a way that depends on the random numbers drawn
+	 */
+	private void trade(TransactionalLedger ledger, SplittableRandom random, int days) throws WarehouseException {
+		for (int day = 0; day < days; day++) {
+			if (random.nextInt(3) == 0) {
+				ledger.buyItems(random.nextInt(10));
+			};
+			ledger.sellItems(random.nextInt(10));
+			if (random.nextInt(4) != 0) {
+				ledger.nextDay();
+			};
+		};
+	}
+
+	private void assertSameHistory(TransactionalLedger ledger, TransactionalLedger expected) throws WarehouseException {
+		assertEquals(ledger.currentDay(), expected.currentDay());
+		for (int day = 1; day <= expected.currentDay(); day++) {
+			assertEquals(ledger.inStock(day), expected.inStock(day), "Stock on day " + day);
+			assertEquals(ledger.cashAvailable(day), expected.cashAvailable(day), "Cash on day " + day);
+		};
+	}
+
+	/*
+	 * Test that a committed transaction keeps everything done
+	 */
+	@Test
+	public void CommitKeeps() throws WarehouseException {
+		for (Maker maker : makers()) {
+			TransactionalLedger ledger = maker.make();
+			TransactionalLedger expected = maker.make();
+			assertTrue(ledger.transactional());
+			ledger.begin();
+			assertTrue(ledger.inTransaction());
+			trade(ledger, new SplittableRandom(1), 100);
+			ledger.commit();
+			assertFalse(ledger.inTransaction());
+			trade(expected, new SplittableRandom(1), 100);
+			assertSameHistory(ledger, expected);
+		};
+	}
+
+	/*
+	 * Test that rolling back undoes everything, however many pages (and
+	 * storage pages) were turned, and however the day had begun
+	 */
+	@Test
+	public void RollbackUndoes() throws WarehouseException {
+		for (Maker maker : makers()) {
+			TransactionalLedger ledger = maker.make();
+			TransactionalLedger expected = maker.make();
+			SplittableRandom random = new SplittableRandom(2);
+			SplittableRandom same = new SplittableRandom(2);
+			for (int days : new int[] {0, 1, 3, 31, 40, 100, 5000}) {
+				trade(ledger, random, 37);
+				ledger.sellItems(1); // part-way through a day
+				trade(expected, same, 37);
+				expected.sellItems(1);
+				ledger.begin();
+				trade(ledger, new SplittableRandom(days), days);
+				ledger.rollback();
+				assertSameHistory(ledger, expected);
+			};
+			// And the ledger carries on as normal
+			trade(ledger, random, 100);
+			trade(expected, same, 100);
+			assertSameHistory(ledger, expected);
+		};
+	}
+
+	/*
+	 * Test that the index forgets the days rolled back
+	 */
+	@Test
+	public void IndexRolledBack() throws WarehouseException {
+		IndexedLedger ledger = new IndexedLedger(new PrimitiveLedger(stock, cash, wholesale, retail, delivery));
+		ledger.nextDay();
+		ledger.begin();
+		ledger.buyItems(100);
+		ledger.nextDay();
+		ledger.nextDay();
+		ledger.rollback();
+		ledger.sellItems(5);
+		ledger.nextDay();
+		assertEquals(ledger.maxStock(1, 3), stock);
+		assertEquals(ledger.minStock(1, 3), stock - 5);
+	}
+
+	/*
+	 * Test that rolling back a fork leaves the ledger it was forked from
+	 * alone
+	 */
+	@Test
+	public void RollbackLeavesForksAlone() throws WarehouseException {
+		PersistentLedger ledger = new PersistentLedger(stock, cash, wholesale, retail, delivery);
+		trade(ledger, new SplittableRandom(3), 50);
+		ledger.begin();
+		trade(ledger, new SplittableRandom(4), 100);
+		PersistentLedger fork = ledger.fork();
+		ledger.rollback();
+		PersistentLedger expected = new PersistentLedger(stock, cash, wholesale, retail, delivery);
+		trade(expected, new SplittableRandom(3), 50);
+		trade(expected, new SplittableRandom(4), 100);
+		assertSameHistory(fork, expected);
+	}
+
+	@Test
+	public void MisuseRejected() throws WarehouseException {
+		for (Maker maker : makers()) {
+			TransactionalLedger ledger = maker.make();
+			assertThrows(IllegalStateException.class, () -> {
+				ledger.commit();
+			});
+			assertThrows(IllegalStateException.class, () -> {
+				ledger.rollback();
+			});
+			ledger.begin();
+			assertThrows(IllegalStateException.class, () -> {
+				ledger.begin();
+			});
+		};
+	}
+
+	/*
+	 * Test that decorating a ledger which isn't transactional doesn't make
+	 * it so
+	 */
+	@Test
+	public void DecoratorsFollowLedger() throws WarehouseException {
+		TransactionalLedger ledger = new MeteredLedger(new ConcurrentLedger(stock, cash, wholesale, retail, delivery),
+				new WarehouseMetrics());
+		assertFalse(ledger.transactional());
+		assertFalse(TransactionalLedger.supports(ledger));
+		assertThrows(UnsupportedOperationException.class, () -> {
+			ledger.begin();
+		});
+		// But the warehouse still trades through it, without transactions
+		WarehouseTransactions warehouse = new WarehouseTransactions(stock, 7, ledger);
+		warehouse.restockAndSellStock(5);
+		assertEquals(ledger.currentDay(), Integer.valueOf(2));
+	}
+
+	/*
+	 * Test that a day's trading isn't left half done if the ledger fails
+	 * part-way through, whichever kind of ledger it is
+	 */
+	@Test
+	public void DayAtomic() throws WarehouseException {
+		PrimitiveLedger failing = new PrimitiveLedger(stock, cash, wholesale, retail, delivery) {
+			protected int sell(int requested) {
+				throw new IllegalStateException("Out of paper");
+			}
+		};
+		WarehouseLedger failingBoxed = new WarehouseLedger(stock, cash, wholesale, retail, delivery) {
+			public boolean sellItems(Integer requested) {
+				throw new IllegalStateException("Out of paper");
+			}
+		};
+		TransactionalLedger[] ledgers = {failing, failingBoxed,
+				new MeteredLedger(failingBoxed, new WarehouseMetrics())};
+		for (TransactionalLedger ledger : ledgers) {
+			WarehouseTransactions warehouse = new WarehouseTransactions(stock, 7, ledger);
+			assertThrows(IllegalStateException.class, () -> {
+				warehouse.restockAndSellStock(5);
+			});
+			assertEquals((int) ledger.currentDay(), 1);
+			assertEquals((int) ledger.inStock(), stock);
+			assertEquals((int) ledger.cashAvailable(), cash);
+			assertFalse(ledger.inTransaction());
+			assertFalse(warehouse.orderUnfulfilled());
+		};
+	}
+
+	/*
+	 * Test that many rollbacks in a row leave the ledger as it began (how
+	 * quickly is measured by LedgerBenchmark.rolledBackDay)
+	 */
+	@Test
+	public void RepeatedRollbacks() throws WarehouseException {
+		for (Maker maker : makers()) {
+			TransactionalLedger ledger = maker.make();
+			for (int attempt = 0; attempt < 10000; attempt++) {
+				ledger.begin();
+				ledger.buyItems(attempt & 7);
+				ledger.sellItems(3);
+				ledger.nextDay();
+				ledger.rollback();
+			};
+			assertEquals(ledger.currentDay(), Integer.valueOf(1));
+			assertEquals(ledger.inStock(), Integer.valueOf(stock));
+			assertEquals(ledger.cashAvailable(), Integer.valueOf(cash));
+		};
+	}
+
+}
@@ -0,0 +1,115 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import answer.MappedLedger;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the MappedLedger class
+ * 
+ * NB: All of the LedgerTest tests are inherited, so the memory-mapped
+ * ledger must behave identically to the original one.  The tests below
+ * check that history survives being closed and reopened.
+ */
+public class MappedLedgerTest extends LedgerTest {
+
+	/*
+	 * Every ledger file created by a test, so they can be tidied up afterwards
+	 */
+	ArrayList<MappedLedger> opened = new ArrayList<MappedLedger>();
+	ArrayList<Path> files = new ArrayList<Path>();
+	
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		try {
+			Path file = Files.createTempFile("MappedLedgerTest", ".ledger");
+			files.add(file);
+			MappedLedger ledger = new MappedLedger(file, initialStock, initialCash,
+					wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+			opened.add(ledger);
+			return ledger;
+		} catch (IOException exception) {
+			throw new WarehouseException(exception.toString());
+		}
+	}
+	
+	@AfterEach
+	public void TidyUp() throws IOException {
+		for (MappedLedger ledger : opened) {
+			ledger.close();
+		};
+		for (Path file : files) {
+			Files.deleteIfExists(file);
+		};
+	}
+	
+	@Test
+	public void LedgerReopened() throws WarehouseException, IOException {
+		PerformTransactions();
+		((MappedLedger) typicalLedger).close();
+		MappedLedger reopened = MappedLedger.open(files.get(files.size() - 1));
+		opened.add(reopened);
+		assertEquals(reopened.toString(), "Day 3: Cash reserve = $110; Items in stock = 6\n");
+		assertEquals(reopened.cashAvailable(2), Integer.valueOf(-65));
+		assertEquals(reopened.inStock(1), Integer.valueOf(9));
+		// Prices were remembered too
+		reopened.sellItems(one);
+		assertEquals(reopened.cashAvailable(), Integer.valueOf(110 + retail));
+	}
+	
+	@Test
+	public void LongHistoryAcrossPages() throws WarehouseException, IOException {
+		final int days = 300000; // several pages' worth
+		for (int day = 1; day < days; day++) {
+			typicalLedger.sellItems(day % 2);
+			typicalLedger.nextDay();
+		};
+		((MappedLedger) typicalLedger).close();
+		MappedLedger reopened = MappedLedger.open(files.get(files.size() - 1));
+		opened.add(reopened);
+		assertEquals(reopened.currentDay(), Integer.valueOf(days));
+		assertEquals(reopened.inStock(1), Integer.valueOf(stock - 1));
+		assertEquals(reopened.inStock(days), zero);
+		assertEquals(reopened.cashAvailable(days), Integer.valueOf(cash + (stock * retail)));
+	}
+	
+	@Test
+	public void TruncatedLedgerFile() throws WarehouseException, IOException {
+		PerformTransactions();
+		((MappedLedger) typicalLedger).close();
+		Path file = files.get(files.size() - 1);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(4096 + 100); // the header, and a little of the first page
+		}
+		assertThrows(WarehouseException.class, () -> {
+			MappedLedger.open(file);
+		});
+		assertEquals(Files.size(file), 4096 + 100);
+	}
+	
+	@Test
+	public void NotALedgerFile() throws IOException {
+		Path file = Files.createTempFile("MappedLedgerTest", ".txt");
+		files.add(file);
+		Files.write(file, new byte[] {1, 2, 3});
+		assertThrows(WarehouseException.class, () -> {
+			MappedLedger.open(file);
+		});
+	}
+	
+}
@@ -0,0 +1,163 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the MeteredLedger and WarehouseMetrics classes
+ * 
+ * NB: All of the LedgerTest tests are inherited, so metering must not
+ * change the ledger's behaviour.  The tests below check the counts.
+ */
+public class MeteredLedgerTest extends LedgerTest {
+
+	WarehouseMetrics metrics;
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		if (metrics == null) {
+			metrics = new WarehouseMetrics();
+		};
+		return new MeteredLedger(new PrimitiveLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge), metrics);
+	}
+
+	@BeforeEach
+	public void MetricsReset() {
+		metrics.reset();
+	}
+
+	/*
+	 * Test that closing a metered ledger closes the ledger it meters, if
+	 * that can be closed
+	 */
+	@Test
+	public void CloseDelegated() throws Exception {
+		class ClosingLedger extends PrimitiveLedger implements Closeable {
+			boolean closed = false;
+
+			ClosingLedger() throws WarehouseException {
+				super(stock, cash, wholesale, retail, delivery);
+			}
+
+			public void close() {
+				closed = true;
+			}
+		};
+		ClosingLedger closing = new ClosingLedger();
+		new MeteredLedger(closing, metrics).close();
+		assertTrue(closing.closed);
+		((MeteredLedger) typicalLedger).close(); // nothing to close
+	}
+
+	/*
+	 * Test that purchases, sales and page turns are all counted
+	 */
+	@Test
+	public void OperationsCounted() throws WarehouseException {
+		typicalLedger.buyItems(10);
+		typicalLedger.buyItems(0);
+		typicalLedger.nextDay();
+		typicalLedger.sellItems(7);
+		typicalLedger.sellItems(stock + 10); // more than are left
+		typicalLedger.nextDay();
+		assertEquals(metrics.getBuys(), 2);
+		assertEquals(metrics.getRestockDeliveries(), 1);
+		assertEquals(metrics.getItemsBought(), 10);
+		assertEquals(metrics.getSells(), 2);
+		assertEquals(metrics.getItemsSold(), stock + 10);
+		assertEquals(metrics.getPartialFills(), 1);
+		assertEquals(metrics.getDaysAdvanced(), 2);
+		assertEquals(metrics.getExceptions(), 0);
+	}
+
+	/*
+	 * Test that exceptions are counted on their way through
+	 */
+	@Test
+	public void ExceptionsCounted() {
+		assertThrows(WarehouseException.class, () -> {
+			typicalLedger.buyItems(-1);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			typicalLedger.sellItems(-1);
+		});
+		assertThrows(WarehouseException.class, () -> {
+			typicalLedger.inStock(99);
+		});
+		assertEquals(metrics.getExceptions(), 3);
+		assertEquals(metrics.getBuys(), 0);
+		assertEquals(metrics.getSells(), 0);
+	}
+
+	/*
+	 * Test that a sample of calls is timed
+	 */
+	@Test
+	public void LatenciesSampled() throws WarehouseException {
+		final int days = 100 * WarehouseMetrics.SAMPLE_EVERY;
+		for (int day = 1; day <= days; day++) {
+			typicalLedger.buyItems(1);
+			typicalLedger.sellItems(1);
+			typicalLedger.nextDay();
+		};
+		assertEquals(metrics.buyLatency.count() + metrics.sellLatency.count()
+				+ metrics.nextDayLatency.count(), 3 * days / WarehouseMetrics.SAMPLE_EVERY);
+		assertTrue(metrics.getNextDayLatencyP50() > 0);
+		assertTrue(metrics.getNextDayLatencyP99() >= metrics.getNextDayLatencyP50());
+	}
+
+	/*
+	 * Test that the counts can be read over JMX
+	 */
+	@Test
+	public void PublishedAsMBean() throws Exception {
+		metrics.register("test");
+		try {
+			typicalLedger.sellItems(3);
+			typicalLedger.nextDay();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("answer:type=WarehouseMetrics,name=\"test\"");
+			assertEquals(server.getAttribute(name, "Sells"), 1L);
+			assertEquals(server.getAttribute(name, "ItemsSold"), 3L);
+			assertEquals(server.getAttribute(name, "DaysAdvanced"), 1L);
+			server.invoke(name, "reset", null, null);
+			assertEquals(metrics.getSells(), 0);
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+				new ObjectName("answer:type=WarehouseMetrics,name=\"test\"")));
+	}
+
+	/*
+	 * Test that the simulator only meters when asked to
+	 */
+	@Test
+	public void MeteringOptIn() throws WarehouseException {
+		Ledger plain = new PrimitiveLedger(stock, cash, wholesale, retail, delivery);
+		System.clearProperty(WarehouseMetrics.PROPERTY);
+		assertSame(WarehouseMetrics.meter(plain), plain);
+		System.setProperty(WarehouseMetrics.PROPERTY, "true");
+		try {
+			assertTrue(WarehouseMetrics.meter(plain) instanceof MeteredLedger);
+		} finally {
+			System.clearProperty(WarehouseMetrics.PROPERTY);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import answer.MonteCarloSimulation;
+import answer.MonteCarloSimulation.Summary;
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the MonteCarloSimulation class
+ */
+public class MonteCarloTest {
+
+	/*
+	 * The GUI's default simulation parameters
+	 */
+	final Integer capacity = 20; // boxes
+	final Integer cash = 80; // dollars
+	final Integer maxOrder = 15; // boxes
+	final Integer wholesale = 5; // dollars
+	final Integer retail = 8; // dollars
+	final Integer delivery = 50; // dollars
+	final Integer duration = 7; // days
+	
+	MonteCarloSimulation typicalSimulation;
+	
+	@BeforeEach @Test
+	public void SimulationConstructed() throws WarehouseException {
+		typicalSimulation = new MonteCarloSimulation(capacity, cash, maxOrder,
+				wholesale, retail, delivery, duration);
+	}
+	
+	@Test
+	public void MaxOrderExceedsCapacity() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			new MonteCarloSimulation(capacity, cash, capacity + 1, wholesale, retail, delivery, duration);
+		});
+	}
+	
+	@Test
+	public void InvalidLedgerParameters() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			new MonteCarloSimulation(capacity, cash, maxOrder, retail + 1, retail, delivery, duration);
+		});
+	}
+	
+	@Test
+	public void InvalidJobDuration() throws WarehouseException {
+		assertThrows(WarehouseException.class, () -> {
+			new MonteCarloSimulation(capacity, cash, maxOrder, wholesale, retail, delivery, 0);
+		});
+	}
+	
+	@Test
+	public void EveryGameEndsOneWay() {
+		Summary summary = typicalSimulation.run(1, 10000);
+		assertEquals(summary.games(), 10000);
+		assertEquals(summary.bankruptcy() + summary.unfulfilledOrder() + summary.jobCompletion(),
+				1.0, 1e-9);
+	}
+	
+	@Test
+	public void ResultsIndependentOfParallelism() {
+		// Play the same games one at a time, on this thread
+		Summary sequential = new Summary();
+		for (long seed = 1000; seed < 6000; seed++) {
+			typicalSimulation.play(new ThresholdPolicy(maxOrder - 1, capacity), seed, sequential);
+		};
+		assertEquals(typicalSimulation.run(1000, 5000).toString(), sequential.toString());
+	}
+	
+	@Test
+	public void GameMatchesTransactions() throws WarehouseException {
+		// Replay one game by hand, just as the GUI would
+		final long seed = 100;
+		WarehouseLedger ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+		Random order = new Random(seed);
+		while (!warehouse.insolvent() && !warehouse.orderUnfulfilled() && !warehouse.jobDone()) {
+			if (ledger.inStock() < maxOrder - 1) {
+				warehouse.restockAndSellStock(order.nextInt(maxOrder));
+			} else {
+				warehouse.sellStock(order.nextInt(maxOrder));
+			};
+		};
+		Summary summary = typicalSimulation.run(seed, 1);
+		assertEquals(summary.bankruptcy(), warehouse.insolvent() ? 1.0 : 0.0);
+		assertEquals(summary.jobCompletion(),
+				!warehouse.insolvent() && !warehouse.orderUnfulfilled() ? 1.0 : 0.0);
+		assertEquals(summary.averageFinalCash(), ledger.cashAvailable().doubleValue());
+	}
+	
+}
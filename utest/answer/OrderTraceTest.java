@@ -0,0 +1,198 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import answer.OrderTrace;
+import answer.TraceBacktest;
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the OrderTrace and TraceBacktest classes
+ */
+public class OrderTraceTest {
+
+	/*
+	 * The GUI's default simulation parameters
+	 */
+	final Integer capacity = 20; // boxes
+	final Integer cash = 80; // dollars
+	final Integer maxOrder = 15; // boxes
+	final Integer wholesale = 5; // dollars
+	final Integer retail = 8; // dollars
+	final Integer delivery = 50; // dollars
+	final Integer duration = 7; // days
+
+	Path textFile;
+	Path binaryFile;
+
+	@BeforeEach
+	public void FilesCreated() throws IOException {
+		textFile = Files.createTempFile("orders", ".csv");
+		binaryFile = Files.createTempFile("orders", ".trace");
+	}
+
+	@AfterEach
+	public void FilesDeleted() throws IOException {
+		Files.deleteIfExists(textFile);
+		Files.deleteIfExists(binaryFile);
+	}
+
+	private void write(String text) throws IOException {
+		Files.write(textFile, text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private int[] readAll(Path file) throws IOException, WarehouseException {
+		int[] orders = new int[16];
+		int total = 0;
+		int[] batch = new int[3]; // small, to cross batch boundaries
+		try (OrderTrace trace = new OrderTrace(file)) {
+			int count;
+			while ((count = trace.read(batch)) > 0) {
+				if (total + count > orders.length) {
+					orders = Arrays.copyOf(orders, orders.length * 2);
+				};
+				System.arraycopy(batch, 0, orders, total, count);
+				total += count;
+			};
+			assertEquals(trace.read(batch), -1);
+		}
+		return Arrays.copyOf(orders, total);
+	}
+
+	@Test
+	public void OrdersAlone() throws IOException, WarehouseException {
+		write("3\n0\n14\n7\n");
+		assertArrayEquals(readAll(textFile), new int[] {3, 0, 14, 7});
+	}
+
+	@Test
+	public void HeaderAndDays() throws IOException, WarehouseException {
+		write("day,order\r\n1,3\r\n2, 12\r\n\r\n3,5");
+		assertArrayEquals(readAll(textFile), new int[] {3, 12, 5});
+	}
+
+	@Test
+	public void DatesIgnored() throws IOException, WarehouseException {
+		write("2024-01-01,6\n2024-01-02,-2\n");
+		assertArrayEquals(readAll(textFile), new int[] {6, -2});
+	}
+
+	@Test
+	public void GarbledLine() throws IOException, WarehouseException {
+		write("1\n2\nthree\n");
+		assertThrows(WarehouseException.class, () -> {
+			readAll(textFile);
+		});
+	}
+
+	@Test
+	public void OrderTooLarge() throws IOException, WarehouseException {
+		write("1\n2147483648\n");
+		assertThrows(WarehouseException.class, () -> {
+			readAll(textFile);
+		});
+	}
+
+	/*
+	 * Test that a trace larger than the read buffer is converted to binary
+	 * and back without losing anything
+	 */
+	@Test
+	public void LargeTraceConverted() throws IOException, WarehouseException {
+		final int days = 300000;
+		int[] expected = new int[days];
+		Random random = new Random(302);
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(textFile))) {
+			out.println("day,order");
+			for (int day = 0; day < days; day++) {
+				expected[day] = random.nextInt(1000000);
+				out.println((day + 1) + "," + expected[day]);
+			};
+		}
+		assertArrayEquals(readAll(textFile), expected);
+		assertEquals(OrderTrace.toBinary(textFile, binaryFile), days);
+		assertEquals(Files.size(binaryFile), 8 + days * 4L);
+		assertArrayEquals(readAll(binaryFile), expected);
+	}
+
+	@Test
+	public void TruncatedBinary() throws IOException, WarehouseException {
+		write("1\n2\n");
+		OrderTrace.toBinary(textFile, binaryFile);
+		byte[] bytes = Files.readAllBytes(binaryFile);
+		Files.write(binaryFile, Arrays.copyOf(bytes, bytes.length - 1));
+		assertThrows(WarehouseException.class, () -> {
+			readAll(binaryFile);
+		});
+	}
+
+	/*
+	 * Test that a backtest plays exactly the same game as the GUI would
+	 * with the same orders
+	 */
+	@Test
+	public void BacktestMatchesTransactions() throws Exception {
+		Random random = new Random(100);
+		StringBuilder trace = new StringBuilder();
+		WarehouseLedger ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+		int days = 0;
+		while (!warehouse.insolvent() && !warehouse.orderUnfulfilled() && !warehouse.jobDone()) {
+			int order = random.nextInt(maxOrder);
+			trace.append(order).append('\n');
+			warehouse.restockAndSellStock(order);
+			days++;
+		};
+		write(trace.toString() + "1\n2\n3\n"); // more than the game needs
+		TraceBacktest.Result result = new TraceBacktest(capacity, cash, wholesale, retail, delivery, duration)
+				.run(textFile, new ThresholdPolicy(capacity + 1, capacity));
+		assertEquals(result.days(), days);
+		assertEquals(result.insolvent(), warehouse.insolvent());
+		assertEquals(result.orderUnfulfilled(), warehouse.orderUnfulfilled());
+		assertEquals(result.jobDone(), warehouse.jobDone());
+		assertEquals(Integer.valueOf(result.finalCash()), ledger.cashAvailable());
+		assertEquals(Integer.valueOf(result.finalStock()), ledger.inStock());
+	}
+
+	/*
+	 * Test that a trace far longer than the queue can be abandoned part way
+	 * through, and one which runs out ends the replay
+	 */
+	@Test
+	public void BacktestStopsEarlyOrAtEnd() throws Exception {
+		final int days = TraceBacktest.BATCH_SIZE * (TraceBacktest.QUEUE_BATCHES + 4);
+		StringBuilder trace = new StringBuilder();
+		for (int day = 0; day < days; day++) {
+			trace.append("0\n");
+		};
+		write(trace.toString());
+		// Nothing is ever sold, so only the job's end stops the replay
+		TraceBacktest.Result early = new TraceBacktest(capacity, cash, wholesale, retail, delivery, 100)
+				.run(textFile, new ThresholdPolicy(0, capacity));
+		assertEquals(early.days(), 100);
+		assertTrue(early.jobDone());
+		TraceBacktest.Result whole = new TraceBacktest(capacity, cash, wholesale, retail, delivery, days + 1)
+				.run(textFile, new ThresholdPolicy(0, capacity));
+		assertEquals(whole.days(), days);
+		assertFalse(whole.jobDone() || whole.insolvent() || whole.orderUnfulfilled());
+	}
+
+	@Test
+	public void BacktestRejectsNegativeOrder() throws IOException {
+		write("1\n-1\n");
+		assertThrows(WarehouseException.class, () -> {
+			new TraceBacktest(capacity, cash, wholesale, retail, delivery, duration)
+					.run(textFile, new ThresholdPolicy(0, capacity));
+		});
+	}
+
+}
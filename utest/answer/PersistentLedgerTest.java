@@ -0,0 +1,136 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the PersistentLedger class, and forking transactions
+ * 
+ * NB: All of the LedgerTest tests are inherited, so the persistent ledger
+ * must behave identically to the original one.  The tests below check
+ * that forks share history without affecting each other.
+ */
+public class PersistentLedgerTest extends LedgerTest {
+
+	final int capacity = 20;
+	final int duration = 7;
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new PersistentLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+	}
+
+	/*
+	 * Trade on the given ledger for the given number of days in a way that
+	 * depends on the seed, keeping a copy of the history in a plain ledger
+	 */
+	private void trade(Ledger ledger, PrimitiveLedger copy, int days, int seed) throws WarehouseException {
+		for (int day = 0; day < days; day++) {
+			int amount = (day * 7 + seed) % 5;
+			ledger.buyItems(amount);
+			copy.buyItems(amount);
+			ledger.sellItems(amount + seed % 3);
+			copy.sellItems(amount + seed % 3);
+			ledger.nextDay();
+			copy.nextDay();
+		};
+	}
+
+	private void assertSameHistory(Ledger ledger, PrimitiveLedger copy) throws WarehouseException {
+		assertEquals(ledger.currentDay(), copy.currentDay());
+		for (int day = 1; day <= copy.currentDay(); day++) {
+			assertEquals(ledger.inStock(day), copy.inStock(day));
+			assertEquals(ledger.cashAvailable(day), copy.cashAvailable(day));
+		};
+	}
+
+	/*
+	 * Test that history survives many pages being filed
+	 */
+	@Test
+	public void LongHistoryRemembered() throws WarehouseException {
+		PrimitiveLedger copy = new PrimitiveLedger(stock, cash, wholesale, retail, delivery);
+		trade(typicalLedger, copy, 40000, 1);
+		assertSameHistory(typicalLedger, copy);
+	}
+
+	/*
+	 * Test that forks share the past but not the future, wherever in a
+	 * page they were made
+	 */
+	@Test
+	public void ForksIndependent() throws WarehouseException {
+		for (int days : new int[] {0, 1, 30, 31, 32, 33, 1000, 1024}) {
+			PersistentLedger original = new PersistentLedger(stock, cash, wholesale, retail, delivery);
+			PrimitiveLedger originalCopy = new PrimitiveLedger(stock, cash, wholesale, retail, delivery);
+			PrimitiveLedger forkCopy = new PrimitiveLedger(stock, cash, wholesale, retail, delivery);
+			trade(original, originalCopy, days, 1);
+			trade(forkCopy, new PrimitiveLedger(stock, cash, wholesale, retail, delivery), days, 1);
+			PersistentLedger fork = original.fork();
+			assertSameHistory(fork, forkCopy);
+			trade(fork, forkCopy, 100, 2);
+			trade(original, originalCopy, 50, 3);
+			assertSameHistory(fork, forkCopy);
+			assertSameHistory(original, originalCopy);
+		};
+	}
+
+	/*
+	 * Test that forked transactions explore different futures from the
+	 * same starting point
+	 */
+	@Test
+	public void TransactionsForked() throws WarehouseException {
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration,
+				new PersistentLedger(capacity, cash, wholesale, retail, delivery));
+		warehouse.sellStock(15);
+		warehouse.sellStock(3);
+		WarehouseTransactions restock = warehouse.fork();
+		WarehouseTransactions noRestock = warehouse.fork();
+		restock.restockAndSellStock(10);
+		noRestock.sellStock(10);
+		assertTrue(noRestock.orderUnfulfilled());
+		assertFalse(restock.orderUnfulfilled());
+		assertFalse(warehouse.orderUnfulfilled());
+		assertEquals((int) warehouse.ledger().currentDay(), 3);
+		assertEquals((int) restock.ledger().inStock(), capacity - 10);
+		assertEquals((int) noRestock.ledger().inStock(), 0);
+		assertEquals((int) warehouse.ledger().inStock(), 2);
+		assertThrows(UnsupportedOperationException.class, () -> {
+			new WarehouseTransactions(capacity, duration,
+					new WarehouseLedger(capacity, cash, wholesale, retail, delivery)).fork();
+		});
+	}
+
+	/*
+	 * Test that thousands of branches from a long history are cheap
+	 */
+	@Test
+	public void ManyBranches() throws WarehouseException {
+		final int branches = 10000;
+		PrimitiveLedger copy = new PrimitiveLedger(stock, cash, wholesale, retail, delivery);
+		trade(typicalLedger, copy, 100000, 3);
+		PersistentLedger trunk = (PersistentLedger) typicalLedger;
+		PersistentLedger[] forks = new PersistentLedger[branches];
+		for (int branch = 0; branch < branches; branch++) {
+			forks[branch] = trunk.fork();
+			forks[branch].buyItems(branch);
+			forks[branch].nextDay();
+		};
+		for (int branch = 0; branch < branches; branch++) {
+			assertEquals((int) forks[branch].inStock(), copy.inStock() + branch);
+			assertEquals(forks[branch].inStock(50000), copy.inStock(50000));
+		};
+		assertSameHistory(trunk, copy);
+	}
+
+}
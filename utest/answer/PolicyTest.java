@@ -0,0 +1,126 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import answer.PolicyOptimizer.Evaluation;
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the restocking policies and the PolicyOptimizer class
+ */
+public class PolicyTest {
+
+	/*
+	 * The GUI's default simulation parameters
+	 */
+	final Integer capacity = 20; // boxes
+	final Integer cash = 80; // dollars
+	final Integer maxOrder = 15; // boxes
+	final Integer wholesale = 5; // dollars
+	final Integer retail = 8; // dollars
+	final Integer delivery = 50; // dollars
+	final Integer duration = 7; // days
+	
+	final int none = RestockPolicy.NO_RESTOCK;
+	
+	/*
+	 * Tests for the individual policies
+	 */
+	@Test
+	public void ThresholdPolicyDecisions() {
+		RestockPolicy policy = new ThresholdPolicy(5, capacity);
+		assertEquals(policy.restockLevel(1, 4, cash), capacity.intValue());
+		assertEquals(policy.restockLevel(1, 5, cash), none);
+	}
+	
+	@Test
+	public void ReorderPointPolicyDecisions() {
+		RestockPolicy policy = new ReorderPointPolicy(5, 12);
+		assertEquals(policy.restockLevel(3, 0, cash), 12);
+		assertEquals(policy.restockLevel(3, 12, cash), none);
+	}
+	
+	@Test
+	public void WeekdayPolicyDecisions() {
+		RestockPolicy policy = new WeekdayPolicy(0b0000101, capacity); // first and third days
+		assertEquals(policy.restockLevel(1, capacity, cash), capacity.intValue());
+		assertEquals(policy.restockLevel(2, 0, cash), none);
+		assertEquals(policy.restockLevel(3, 0, cash), capacity.intValue());
+		assertEquals(policy.restockLevel(8, 0, cash), capacity.intValue()); // next week
+		assertEquals(policy.toString(), "Restock to 20 on days R-R----");
+	}
+	
+	@Test
+	public void LookaheadPolicyDecisions() {
+		RestockPolicy policy = new LookaheadPolicy(2, 14, capacity, wholesale, delivery);
+		assertEquals(policy.restockLevel(1, 28, 0), none); // two days covered
+		assertEquals(policy.restockLevel(1, 10, 100), capacity.intValue()); // costs exactly $100
+		assertEquals(policy.restockLevel(1, 10, 99), none); // can't afford it
+	}
+	
+	/*
+	 * Test restocking to less than capacity
+	 */
+	@Test
+	public void RestockingToLevel() throws WarehouseException {
+		WarehouseLedger ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+		warehouse.sellStock(15);
+		warehouse.restockToAndSellStock(12, 0);
+		assertEquals(ledger.inStock(), Integer.valueOf(12));
+		assertEquals(ledger.cashAvailable(), Integer.valueOf(cash + (15 * retail) - (7 * wholesale) - delivery));
+		warehouse.restockToAndSellStock(5, 1); // already above level, but still pay for the truck
+		assertEquals(ledger.inStock(), Integer.valueOf(11));
+		assertThrows(WarehouseException.class, () -> {
+			warehouse.restockToAndSellStock(capacity + 1, 0);
+		});
+	}
+	
+	/*
+	 * Tests for the optimizer
+	 */
+	@Test
+	public void EvaluationsMatchSimulation() throws WarehouseException {
+		PolicyOptimizer optimizer = new PolicyOptimizer(capacity, cash, maxOrder,
+				wholesale, retail, delivery, duration);
+		MonteCarloSimulation simulation = new MonteCarloSimulation(capacity, cash, maxOrder,
+				wholesale, retail, delivery, duration);
+		List<RestockPolicy> candidates = Arrays.asList(
+				new ThresholdPolicy(14, capacity), new ReorderPointPolicy(8, 16));
+		List<Evaluation> evaluations = optimizer.evaluate(candidates, 1, 2000);
+		for (int index = 0; index < candidates.size(); index++) {
+			assertEquals(evaluations.get(index).summary().toString(),
+					simulation.run(candidates.get(index), 1, 2000).toString());
+		};
+	}
+	
+	@Test
+	public void BestPolicyWithinFailureBound() throws WarehouseException {
+		PolicyOptimizer optimizer = new PolicyOptimizer(capacity, cash, maxOrder,
+				wholesale, retail, delivery, duration);
+		List<RestockPolicy> candidates = optimizer.standardCandidates();
+		final double bound = 0.1;
+		List<Evaluation> evaluations = optimizer.evaluate(candidates, 1, 500);
+		Evaluation best = optimizer.optimize(candidates, 1, 500, bound);
+		assertNotNull(best);
+		assertTrue(best.failure() <= bound);
+		for (Evaluation evaluation : evaluations) {
+			if (evaluation.failure() <= bound) {
+				assertTrue(evaluation.summary().averageFinalCash() <= best.summary().averageFinalCash());
+			};
+		};
+	}
+	
+	@Test
+	public void NoPolicyGoodEnough() throws WarehouseException {
+		PolicyOptimizer optimizer = new PolicyOptimizer(capacity, cash, maxOrder,
+				wholesale, retail, delivery, duration);
+		assertNull(optimizer.optimize(Arrays.asList((RestockPolicy) new ThresholdPolicy(0, capacity)),
+				1, 1000, 0.0)); // never restocking must eventually let someone down
+	}
+	
+}
@@ -0,0 +1,79 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import answer.PrimitiveLedger;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the PrimitiveLedger class
+ * 
+ * NB: All of the LedgerTest tests are inherited, so the primitive ledger
+ * must behave identically to the original one.  The tests below just
+ * check behaviour that is peculiar to array-backed storage.
+ */
+public class PrimitiveLedgerTest extends LedgerTest {
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new PrimitiveLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+	}
+	
+	/*
+	 * Test that history survives the columns being grown many times
+	 */
+	@Test
+	public void LongHistoryRemembered() throws WarehouseException {
+		final int days = 10000;
+		for (int day = 1; day < days; day++) {
+			typicalLedger.buyItems(day % 3);
+			typicalLedger.sellItems(day % 5);
+			typicalLedger.nextDay();
+		};
+		assertEquals(typicalLedger.currentDay(), Integer.valueOf(days));
+		// Replay the same transactions on the original ledger and compare
+		Ledger reference = new WarehouseLedger(stock, cash, wholesale, retail, delivery);
+		for (int day = 1; day < days; day++) {
+			reference.buyItems(day % 3);
+			reference.sellItems(day % 5);
+			reference.nextDay();
+		};
+		for (int day = 1; day <= days; day++) {
+			assertEquals(reference.inStock(day), typicalLedger.inStock(day));
+			assertEquals(reference.cashAvailable(day), typicalLedger.cashAvailable(day));
+		};
+	}
+	
+	@Test
+	public void StorageSelectedByName() throws WarehouseException {
+		System.setProperty(LedgerStorage.PROPERTY, "primitive");
+		try {
+			assertTrue(LedgerStorage.selected().newLedger(stock, cash, wholesale, retail, delivery)
+					instanceof PrimitiveLedger);
+		} finally {
+			System.clearProperty(LedgerStorage.PROPERTY);
+		}
+		assertEquals(LedgerStorage.selected(), LedgerStorage.BOXED);
+	}
+	
+	@Test
+	public void UnknownStorageRejected() throws WarehouseException {
+		System.setProperty(LedgerStorage.PROPERTY, "papyrus");
+		try {
+			assertThrows(WarehouseException.class, () -> {
+				LedgerStorage.selected();
+			});
+		} finally {
+			System.clearProperty(LedgerStorage.PROPERTY);
+		}
+	}
+	
+}
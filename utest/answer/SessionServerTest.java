@@ -0,0 +1,238 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import answer.SessionServer;
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the SessionServer class
+ */
+public class SessionServerTest {
+
+	/*
+	 * The GUI's default simulation parameters
+	 */
+	final Integer capacity = 20; // boxes
+	final Integer cash = 80; // dollars
+	final Integer maxOrder = 15; // boxes
+	final Integer wholesale = 5; // dollars
+	final Integer retail = 8; // dollars
+	final Integer delivery = 50; // dollars
+	final Integer duration = 7; // days
+
+	SessionServer server;
+
+	@BeforeEach
+	public void ServerStarted() throws IOException {
+		server = new SessionServer(0);
+	}
+
+	@AfterEach
+	public void ServerStopped() {
+		server.close();
+	}
+
+	/*
+	 * Send a request and return the status, followed by the reply
+	 */
+	private String[] request(String method, String path) throws IOException {
+		URL url = new URL("http://localhost:" + server.port() + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod(method);
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		String reply = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+		in.close();
+		return new String[] {Integer.toString(status), reply};
+	}
+
+	private String ok(String method, String path) throws IOException {
+		String[] reply = request(method, path);
+		assertEquals("200", reply[0], reply[1]);
+		return reply[1];
+	}
+
+	@Test
+	public void SessionStartedWithDefaults() throws IOException {
+		String id = ok("POST", "/sessions");
+		assertEquals(ok("GET", "/sessions/" + id + "/ledger"), "1,80,20");
+		assertEquals(ok("GET", "/sessions/" + id + "/jobDone"), "false");
+		assertEquals(server.sessions(), 1);
+	}
+
+	@Test
+	public void InvalidParameters() throws IOException {
+		String[] reply = request("POST", "/sessions?wholesale=9");
+		assertEquals(reply[0], "400");
+		assertTrue(reply[1].startsWith("Warehouse Exception"));
+	}
+
+	@Test
+	public void NegativeOrder() throws IOException {
+		String id = ok("POST", "/sessions");
+		assertEquals(request("POST", "/sessions/" + id + "/sellStock?order=-1")[0], "400");
+		assertEquals(request("POST", "/sessions/" + id + "/sellStock")[0], "400");
+	}
+
+	@Test
+	public void UnknownSession() throws IOException {
+		assertEquals(request("GET", "/sessions/99/insolvent")[0], "404");
+	}
+
+	@Test
+	public void NumbersOutOfRange() throws IOException {
+		String id = ok("POST", "/sessions");
+		assertEquals(request("GET", "/sessions/" + (1L << 32) + id + "/insolvent")[0], "404");
+		assertEquals(request("POST", "/sessions/" + id + "/sellStock?order=" + (1L << 32))[0], "400");
+		assertEquals(ok("GET", "/sessions/" + id + "/ledger"), "1,80,20");
+	}
+
+	@Test
+	public void WrongMethod() throws IOException {
+		String id = ok("POST", "/sessions");
+		assertEquals(request("GET", "/sessions/" + id + "/sellStock?order=1")[0], "405");
+	}
+
+	@Test
+	public void SessionEnded() throws IOException {
+		String id = ok("POST", "/sessions");
+		ok("DELETE", "/sessions/" + id);
+		assertEquals(server.sessions(), 0);
+		assertEquals(request("GET", "/sessions/" + id + "/jobDone")[0], "404");
+	}
+
+	/*
+	 * Test that sessions nobody uses are ended, but busy ones aren't
+	 */
+	@Test
+	public void IdleSessionsEnded() throws Exception {
+		server.close();
+		server = new SessionServer(0, 200);
+		String idle = ok("POST", "/sessions");
+		String busy = ok("POST", "/sessions");
+		for (int request = 0; request < 10; request++) {
+			Thread.sleep(50);
+			ok("GET", "/sessions/" + busy + "/jobDone");
+		};
+		Thread.sleep(100);
+		assertEquals(request("GET", "/sessions/" + idle + "/jobDone")[0], "404");
+		ok("GET", "/sessions/" + busy + "/jobDone");
+		assertEquals(server.sessions(), 1);
+	}
+
+	/*
+	 * Test that a fixed mapped ledger file isn't shared between sessions
+	 */
+	@Test
+	public void SharedLedgerFileRejected() throws IOException {
+		System.setProperty(LedgerStorage.PROPERTY, "MAPPED");
+		System.setProperty(LedgerStorage.FILE_PROPERTY, "shared.ledger");
+		try {
+			assertEquals(request("POST", "/sessions")[0], "500");
+			assertEquals(server.sessions(), 0);
+		} finally {
+			System.clearProperty(LedgerStorage.PROPERTY);
+			System.clearProperty(LedgerStorage.FILE_PROPERTY);
+		}
+	}
+
+	/*
+	 * Test that a game played over the network matches the same game
+	 * played directly
+	 */
+	@Test
+	public void SessionMatchesTransactions() throws IOException, WarehouseException {
+		String id = ok("POST", "/sessions?capacity=20&cash=80&wholesale=5&retail=8&delivery=50&duration=7");
+		WarehouseLedger ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		WarehouseTransactions warehouse = new WarehouseTransactions(capacity, duration, ledger);
+		Random random = new Random(100);
+		for (int day = 1; day <= duration; day++) {
+			int order = random.nextInt(maxOrder);
+			if (day % 2 == 1) {
+				warehouse.restockAndSellStock(order);
+				ok("POST", "/sessions/" + id + "/restockAndSellStock?order=" + order);
+			} else {
+				warehouse.sellStock(order);
+				ok("POST", "/sessions/" + id + "/sellStock?order=" + order);
+			};
+			assertEquals(ok("GET", "/sessions/" + id + "/insolvent"), Boolean.toString(warehouse.insolvent()));
+			assertEquals(ok("GET", "/sessions/" + id + "/orderUnfulfilled"),
+					Boolean.toString(warehouse.orderUnfulfilled()));
+			assertEquals(ok("GET", "/sessions/" + id + "/jobDone"), Boolean.toString(warehouse.jobDone()));
+		};
+		String[] history = ok("GET", "/sessions/" + id + "/history").split("\n");
+		assertEquals(history.length, duration + 1);
+		for (int day = 1; day <= duration + 1; day++) {
+			assertEquals(history[day - 1], day + "," + ledger.cashAvailable(day) + "," + ledger.inStock(day));
+		};
+		assertEquals(ok("GET", "/sessions/" + id + "/ledger?day=3"), history[2]);
+		assertEquals(request("GET", "/sessions/" + id + "/ledger?day=99")[0], "400");
+	}
+
+	/*
+	 * Test that percentiles are reported to within the histogram's precision
+	 */
+	@Test
+	public void LatencyPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(histogram.percentile(0.99), 0);
+		for (long nanos = 1; nanos <= 100000; nanos++) {
+			histogram.record(nanos * 1000);
+		};
+		assertEquals(histogram.count(), 100000);
+		assertEquals(histogram.percentile(0.5), 50000000, 50000000 * 0.04);
+		assertEquals(histogram.percentile(0.99), 99000000, 99000000 * 0.04);
+		assertTrue(histogram.percentile(1.0) >= 100000000);
+		histogram.reset();
+		assertEquals(histogram.count(), 0);
+	}
+
+	/*
+	 * Test that many clients at once each get their own, correct, session
+	 */
+	@Test
+	public void ManyClientsAtOnce() throws Exception {
+		final int clients = 100;
+		AtomicInteger correct = new AtomicInteger();
+		Thread[] threads = new Thread[clients];
+		for (int client = 0; client < clients; client++) {
+			final int order = client % maxOrder;
+			threads[client] = new Thread(() -> {
+				try {
+					String id = ok("POST", "/sessions");
+					for (int day = 1; day <= duration; day++) {
+						ok("POST", "/sessions/" + id + "/restockAndSellStock?order=" + order);
+					};
+					// Every day but the first restocks what was sold the day before
+					int expectedCash = cash + duration * (order * retail - delivery)
+							- (duration - 1) * order * wholesale;
+					if (ok("GET", "/sessions/" + id + "/ledger").equals(
+							(duration + 1) + "," + expectedCash + "," + (capacity - order))) {
+						correct.incrementAndGet();
+					};
+				} catch (IOException | AssertionError exception) {
+					// Counted as incorrect
+				}
+			});
+			threads[client].start();
+		};
+		for (Thread thread : threads) {
+			thread.join();
+		};
+		assertEquals(correct.get(), clients);
+		assertEquals(server.sessions(), clients);
+		assertTrue(server.latency().count() >= clients * (duration + 2));
+		assertTrue(server.latency().percentile(0.99) > 0);
+	}
+
+}
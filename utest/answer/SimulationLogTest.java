@@ -0,0 +1,127 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.*;
+import question.SimulationLog;
+
+/*
+ * Unit tests for the GUI's SimulationLog class
+ */
+public class SimulationLogTest {
+
+	final int maxLines = 100;
+
+	JTextArea display;
+	Path file;
+
+	@BeforeEach
+	public void DisplayCreated() throws Exception {
+		display = new JTextArea();
+		file = Files.createTempFile("warehouse", ".log");
+	}
+
+	@AfterEach
+	public void FileDeleted() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	/*
+	 * Wait until everything logged so far has reached the display
+	 */
+	private String displayed() throws Exception {
+		SwingUtilities.invokeAndWait(() -> {});
+		String[] text = new String[1];
+		SwingUtilities.invokeAndWait(() -> {
+			text[0] = display.getText();
+		});
+		return text[0];
+	}
+
+	@Test
+	public void TextAppendedInOrder() throws Exception {
+		SimulationLog log = new SimulationLog(display, maxLines);
+		log.reset("Warehouse simulation started\n");
+		log.append("-----\n");
+		log.append("Day 1: ");
+		log.append("Cash reserve = $80\n");
+		assertEquals(displayed(), "Warehouse simulation started\n-----\nDay 1: Cash reserve = $80\n");
+		assertNull(log.file());
+	}
+
+	@Test
+	public void ResetReplacesText() throws Exception {
+		SimulationLog log = new SimulationLog(display, maxLines);
+		log.append("Old text\n");
+		assertEquals(displayed(), "Old text\n");
+		log.reset("New text\n");
+		assertEquals(displayed(), "New text\n");
+	}
+
+	/*
+	 * Test that a very long log keeps only its most recent lines on display,
+	 * but all of them in the file
+	 */
+	@Test
+	public void DisplayBoundedFileComplete() throws Exception {
+		final int days = 100000;
+		SimulationLog log = new SimulationLog(display, maxLines, file);
+		StringBuilder expected = new StringBuilder();
+		for (int day = 1; day <= days; day++) {
+			String line = "Day " + day + ": Cash reserve = $" + (day * 3) + "\n";
+			log.append(line);
+			expected.append(line);
+		};
+		String shown = displayed();
+		String[] lines = shown.split("\n");
+		assertTrue(lines.length <= maxLines + maxLines / 4, "Too many lines: " + lines.length);
+		assertTrue(lines.length > 0);
+		assertEquals(lines[lines.length - 1], "Day " + days + ": Cash reserve = $" + (days * 3));
+		assertTrue(expected.toString().endsWith(shown));
+		log.close();
+		assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), expected.toString());
+		assertEquals(log.file(), file);
+	}
+
+	/*
+	 * Test that text logged from many threads at once is neither lost nor
+	 * interleaved within a line
+	 */
+	@Test
+	public void ManyThreadsLogging() throws Exception {
+		final int threads = 8;
+		final int linesEach = 2000;
+		SimulationLog log = new SimulationLog(display, maxLines, file);
+		Thread[] loggers = new Thread[threads];
+		for (int thread = 0; thread < threads; thread++) {
+			final int id = thread;
+			loggers[thread] = new Thread(() -> {
+				for (int line = 0; line < linesEach; line++) {
+					log.append("Thread " + id + " line " + line + "\n");
+				};
+			});
+			loggers[thread].start();
+		};
+		for (Thread logger : loggers) {
+			logger.join();
+		};
+		log.close();
+		String[] written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n");
+		assertEquals(written.length, threads * linesEach);
+		int[] next = new int[threads];
+		for (String line : written) {
+			String[] words = line.split(" ");
+			int id = Integer.parseInt(words[1]);
+			assertEquals(Integer.parseInt(words[3]), next[id]++);
+		};
+		assertTrue(displayed().split("\n").length <= maxLines + maxLines / 4);
+	}
+
+}
@@ -0,0 +1,74 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import answer.SparseLedger;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the SparseLedger class
+ * 
+ * NB: All of the LedgerTest tests are inherited, so the sparse ledger
+ * must behave identically to the original one.  The tests below check
+ * that idle days really don't cost anything.
+ */
+public class SparseLedgerTest extends LedgerTest {
+
+	@Override
+	protected Ledger newLedger(
+			Integer initialStock,
+			Integer initialCash,
+			Integer wholesaleCostPerItem,
+			Integer retailPricePerItem,
+			Integer deliveryCharge) throws WarehouseException {
+		return new SparseLedger(initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge);
+	}
+	
+	@Test
+	public void IdleDaysNotRecorded() throws WarehouseException {
+		SparseLedger sparse = (SparseLedger) typicalLedger;
+		for (int day = 1; day < 1000; day++) { // do nothing for a long time
+			typicalLedger.sellItems(zero);
+			typicalLedger.nextDay();
+		};
+		assertEquals(sparse.changePoints(), 1); // just the opening balances
+		assertEquals(typicalLedger.inStock(500), stock);
+		assertEquals(typicalLedger.cashAvailable(999), cash);
+	}
+	
+	@Test
+	public void BusyDaysRecordedOnce() throws WarehouseException {
+		SparseLedger sparse = (SparseLedger) typicalLedger;
+		PerformTransactions(); // trades on each of three days
+		assertEquals(sparse.changePoints(), 3);
+	}
+	
+	@Test
+	public void CancelledTradingNotRecorded() throws WarehouseException {
+		final Ledger freeLedger = newLedger(stock, cash, wholesale, wholesale, zero);
+		final SparseLedger freeSparse = (SparseLedger) freeLedger;
+		freeLedger.nextDay();
+		freeLedger.buyItems(two); // costs exactly what selling them earns
+		freeLedger.sellItems(two);
+		assertEquals(freeSparse.changePoints(), 1);
+	}
+	
+	@Test
+	public void LookupsBetweenChangePoints() throws WarehouseException {
+		typicalLedger.nextDay();
+		typicalLedger.nextDay();
+		typicalLedger.sellItems(two); // day 3
+		typicalLedger.nextDay();
+		typicalLedger.nextDay();
+		typicalLedger.nextDay(); // day 6
+		assertEquals(typicalLedger.inStock(1), stock);
+		assertEquals(typicalLedger.inStock(2), stock);
+		assertEquals(typicalLedger.inStock(3), Integer.valueOf(stock - two));
+		assertEquals(typicalLedger.inStock(5), Integer.valueOf(stock - two));
+		assertEquals(typicalLedger.cashAvailable(6), Integer.valueOf(cash + (two * retail)));
+	}
+	
+}
@@ -0,0 +1,126 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the exception-free trading methods and the TradeStatus class
+ */
+public class TradeStatusTest {
+
+	// Simulation parameters
+	final int capacity = 20;
+	final int cash = 80;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+	final int duration = 7;
+
+	PrimitiveLedger ledger;
+	WarehouseTransactions warehouse;
+
+	@BeforeEach @Test
+	public void WarehouseConstructed() throws WarehouseException {
+		ledger = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery);
+		warehouse = new WarehouseTransactions(capacity, duration, ledger);
+	}
+
+	/*
+	 * Test the ledger's exception-free purchases and sales
+	 */
+	@Test
+	public void LedgerStatuses() {
+		assertEquals(ledger.trySell(5), TradeStatus.FILLED);
+		assertEquals(ledger.tryBuy(3), TradeStatus.OK);
+		assertEquals(ledger.trySell(capacity), TradeStatus.PARTLY_FILLED);
+		assertEquals(ledger.trySell(-1), TradeStatus.NEGATIVE_SALE);
+		assertEquals(ledger.tryBuy(-1), TradeStatus.NEGATIVE_PURCHASE);
+		// Rejected requests change nothing
+		assertEquals((int) ledger.inStock(), 0);
+		assertEquals((int) ledger.cashAvailable(), cash + 5 * retail - 3 * wholesale - delivery + 18 * retail);
+	}
+
+	/*
+	 * Test the original ledger's exception-free purchases and sales
+	 */
+	@Test
+	public void OriginalLedgerStatuses() throws WarehouseException {
+		WarehouseLedger original = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		assertEquals(original.trySell(5), TradeStatus.FILLED);
+		assertEquals(original.tryBuy(3), TradeStatus.OK);
+		assertEquals(original.trySell(capacity), TradeStatus.PARTLY_FILLED);
+		assertEquals(original.trySell(-1), TradeStatus.NEGATIVE_SALE);
+		assertEquals(original.tryBuy(-1), TradeStatus.NEGATIVE_PURCHASE);
+		assertEquals((int) original.cashAvailable(), (int) ledger.cashAvailable() + 23 * retail - 3 * wholesale - delivery);
+	}
+
+	/*
+	 * Test the exception-free day's trading
+	 */
+	@Test
+	public void TransactionStatuses() {
+		assertEquals(warehouse.trySellStock(-1), TradeStatus.NEGATIVE_ORDER);
+		assertEquals(warehouse.tryRestockAndSellStock(-1), TradeStatus.NEGATIVE_ORDER);
+		assertEquals(warehouse.tryRestockToAndSellStock(capacity + 1, 5), TradeStatus.BAD_RESTOCK_LEVEL);
+		assertEquals(warehouse.tryRestockToAndSellStock(-1, 5), TradeStatus.BAD_RESTOCK_LEVEL);
+		assertEquals(warehouse.tryRestockToAndSellStock(capacity, -1), TradeStatus.NEGATIVE_ORDER);
+		// Rejected days don't happen at all
+		assertEquals((int) ledger.currentDay(), 1);
+		assertEquals(warehouse.trySellStock(15), TradeStatus.FILLED);
+		assertEquals(warehouse.tryRestockToAndSellStock(10, 5), TradeStatus.FILLED);
+		assertEquals(warehouse.tryRestockAndSellStock(capacity + 1), TradeStatus.PARTLY_FILLED);
+		assertTrue(warehouse.orderUnfulfilled());
+		assertEquals((int) ledger.currentDay(), 4);
+	}
+
+	/*
+	 * Test that an overfull warehouse can't be "restocked" to capacity
+	 */
+	@Test
+	public void OverfullWarehouse() throws WarehouseException {
+		WarehouseTransactions overfull = new WarehouseTransactions(capacity, duration,
+				new PrimitiveLedger(capacity + 1, cash, wholesale, retail, delivery));
+		assertEquals(overfull.tryRestockAndSellStock(5), TradeStatus.NEGATIVE_PURCHASE);
+		assertThrows(WarehouseException.class, () -> {
+			overfull.restockAndSellStock(5);
+		});
+	}
+
+	/*
+	 * Test that the throwing methods still throw, with the same messages
+	 */
+	@Test
+	public void ThrowingWrappers() {
+		WarehouseException exception = assertThrows(WarehouseException.class, () -> {
+			warehouse.sellStock(-1);
+		});
+		assertEquals(exception.getMessage(), "Warehouse Exception: Sales order cannot be negative");
+		exception = assertThrows(WarehouseException.class, () -> {
+			ledger.sellItems(-1);
+		});
+		assertEquals(exception.getMessage(), "Warehouse Exception: Attempt to sell negative number of items");
+		assertThrows(WarehouseException.class, () -> {
+			warehouse.restockToAndSellStock(capacity + 1, 5);
+		});
+	}
+
+	/*
+	 * Test the preallocated exceptions
+	 */
+	@Test
+	public void PreallocatedExceptions() {
+		WarehouseException exception = TradeStatus.NEGATIVE_ORDER.preallocated();
+		assertSame(TradeStatus.NEGATIVE_ORDER.preallocated(), exception);
+		assertEquals(exception.getStackTrace().length, 0);
+		assertEquals(exception.getMessage(), "Warehouse Exception: Sales order cannot be negative");
+		exception.addSuppressed(new RuntimeException());
+		assertEquals(exception.getSuppressed().length, 0);
+		assertTrue(TradeStatus.NEGATIVE_ORDER.exception().getMessage().equals(exception.getMessage()));
+		assertThrows(IllegalStateException.class, () -> {
+			TradeStatus.FILLED.exception();
+		});
+	}
+
+}
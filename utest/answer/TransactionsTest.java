@@ -7,6 +7,10 @@ import answer.WarehouseTransactions;
 import org.junit.jupiter.api.*;
 import static java.lang.Math.ceil;
 
+import java.util.BitSet;
+import java.util.Random;
+
+import question.Ledger;
 import question.WarehouseException;
 
 /*
@@ -321,4 +325,101 @@ public class TransactionsTest {
 		};
 		assertTrue(typicalTransactions.insolvent()); // go bankrupt without shifting any stock!
 	}
+	
+	
+	/*
+	 * Tests for processing a run of days' orders in one go
+	 */
+	
+	// A utility method to perform the same run of orders one day at a time,
+	// returning the index of the day which ended the simulation (or -1)
+	public int ProcessOneDayAtATime(WarehouseTransactions transactions, int[] orders, BitSet restock)
+			throws WarehouseException {
+		for (int day = 0; day < orders.length; day++) {
+			if (restock.get(day)) {
+				transactions.restockAndSellStock(orders[day]);
+			} else {
+				transactions.sellStock(orders[day]);
+			};
+			if (transactions.insolvent() || transactions.orderUnfulfilled() || transactions.jobDone()) {
+				return day;
+			};
+		};
+		return -1;
+	}
+	
+	@Test
+	public void BatchMatchesDayByDay() throws WarehouseException {
+		Random random = new Random(302);
+		for (int trial = 0; trial < 200; trial++) {
+			int[] orders = new int[duration + 5];
+			BitSet restock = new BitSet();
+			for (int day = 0; day < orders.length; day++) {
+				orders[day] = random.nextInt(capacity / 2);
+				if (random.nextBoolean()) {
+					restock.set(day);
+				};
+			};
+			for (LedgerStorage storage : new LedgerStorage[] {LedgerStorage.BOXED, LedgerStorage.PRIMITIVE}) {
+				WarehouseTransactions oneByOne = new WarehouseTransactions(capacity, duration,
+						storage.newLedger(stock, cash, wholesale, retail, delivery));
+				WarehouseTransactions batch = new WarehouseTransactions(capacity, duration,
+						storage.newLedger(stock, cash, wholesale, retail, delivery));
+				assertEquals(ProcessOneDayAtATime(oneByOne, orders, restock),
+						batch.processOrders(orders, restock));
+				assertEquals(oneByOne.insolvent(), batch.insolvent());
+				assertEquals(oneByOne.orderUnfulfilled(), batch.orderUnfulfilled());
+				assertEquals(oneByOne.jobDone(), batch.jobDone());
+			};
+		};
+	}
+	
+	@Test
+	public void BatchStopsWhenOrderUnfulfilled() throws WarehouseException {
+		int[] orders = {100, 100, 100, 1, 5};
+		assertEquals(typicalTransactions.processOrders(orders, new BitSet()), 3);
+		assertTrue(typicalTransactions.orderUnfulfilled());
+		assertEquals(typicalLedger.currentDay(), Integer.valueOf(5)); // rest not processed
+	}
+	
+	@Test
+	public void BatchStopsWhenJobDone() throws WarehouseException {
+		int[] orders = new int[duration + 10]; // sell nothing, but stay in business
+		assertEquals(typicalTransactions.processOrders(orders, new BitSet()), duration - 1);
+		assertTrue(typicalTransactions.jobDone());
+	}
+	
+	@Test
+	public void BatchCompletesWithoutEndingSimulation() throws WarehouseException {
+		int[] orders = {1, 2, 3};
+		assertEquals(typicalTransactions.processOrders(orders, new BitSet()), -1);
+		assertEquals(typicalLedger.inStock(), Integer.valueOf(stock - 6));
+	}
+	
+	@Test
+	public void BatchWithNegativeOrder() throws WarehouseException {
+		int[] orders = {1, 2, negative, 3};
+		assertThrows(WarehouseException.class, () -> {
+			typicalTransactions.processOrders(orders, new BitSet());
+		});
+		assertEquals(typicalLedger.currentDay(), one); // nothing was done
+	}
+	
+	@Test
+	public void BatchRestockingOverfullWarehouse() throws WarehouseException {
+		int[] orders = {1, 1, 1};
+		BitSet restock = new BitSet();
+		restock.set(1);
+		for (LedgerStorage storage : new LedgerStorage[] {LedgerStorage.BOXED, LedgerStorage.PRIMITIVE}) {
+			Ledger overfull = storage.newLedger(capacity + 10, cash, wholesale, retail, delivery);
+			WarehouseTransactions batch = new WarehouseTransactions(capacity, duration, overfull);
+			assertThrows(WarehouseException.class, () -> {
+				batch.processOrders(orders, restock);
+			});
+			// The first day was done, but nothing was bought on the second
+			assertEquals(overfull.currentDay(), Integer.valueOf(2));
+			assertEquals(overfull.inStock(), Integer.valueOf(capacity + 9));
+			assertEquals(overfull.cashAvailable(), Integer.valueOf(cash + retail));
+		};
+	}
 }
@@ -0,0 +1,130 @@
+package answer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.*;
+import question.Ledger;
+import question.WarehouseException;
+
+/*
+ * Unit tests for the flight recorder events and the RecordingSummary class
+ */
+public class WarehouseEventsTest {
+
+	// Simulation parameters
+	final int capacity = 20;
+	final int cash = 80;
+	final int wholesale = 5;
+	final int retail = 8;
+	final int delivery = 50;
+	final int duration = 7;
+
+	Path file;
+	Recording recording;
+	WarehouseTransactions warehouse;
+
+	@BeforeEach
+	public void RecordingStarted() throws Exception {
+		file = Files.createTempFile("warehouse", ".jfr");
+		recording = new Recording();
+		for (String name : new String[] {WarehouseEvents.DayAdvance.NAME, WarehouseEvents.Restock.NAME,
+				WarehouseEvents.Sale.NAME, WarehouseEvents.Insolvency.NAME, WarehouseEvents.JobDone.NAME}) {
+			recording.enable(name).withThreshold(Duration.ZERO);
+		};
+		recording.start();
+		Ledger ledger = new WarehouseLedger(capacity, cash, wholesale, retail, delivery);
+		warehouse = new WarehouseTransactions(capacity, duration, ledger);
+	}
+
+	@AfterEach
+	public void RecordingDeleted() throws Exception {
+		recording.close();
+		Files.deleteIfExists(file);
+	}
+
+	private RecordingSummary summary() throws Exception {
+		recording.stop();
+		recording.dump(file);
+		return new RecordingSummary(file);
+	}
+
+	/*
+	 * Test that a whole job is recorded, day by day
+	 */
+	@Test
+	public void JobRecorded() throws Exception {
+		warehouse.sellStock(15);
+		for (int day = 2; day <= duration; day++) {
+			warehouse.restockAndSellStock(10);
+		};
+		assertTrue(warehouse.jobDone());
+		RecordingSummary summary = summary();
+		assertEquals(summary.count("DayAdvance"), duration);
+		assertEquals(summary.count("Restock"), duration - 1);
+		assertEquals(summary.count("Sale"), duration);
+		assertEquals(summary.count("JobDone"), 1);
+		assertEquals(summary.count("Insolvency"), 0);
+		assertEquals(summary.itemsRequested(), 15 + (duration - 1) * 10);
+		assertEquals(summary.itemsSold(), summary.itemsRequested());
+		assertTrue(summary.toString().contains("Job done after day " + duration));
+	}
+
+	/*
+	 * Test that a partly filled order and insolvency are recorded
+	 */
+	@Test
+	public void FailuresRecorded() throws Exception {
+		warehouse.sellStock(capacity + 5);
+		assertTrue(warehouse.orderUnfulfilled());
+		Ledger broke = new WarehouseLedger(0, 0, wholesale, retail, delivery);
+		WarehouseTransactions failing = new WarehouseTransactions(capacity, duration, broke);
+		failing.restockAndSellStock(5);
+		assertTrue(failing.insolvent());
+		RecordingSummary summary = summary();
+		assertEquals(summary.itemsRequested(), capacity + 10);
+		assertEquals(summary.itemsSold(), capacity + 5);
+		assertEquals(summary.partialSales(), 1);
+		assertEquals(summary.count("Insolvency"), 1);
+		assertTrue(summary.toString().contains("Earliest insolvency at the end of day 1"));
+	}
+
+	/*
+	 * Test that a batch of orders is recorded in full, even for a ledger
+	 * which would otherwise take the fast path
+	 */
+	@Test
+	public void BatchRecorded() throws Exception {
+		Ledger ledger = new PrimitiveLedger(capacity, cash, wholesale, retail, delivery);
+		WarehouseTransactions batch = new WarehouseTransactions(capacity, duration, ledger);
+		int[] orders = {10, 10, 10, 10, 10, 10, 10, 10};
+		BitSet restock = new BitSet();
+		restock.set(1, orders.length);
+		assertEquals(batch.processOrders(orders, restock), duration - 1);
+		RecordingSummary summary = summary();
+		assertEquals(summary.count("Sale"), duration);
+		assertEquals(summary.count("Restock"), duration - 1);
+		assertEquals(summary.count("JobDone"), 1);
+	}
+
+	/*
+	 * Test that nothing is recorded unless asked for
+	 */
+	@Test
+	public void NothingRecordedByDefault() throws Exception {
+		recording.close();
+		recording = new Recording();
+		recording.start();
+		assertFalse(WarehouseEvents.recording());
+		warehouse.sellStock(5);
+		RecordingSummary summary = summary();
+		assertEquals(summary.count("Sale"), 0);
+		assertEquals(summary.toString(), "No warehouse events recorded\n");
+	}
+
+}
@@ -0,0 +1,97 @@
+package answer;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import question.WarehouseException;
+
+/**
+ * A <code>BatchKernel</code> which trades as many lanes at once as fit in
+ * the CPU's widest vector registers, using the (incubating) JDK Vector
+ * API.  Lanes which have stopped trading are masked out rather than
+ * skipped, so every group of lanes takes the same straight-line path.
+ *
+ * This is kept apart from the rest of the source, since it can only be
+ * compiled and run with <code>--add-modules jdk.incubator.vector</code>:
+ * build it with the <code>compileVector</code> target, and let
+ * <code>BatchKernel.create</code> pick it up when it can be used.
+ *
+ * @author CAB302
+ * @version 1.0
+ */
+public class VectorBatchKernel extends BatchKernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * A vector kernel for the given number of warehouses, each starting on
+	 * day 1 with the given stock and cash.
+	 *
+	 * @param lanes the number of warehouses
+	 * @param capacity the maximum capacity of each warehouse, in items
+	 * @param initialStock initial stock level, in items
+	 * @param initialCash initial cash reserve, in dollars
+	 * @param wholesaleCostPerItem how much it costs to buy an item, in dollars
+	 * @param retailPricePerItem how much we get from selling an item, in dollars
+	 * @param deliveryCharge extra cost associated with buying items, in dollars
+	 * @param jobDuration the duration of the job, in days
+	 * @throws WarehouseException as for <code>BatchKernel</code>
+	 */
+	public VectorBatchKernel(
+			int lanes,
+			int capacity,
+			int initialStock,
+			int initialCash,
+			int wholesaleCostPerItem,
+			int retailPricePerItem,
+			int deliveryCharge,
+			int jobDuration)
+	throws WarehouseException {
+		super(lanes, capacity, initialStock, initialCash,
+				wholesaleCostPerItem, retailPricePerItem, deliveryCharge, jobDuration);
+	}
+
+	protected int advance(int[] orders, int[] restockLevels) {
+		int stillTrading = 0;
+		int upTo = SPECIES.loopBound(lanes());
+		int lane = 0;
+		for (; lane < upTo; lane += SPECIES.length()) {
+			IntVector ended = IntVector.fromArray(SPECIES, outcome, lane);
+			VectorMask<Integer> live = ended.compare(VectorOperators.EQ, TRADING);
+			if (!live.anyTrue()) {
+				continue;
+			};
+			IntVector items = IntVector.fromArray(SPECIES, stock, lane);
+			IntVector dollars = IntVector.fromArray(SPECIES, cash, lane);
+			IntVector today = IntVector.fromArray(SPECIES, day, lane);
+			IntVector level = IntVector.fromArray(SPECIES, restockLevels, lane);
+			IntVector order = IntVector.fromArray(SPECIES, orders, lane);
+			// Restock, paying for the delivery even if there's nothing to buy
+			VectorMask<Integer> restocking = live.and(level.compare(VectorOperators.NE, RestockPolicy.NO_RESTOCK));
+			IntVector required = level.sub(items).max(0);
+			items = items.add(required, restocking);
+			dollars = dollars.sub(required.mul(wholesaleCost).add(deliveryCost), restocking);
+			// Sell what we can and turn the page
+			IntVector sold = order.min(items);
+			items = items.sub(sold, live);
+			dollars = dollars.add(sold.mul(retailPrice), live);
+			today = today.add(1, live);
+			// Work out how each lane ended, if it did (later checks take priority)
+			IntVector ending = IntVector.broadcast(SPECIES, TRADING)
+				.blend(COMPLETED, today.compare(VectorOperators.GT, duration))
+				.blend(UNFULFILLED, sold.compare(VectorOperators.LT, order))
+				.blend(BANKRUPT, dollars.compare(VectorOperators.LT, 0));
+			ended = ended.blend(ending, live);
+			items.intoArray(stock, lane);
+			dollars.intoArray(cash, lane);
+			today.intoArray(day, lane);
+			ended.intoArray(outcome, lane);
+			stillTrading += ended.compare(VectorOperators.EQ, TRADING).trueCount();
+		};
+		// Any lanes left over are traded one at a time
+		return stillTrading + advance(lane, orders, restockLevels);
+	}
+
+}